@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.business;
+
+import java.sql.Timestamp;
+
+import java.util.Map;
+
+
+/**
+ * Lightweight view of a document used by the CMIS listings. It never holds
+ * the XML content of the document.
+ */
+public class CmisDocument
+{
+    private int _nId;
+    private int _nSpaceId;
+    private String _strTitle;
+    private String _strCodeDocumentType;
+    private int _nStateId;
+    private Timestamp _dateCreation;
+    private Timestamp _dateModification;
+    private Timestamp _dateValidityBegin;
+    private Timestamp _dateValidityEnd;
+    private Map<String, String> _mapAttributeValues;
+
+    /**
+     * Returns the Id
+     * @return The Id
+     */
+    public int getId(  )
+    {
+        return _nId;
+    }
+
+    /**
+     * Sets the Id
+     * @param nId The Id
+     */
+    public void setId( int nId )
+    {
+        _nId = nId;
+    }
+
+    /**
+     * Returns the space Id
+     * @return The space Id
+     */
+    public int getSpaceId(  )
+    {
+        return _nSpaceId;
+    }
+
+    /**
+     * Sets the space Id
+     * @param nSpaceId The space Id
+     */
+    public void setSpaceId( int nSpaceId )
+    {
+        _nSpaceId = nSpaceId;
+    }
+
+    /**
+     * Returns the Title
+     * @return The Title
+     */
+    public String getTitle(  )
+    {
+        return _strTitle;
+    }
+
+    /**
+     * Sets the Title
+     * @param strTitle The Title
+     */
+    public void setTitle( String strTitle )
+    {
+        _strTitle = strTitle;
+    }
+
+    /**
+     * Returns the document type code
+     * @return The document type code
+     */
+    public String getCodeDocumentType(  )
+    {
+        return _strCodeDocumentType;
+    }
+
+    /**
+     * Sets the document type code
+     * @param strCodeDocumentType The document type code
+     */
+    public void setCodeDocumentType( String strCodeDocumentType )
+    {
+        _strCodeDocumentType = strCodeDocumentType;
+    }
+
+    /**
+     * Returns the state Id
+     * @return The state Id
+     */
+    public int getStateId(  )
+    {
+        return _nStateId;
+    }
+
+    /**
+     * Sets the state Id
+     * @param nStateId The state Id
+     */
+    public void setStateId( int nStateId )
+    {
+        _nStateId = nStateId;
+    }
+
+    /**
+     * Returns the creation date
+     * @return The creation date
+     */
+    public Timestamp getDateCreation(  )
+    {
+        return _dateCreation;
+    }
+
+    /**
+     * Sets the creation date
+     * @param dateCreation The creation date
+     */
+    public void setDateCreation( Timestamp dateCreation )
+    {
+        _dateCreation = dateCreation;
+    }
+
+    /**
+     * Returns the modification date
+     * @return The modification date
+     */
+    public Timestamp getDateModification(  )
+    {
+        return _dateModification;
+    }
+
+    /**
+     * Sets the modification date
+     * @param dateModification The modification date
+     */
+    public void setDateModification( Timestamp dateModification )
+    {
+        _dateModification = dateModification;
+    }
+
+    /**
+     * Returns the beginning of the validity period
+     * @return The beginning of the validity period
+     */
+    public Timestamp getDateValidityBegin(  )
+    {
+        return _dateValidityBegin;
+    }
+
+    /**
+     * Sets the beginning of the validity period
+     * @param dateValidityBegin The beginning of the validity period
+     */
+    public void setDateValidityBegin( Timestamp dateValidityBegin )
+    {
+        _dateValidityBegin = dateValidityBegin;
+    }
+
+    /**
+     * Returns the end of the validity period
+     * @return The end of the validity period
+     */
+    public Timestamp getDateValidityEnd(  )
+    {
+        return _dateValidityEnd;
+    }
+
+    /**
+     * Sets the end of the validity period
+     * @param dateValidityEnd The end of the validity period
+     */
+    public void setDateValidityEnd( Timestamp dateValidityEnd )
+    {
+        _dateValidityEnd = dateValidityEnd;
+    }
+
+    /**
+     * Returns the text values of the attributes
+     * @return The values by attribute code, or null if they are not loaded
+     */
+    public Map<String, String> getAttributeValues(  )
+    {
+        return _mapAttributeValues;
+    }
+
+    /**
+     * Sets the text values of the attributes
+     * @param mapAttributeValues The values by attribute code
+     */
+    public void setAttributeValues( Map<String, String> mapAttributeValues )
+    {
+        _mapAttributeValues = mapAttributeValues;
+    }
+}
@@ -0,0 +1,535 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.sql.Timestamp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * CmisDocumentDAO
+ */
+public final class CmisDocumentDAO implements ICmisDocumentDAO
+{
+    private static final String SQL_QUERY_SELECT_COLUMNS = "SELECT id_document, id_space, title, code_document_type, " +
+        " id_state, date_creation, date_modification, date_validity_begin, date_validity_end FROM document ";
+    private static final String SQL_QUERY_SELECT = SQL_QUERY_SELECT_COLUMNS + " WHERE id_document = ? ";
+    private static final String SQL_WHERE_VALID_IN_SPACE = " WHERE id_space = ? " +
+        " AND ( date_validity_begin IS NULL OR date_validity_begin <= ? ) " +
+        " AND ( date_validity_end IS NULL OR date_validity_end >= ? ) ";
+    private static final String SQL_QUERY_SELECT_VALID_BY_SPACE = SQL_QUERY_SELECT_COLUMNS + SQL_WHERE_VALID_IN_SPACE +
+        " ORDER BY id_document ";
+    private static final String SQL_ORDER_BY = " ORDER BY ";
+    private static final String SQL_LIMIT_OFFSET = " LIMIT ? OFFSET ? ";
+    private static final String SQL_ASC = " ASC";
+    private static final String SQL_DESC = " DESC";
+    private static final String[] SQL_SORT_COLUMNS = { "title", "date_creation", "date_modification" };
+    private static final String SQL_ID_COLUMN = "id_document";
+    private static final String SQL_LIMIT = " LIMIT ? ";
+    private static final String SQL_KEYSET_START = " AND ";
+    private static final String SQL_KEYSET_OPEN = "( ";
+    private static final String SQL_KEYSET_AFTER = " > ? ";
+    private static final String SQL_KEYSET_BEFORE = " < ? ";
+    private static final String SQL_KEYSET_OR_EQUAL = " OR ( ";
+    private static final String SQL_KEYSET_EQUAL_AND = " = ? AND ";
+    private static final String SQL_KEYSET_CLOSE = " ) ) ";
+    private static final String SQL_QUERY_SELECT_VALID_BY_SPACE_PAGE = SQL_QUERY_SELECT_VALID_BY_SPACE +
+        SQL_LIMIT_OFFSET;
+    private static final String SQL_QUERY_COUNT_VALID_BY_SPACE = "SELECT COUNT(*) FROM document " +
+        SQL_WHERE_VALID_IN_SPACE;
+    private static final String SQL_QUERY_SELECT_VALID_BY_SPACES = SQL_QUERY_SELECT_COLUMNS +
+        " WHERE ( date_validity_begin IS NULL OR date_validity_begin <= ? ) " +
+        " AND ( date_validity_end IS NULL OR date_validity_end >= ? ) AND id_space IN ( ";
+    private static final String SQL_ORDER_BY_SPACE = " ORDER BY id_space, id_document ";
+    private static final String SQL_QUERY_SELECT_SERVED_CONTENT = "SELECT " +
+        " COALESCE( xml_validated_content, xml_working_content ) FROM document WHERE id_document = ? ";
+    private static final String SQL_QUERY_SELECT_SERVED_CONTENTS = "SELECT id_document, " +
+        " COALESCE( xml_validated_content, xml_working_content ) FROM document WHERE id_document IN ( ";
+    private static final String SQL_QUERY_SELECT_MULTI_BYTE_CONTENT_LENGTH = "SELECT id_document, " +
+        " OCTET_LENGTH( COALESCE( xml_validated_content, xml_working_content ) ) FROM document " +
+        " WHERE OCTET_LENGTH( COALESCE( xml_validated_content, xml_working_content ) ) <> " +
+        " CHAR_LENGTH( COALESCE( xml_validated_content, xml_working_content ) ) LIMIT 1 ";
+    private static final String SQL_QUERY_SELECT_SERVED_CONTENT_LENGTHS = "SELECT id_document, " +
+        " OCTET_LENGTH( COALESCE( xml_validated_content, xml_working_content ) ) FROM document " +
+        " WHERE id_document IN ( ";
+    private static final String SQL_QUERY_SELECT_ATTRIBUTE_VALUES = "SELECT c.id_document, a.code, c.text_value " +
+        " FROM document_content c, document_type_attr a WHERE c.id_document_attr = a.id_document_attr " +
+        " AND c.text_value IS NOT NULL AND c.id_document IN ( ";
+    private static final String SQL_ORDER_BY_VALIDATED = " ORDER BY c.id_document, c.validated ";
+    private static final String SQL_PARAMETER = "?";
+    private static final String SQL_SEPARATOR = ", ";
+    private static final String SQL_END_LIST = " ) ";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public CmisDocument load( int nId, Plugin plugin )
+    {
+        CmisDocument document = null;
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT, plugin );
+        daoUtil.setInt( 1, nId );
+        daoUtil.executeQuery(  );
+
+        if ( daoUtil.next(  ) )
+        {
+            document = getDocument( daoUtil );
+        }
+
+        daoUtil.free(  );
+
+        return document;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<CmisDocument> selectValidBySpace( int nSpaceId, Timestamp now, Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_VALID_BY_SPACE, plugin );
+        setValidInSpace( daoUtil, nSpaceId, now );
+
+        return getDocuments( daoUtil );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<CmisDocument> selectValidBySpace( int nSpaceId, Timestamp now, int nOffset, int nLimit,
+        Plugin plugin )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_VALID_BY_SPACE_PAGE, plugin );
+        int nIndex = setValidInSpace( daoUtil, nSpaceId, now );
+        daoUtil.setInt( nIndex++, nLimit );
+        daoUtil.setInt( nIndex, nOffset );
+
+        return getDocuments( daoUtil );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<CmisDocument> selectValidBySpace( int nSpaceId, Timestamp now, CmisDocumentSort sort, int nOffset,
+        int nLimit, Plugin plugin )
+    {
+        StringBuilder sbSql = new StringBuilder( SQL_QUERY_SELECT_COLUMNS ).append( SQL_WHERE_VALID_IN_SPACE );
+        appendOrderBy( sbSql, sort );
+        sbSql.append( SQL_LIMIT_OFFSET );
+
+        DAOUtil daoUtil = new DAOUtil( sbSql.toString(  ), plugin );
+        int nIndex = setValidInSpace( daoUtil, nSpaceId, now );
+        daoUtil.setInt( nIndex++, nLimit );
+        daoUtil.setInt( nIndex, nOffset );
+
+        return getDocuments( daoUtil );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<CmisDocument> selectValidBySpaceAfter( int nSpaceId, Timestamp now, CmisDocumentSort sort,
+        CmisDocument last, int nLimit, Plugin plugin )
+    {
+        StringBuilder sbSql = new StringBuilder( SQL_QUERY_SELECT_COLUMNS ).append( SQL_WHERE_VALID_IN_SPACE )
+                                                                           .append( SQL_KEYSET_START );
+
+        // ( f1 > ? OR ( f1 = ? AND ( f2 > ? OR ( f2 = ? AND id_document > ? ) ) ) )
+        for ( int i = 0; i < sort.getFieldCount(  ); i++ )
+        {
+            String strColumn = SQL_SORT_COLUMNS[sort.getField( i )];
+            sbSql.append( SQL_KEYSET_OPEN ).append( strColumn )
+                 .append( sort.isAscending( i ) ? SQL_KEYSET_AFTER : SQL_KEYSET_BEFORE ).append( SQL_KEYSET_OR_EQUAL )
+                 .append( strColumn ).append( SQL_KEYSET_EQUAL_AND );
+        }
+
+        sbSql.append( SQL_ID_COLUMN ).append( sort.isIdAscending(  ) ? SQL_KEYSET_AFTER : SQL_KEYSET_BEFORE );
+
+        for ( int i = 0; i < sort.getFieldCount(  ); i++ )
+        {
+            sbSql.append( SQL_KEYSET_CLOSE );
+        }
+
+        appendOrderBy( sbSql, sort );
+        sbSql.append( SQL_LIMIT );
+
+        DAOUtil daoUtil = new DAOUtil( sbSql.toString(  ), plugin );
+        int nIndex = setValidInSpace( daoUtil, nSpaceId, now );
+
+        for ( int i = 0; i < sort.getFieldCount(  ); i++ )
+        {
+            nIndex = setSortValue( daoUtil, nIndex, sort.getField( i ), last );
+            nIndex = setSortValue( daoUtil, nIndex, sort.getField( i ), last );
+        }
+
+        daoUtil.setInt( nIndex++, last.getId(  ) );
+        daoUtil.setInt( nIndex, nLimit );
+
+        return getDocuments( daoUtil );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int countValidBySpace( int nSpaceId, Timestamp now, Plugin plugin )
+    {
+        int nCount = 0;
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_COUNT_VALID_BY_SPACE, plugin );
+        setValidInSpace( daoUtil, nSpaceId, now );
+        daoUtil.executeQuery(  );
+
+        if ( daoUtil.next(  ) )
+        {
+            nCount = daoUtil.getInt( 1 );
+        }
+
+        daoUtil.free(  );
+
+        return nCount;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<CmisDocument> selectValidBySpaces( List<Integer> listSpaceIds, Timestamp now, Plugin plugin )
+    {
+        if ( listSpaceIds.isEmpty(  ) )
+        {
+            return new ArrayList<CmisDocument>(  );
+        }
+
+        StringBuilder sbSql = new StringBuilder( SQL_QUERY_SELECT_VALID_BY_SPACES );
+        appendParameters( sbSql, listSpaceIds.size(  ) );
+        sbSql.append( SQL_END_LIST ).append( SQL_ORDER_BY_SPACE );
+
+        DAOUtil daoUtil = new DAOUtil( sbSql.toString(  ), plugin );
+        int nIndex = 1;
+        daoUtil.setTimestamp( nIndex++, now );
+        daoUtil.setTimestamp( nIndex++, now );
+
+        for ( Integer nSpaceId : listSpaceIds )
+        {
+            daoUtil.setInt( nIndex++, nSpaceId );
+        }
+
+        return getDocuments( daoUtil );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public String selectServedContent( int nId, Plugin plugin )
+    {
+        String strContent = null;
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_SERVED_CONTENT, plugin );
+        daoUtil.setInt( 1, nId );
+        daoUtil.executeQuery(  );
+
+        if ( daoUtil.next(  ) )
+        {
+            strContent = daoUtil.getString( 1 );
+        }
+
+        daoUtil.free(  );
+
+        return strContent;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public Map<Integer, String> selectServedContents( List<Integer> listIds, Plugin plugin )
+    {
+        Map<Integer, String> mapContents = new HashMap<Integer, String>(  );
+
+        if ( listIds.isEmpty(  ) )
+        {
+            return mapContents;
+        }
+
+        StringBuilder sbSql = new StringBuilder( SQL_QUERY_SELECT_SERVED_CONTENTS );
+        appendParameters( sbSql, listIds.size(  ) );
+        sbSql.append( SQL_END_LIST );
+
+        DAOUtil daoUtil = new DAOUtil( sbSql.toString(  ), plugin );
+
+        for ( int i = 0; i < listIds.size(  ); i++ )
+        {
+            daoUtil.setInt( i + 1, listIds.get( i ) );
+        }
+
+        daoUtil.executeQuery(  );
+
+        while ( daoUtil.next(  ) )
+        {
+            mapContents.put( daoUtil.getInt( 1 ), daoUtil.getString( 2 ) );
+        }
+
+        daoUtil.free(  );
+
+        return mapContents;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public Map<Integer, Long> selectMultiByteContentLength( Plugin plugin )
+    {
+        Map<Integer, Long> mapLength = new HashMap<Integer, Long>(  );
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_MULTI_BYTE_CONTENT_LENGTH, plugin );
+        daoUtil.executeQuery(  );
+
+        if ( daoUtil.next(  ) )
+        {
+            mapLength.put( daoUtil.getInt( 1 ), daoUtil.getLong( 2 ) );
+        }
+
+        daoUtil.free(  );
+
+        return mapLength;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public Map<Integer, Long> selectServedContentLengths( List<Integer> listIds, Plugin plugin )
+    {
+        Map<Integer, Long> mapLengths = new HashMap<Integer, Long>(  );
+
+        if ( listIds.isEmpty(  ) )
+        {
+            return mapLengths;
+        }
+
+        StringBuilder sbSql = new StringBuilder( SQL_QUERY_SELECT_SERVED_CONTENT_LENGTHS );
+        appendParameters( sbSql, listIds.size(  ) );
+        sbSql.append( SQL_END_LIST );
+
+        DAOUtil daoUtil = new DAOUtil( sbSql.toString(  ), plugin );
+
+        for ( int i = 0; i < listIds.size(  ); i++ )
+        {
+            daoUtil.setInt( i + 1, listIds.get( i ) );
+        }
+
+        daoUtil.executeQuery(  );
+
+        while ( daoUtil.next(  ) )
+        {
+            // a document without content has a null length
+            mapLengths.put( daoUtil.getInt( 1 ), daoUtil.getLong( 2 ) );
+        }
+
+        daoUtil.free(  );
+
+        return mapLengths;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public Map<Integer, Map<String, String>> selectAttributeValues( List<Integer> listIds, Plugin plugin )
+    {
+        Map<Integer, Map<String, String>> mapValues = new HashMap<Integer, Map<String, String>>(  );
+
+        if ( listIds.isEmpty(  ) )
+        {
+            return mapValues;
+        }
+
+        StringBuilder sbSql = new StringBuilder( SQL_QUERY_SELECT_ATTRIBUTE_VALUES );
+        appendParameters( sbSql, listIds.size(  ) );
+        sbSql.append( SQL_END_LIST ).append( SQL_ORDER_BY_VALIDATED );
+
+        DAOUtil daoUtil = new DAOUtil( sbSql.toString(  ), plugin );
+
+        for ( int i = 0; i < listIds.size(  ); i++ )
+        {
+            daoUtil.setInt( i + 1, listIds.get( i ) );
+        }
+
+        daoUtil.executeQuery(  );
+
+        while ( daoUtil.next(  ) )
+        {
+            Integer nId = daoUtil.getInt( 1 );
+            Map<String, String> mapDocumentValues = mapValues.get( nId );
+
+            if ( mapDocumentValues == null )
+            {
+                mapDocumentValues = new HashMap<String, String>(  );
+                mapValues.put( nId, mapDocumentValues );
+            }
+
+            // the validated values come last and replace the working values
+            mapDocumentValues.put( daoUtil.getString( 2 ), daoUtil.getString( 3 ) );
+        }
+
+        daoUtil.free(  );
+
+        return mapValues;
+    }
+
+    /**
+     * Appends the ORDER BY clause of a sort order. The columns come from a
+     * fixed list, so the clause can't be injected
+     * @param sbSql The query
+     * @param sort The sort order
+     */
+    private static void appendOrderBy( StringBuilder sbSql, CmisDocumentSort sort )
+    {
+        sbSql.append( SQL_ORDER_BY );
+
+        for ( int i = 0; i < sort.getFieldCount(  ); i++ )
+        {
+            sbSql.append( SQL_SORT_COLUMNS[sort.getField( i )] ).append( sort.isAscending( i ) ? SQL_ASC : SQL_DESC )
+                 .append( SQL_SEPARATOR );
+        }
+
+        sbSql.append( SQL_ID_COLUMN ).append( sort.isIdAscending(  ) ? SQL_ASC : SQL_DESC );
+    }
+
+    /**
+     * Sets the value of a sort field as a query parameter
+     * @param daoUtil The DAOUtil
+     * @param nIndex The index of the parameter
+     * @param nField The sort field
+     * @param document The document holding the value
+     * @return The index of the next parameter
+     */
+    private static int setSortValue( DAOUtil daoUtil, int nIndex, int nField, CmisDocument document )
+    {
+        switch ( nField )
+        {
+            case CmisDocumentSort.FIELD_TITLE:
+                daoUtil.setString( nIndex, document.getTitle(  ) );
+
+                break;
+
+            case CmisDocumentSort.FIELD_DATE_CREATION:
+                daoUtil.setTimestamp( nIndex, document.getDateCreation(  ) );
+
+                break;
+
+            default:
+                daoUtil.setTimestamp( nIndex, document.getDateModification(  ) );
+        }
+
+        return nIndex + 1;
+    }
+
+    /**
+     * Appends the parameters of an IN list
+     * @param sbSql The query
+     * @param nCount The number of parameters
+     */
+    private static void appendParameters( StringBuilder sbSql, int nCount )
+    {
+        for ( int i = 0; i < nCount; i++ )
+        {
+            sbSql.append( ( i == 0 ) ? SQL_PARAMETER : ( SQL_SEPARATOR + SQL_PARAMETER ) );
+        }
+    }
+
+    /**
+     * Sets the parameters of the space and validity period clause
+     * @param daoUtil The DAOUtil
+     * @param nSpaceId The space id
+     * @param now The current time
+     * @return The index of the next parameter
+     */
+    private static int setValidInSpace( DAOUtil daoUtil, int nSpaceId, Timestamp now )
+    {
+        int nIndex = 1;
+        daoUtil.setInt( nIndex++, nSpaceId );
+        daoUtil.setTimestamp( nIndex++, now );
+        daoUtil.setTimestamp( nIndex++, now );
+
+        return nIndex;
+    }
+
+    /**
+     * Executes a query and reads the documents
+     * @param daoUtil The DAOUtil
+     * @return The documents
+     */
+    private static List<CmisDocument> getDocuments( DAOUtil daoUtil )
+    {
+        List<CmisDocument> listDocuments = new ArrayList<CmisDocument>(  );
+        daoUtil.executeQuery(  );
+
+        while ( daoUtil.next(  ) )
+        {
+            listDocuments.add( getDocument( daoUtil ) );
+        }
+
+        daoUtil.free(  );
+
+        return listDocuments;
+    }
+
+    private static CmisDocument getDocument( DAOUtil daoUtil )
+    {
+        CmisDocument document = new CmisDocument(  );
+        int nIndex = 1;
+        document.setId( daoUtil.getInt( nIndex++ ) );
+        document.setSpaceId( daoUtil.getInt( nIndex++ ) );
+        document.setTitle( daoUtil.getString( nIndex++ ) );
+        document.setCodeDocumentType( daoUtil.getString( nIndex++ ) );
+        document.setStateId( daoUtil.getInt( nIndex++ ) );
+        document.setDateCreation( daoUtil.getTimestamp( nIndex++ ) );
+        document.setDateModification( daoUtil.getTimestamp( nIndex++ ) );
+        document.setDateValidityBegin( daoUtil.getTimestamp( nIndex++ ) );
+        document.setDateValidityEnd( daoUtil.getTimestamp( nIndex++ ) );
+
+        return document;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.business;
+
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+import java.sql.Timestamp;
+
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * CmisDocumentHome
+ */
+public final class CmisDocumentHome
+{
+    private static ICmisDocumentDAO _dao = SpringContextService.getBean( "document-cmis.cmisDocumentDAO" );
+
+    /**
+     * Private constructor
+     */
+    private CmisDocumentHome(  )
+    {
+    }
+
+    /**
+     * Load a document without its content
+     * @param nId The document id
+     * @return The document or null if it doesn't exist
+     */
+    public static CmisDocument findByPrimaryKey( int nId )
+    {
+        return _dao.load( nId, CmisSpaceHome.getPlugin(  ) );
+    }
+
+    /**
+     * Load the documents of a space that are within their validity period, without their content
+     * @param nSpaceId The space id
+     * @param now The current time
+     * @return The documents ordered by id
+     */
+    public static List<CmisDocument> findValidBySpace( int nSpaceId, Timestamp now )
+    {
+        return _dao.selectValidBySpace( nSpaceId, now, CmisSpaceHome.getPlugin(  ) );
+    }
+
+    /**
+     * Load a page of the documents of a space that are within their validity period, without their content
+     * @param nSpaceId The space id
+     * @param now The current time
+     * @param nOffset The number of documents to skip
+     * @param nLimit The maximum number of documents to load
+     * @return The documents ordered by id
+     */
+    public static List<CmisDocument> findValidBySpace( int nSpaceId, Timestamp now, int nOffset, int nLimit )
+    {
+        return _dao.selectValidBySpace( nSpaceId, now, nOffset, nLimit, CmisSpaceHome.getPlugin(  ) );
+    }
+
+    /**
+     * Load a sorted page of the documents of a space that are within their validity period, without their content
+     * @param nSpaceId The space id
+     * @param now The current time
+     * @param sort The sort order
+     * @param nOffset The number of documents to skip
+     * @param nLimit The maximum number of documents to load
+     * @return The documents
+     */
+    public static List<CmisDocument> findValidBySpace( int nSpaceId, Timestamp now, CmisDocumentSort sort,
+        int nOffset, int nLimit )
+    {
+        return _dao.selectValidBySpace( nSpaceId, now, sort, nOffset, nLimit, CmisSpaceHome.getPlugin(  ) );
+    }
+
+    /**
+     * Load the documents of a space that are within their validity period and come after a given document
+     * in a sort order, without their content
+     * @param nSpaceId The space id
+     * @param now The current time
+     * @param sort The sort order
+     * @param last The last document already read : its id and the values of the sort fields must be set
+     * @param nLimit The maximum number of documents to load
+     * @return The documents
+     */
+    public static List<CmisDocument> findValidBySpaceAfter( int nSpaceId, Timestamp now, CmisDocumentSort sort,
+        CmisDocument last, int nLimit )
+    {
+        return _dao.selectValidBySpaceAfter( nSpaceId, now, sort, last, nLimit, CmisSpaceHome.getPlugin(  ) );
+    }
+
+    /**
+     * Load the documents of several spaces that are within their validity period, without their content
+     * @param listSpaceIds The spaces ids
+     * @param now The current time
+     * @return The documents ordered by space id and document id
+     */
+    public static List<CmisDocument> findValidBySpaces( List<Integer> listSpaceIds, Timestamp now )
+    {
+        return _dao.selectValidBySpaces( listSpaceIds, now, CmisSpaceHome.getPlugin(  ) );
+    }
+
+    /**
+     * Count the documents of a space that are within their validity period
+     * @param nSpaceId The space id
+     * @param now The current time
+     * @return The number of documents
+     */
+    public static int countValidBySpace( int nSpaceId, Timestamp now )
+    {
+        return _dao.countValidBySpace( nSpaceId, now, CmisSpaceHome.getPlugin(  ) );
+    }
+
+    /**
+     * Load the served content of a document
+     * @param nId The document id
+     * @return The content or null if the document has no content
+     */
+    public static String findServedContent( int nId )
+    {
+        return _dao.selectServedContent( nId, CmisSpaceHome.getPlugin(  ) );
+    }
+
+    /**
+     * Load the served contents of a list of documents
+     * @param listIds The documents ids
+     * @return The contents by document id
+     */
+    public static Map<Integer, String> findServedContents( List<Integer> listIds )
+    {
+        return _dao.selectServedContents( listIds, CmisSpaceHome.getPlugin(  ) );
+    }
+
+    /**
+     * Load the byte length, computed by the database, of a served content
+     * holding characters stored on several bytes
+     * @return The length by document id, empty if there is no such content
+     */
+    public static Map<Integer, Long> findMultiByteContentLength(  )
+    {
+        return _dao.selectMultiByteContentLength( CmisSpaceHome.getPlugin(  ) );
+    }
+
+    /**
+     * Load the byte length of the served content of a list of documents, without reading the contents
+     * @param listIds The documents ids
+     * @return The lengths by document id
+     */
+    public static Map<Integer, Long> findServedContentLengths( List<Integer> listIds )
+    {
+        return _dao.selectServedContentLengths( listIds, CmisSpaceHome.getPlugin(  ) );
+    }
+
+    /**
+     * Load the text values of the attributes of a list of documents
+     * @param listIds The documents ids
+     * @return The values by attribute code, by document id
+     */
+    public static Map<Integer, Map<String, String>> findAttributeValues( List<Integer> listIds )
+    {
+        return _dao.selectAttributeValues( listIds, CmisSpaceHome.getPlugin(  ) );
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.business;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Sort order of a documents listing : a list of fields, each one ascending
+ * or descending. The documents with the same values are sorted by id, in the
+ * direction of the last field.
+ */
+public final class CmisDocumentSort
+{
+    /** Sort by title */
+    public static final int FIELD_TITLE = 0;
+
+    /** Sort by creation date */
+    public static final int FIELD_DATE_CREATION = 1;
+
+    /** Sort by modification date */
+    public static final int FIELD_DATE_MODIFICATION = 2;
+    private final List<Integer> _listFields = new ArrayList<Integer>(  );
+    private final List<Boolean> _listAscending = new ArrayList<Boolean>(  );
+
+    /**
+     * Adds a sort field
+     * @param nField The field (one of the FIELD_ constants)
+     * @param bAscending true for an ascending order
+     */
+    public void addField( int nField, boolean bAscending )
+    {
+        if ( ( nField < FIELD_TITLE ) || ( nField > FIELD_DATE_MODIFICATION ) )
+        {
+            throw new IllegalArgumentException( "Unknown sort field : " + nField );
+        }
+
+        _listFields.add( nField );
+        _listAscending.add( bAscending );
+    }
+
+    /**
+     * Returns the number of sort fields
+     * @return The number of fields
+     */
+    public int getFieldCount(  )
+    {
+        return _listFields.size(  );
+    }
+
+    /**
+     * Returns a sort field
+     * @param nIndex The index of the field
+     * @return The field (one of the FIELD_ constants)
+     */
+    public int getField( int nIndex )
+    {
+        return _listFields.get( nIndex );
+    }
+
+    /**
+     * Returns the direction of a sort field
+     * @param nIndex The index of the field
+     * @return true for an ascending order
+     */
+    public boolean isAscending( int nIndex )
+    {
+        return _listAscending.get( nIndex );
+    }
+
+    /**
+     * Returns the direction of the id, used to sort the documents having the same values
+     * @return true for an ascending order
+     */
+    public boolean isIdAscending(  )
+    {
+        return _listAscending.isEmpty(  ) || _listAscending.get( _listAscending.size(  ) - 1 );
+    }
+}
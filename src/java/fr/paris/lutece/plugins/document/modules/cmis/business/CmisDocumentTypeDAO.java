@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.business;
+
+import fr.paris.lutece.plugins.document.business.DocumentType;
+import fr.paris.lutece.plugins.document.business.attributes.DocumentAttribute;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * CmisDocumentTypeDAO
+ */
+public final class CmisDocumentTypeDAO implements ICmisDocumentTypeDAO
+{
+    private static final String SQL_QUERY_SELECT_ALL_DOCUMENT_TYPES = "SELECT t.code_document_type, " +
+        " t.document_type_name, t.document_type_description, a.id_document_attr, a.code, " +
+        " a.document_type_attr_name, a.description, a.code_attr_type, a.required FROM document_type t " +
+        " LEFT OUTER JOIN document_type_attr a ON a.code_document_type = t.code_document_type " +
+        " ORDER BY t.code_document_type, a.attribute_order, a.id_document_attr ";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<DocumentType> selectAllDocumentTypes( Plugin plugin )
+    {
+        List<DocumentType> listDocumentTypes = new ArrayList<DocumentType>(  );
+        DocumentType documentType = null;
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_ALL_DOCUMENT_TYPES, plugin );
+        daoUtil.executeQuery(  );
+
+        while ( daoUtil.next(  ) )
+        {
+            String strCode = daoUtil.getString( 1 );
+
+            // the rows of a type are consecutive, one row per attribute
+            if ( ( documentType == null ) || !documentType.getCode(  ).equals( strCode ) )
+            {
+                documentType = new DocumentType(  );
+                documentType.setCode( strCode );
+                documentType.setName( daoUtil.getString( 2 ) );
+                documentType.setDescription( daoUtil.getString( 3 ) );
+                documentType.setAttributes( new ArrayList<DocumentAttribute>(  ) );
+                listDocumentTypes.add( documentType );
+            }
+
+            // no attribute row for a type without attributes
+            if ( daoUtil.getString( 5 ) != null )
+            {
+                DocumentAttribute attribute = new DocumentAttribute(  );
+                attribute.setId( daoUtil.getInt( 4 ) );
+                attribute.setCode( daoUtil.getString( 5 ) );
+                attribute.setName( daoUtil.getString( 6 ) );
+                attribute.setDescription( daoUtil.getString( 7 ) );
+                attribute.setCodeAttributeType( daoUtil.getString( 8 ) );
+                attribute.setRequired( daoUtil.getInt( 9 ) != 0 );
+                documentType.getAttributes(  ).add( attribute );
+            }
+        }
+
+        daoUtil.free(  );
+
+        return listDocumentTypes;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.business;
+
+import fr.paris.lutece.plugins.document.business.spaces.DocumentSpace;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * CmisSpaceDAO
+ */
+public final class CmisSpaceDAO implements ICmisSpaceDAO
+{
+    private static final String SQL_QUERY_SELECT_ALL_SPACES = "SELECT id_space, id_parent, document_space_name, " +
+        " workgroup_key FROM document_space ORDER BY document_space_name, id_space ";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<DocumentSpace> selectAllSpaces( Plugin plugin )
+    {
+        List<DocumentSpace> listSpaces = new ArrayList<DocumentSpace>(  );
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_ALL_SPACES, plugin );
+        daoUtil.executeQuery(  );
+
+        while ( daoUtil.next(  ) )
+        {
+            DocumentSpace space = new DocumentSpace(  );
+            space.setId( daoUtil.getInt( 1 ) );
+            space.setIdParent( daoUtil.getInt( 2 ) );
+            space.setName( daoUtil.getString( 3 ) );
+            space.setWorkgroup( daoUtil.getString( 4 ) );
+            listSpaces.add( space );
+        }
+
+        daoUtil.free(  );
+
+        return listSpaces;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+import java.sql.Timestamp;
+
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * ICmisDocumentDAO : read only access to the documents for the CMIS module.
+ * The listings never select the XML content : it is read for the content
+ * stream of a single document, and to compute the content lengths when the
+ * database can't give them.
+ */
+public interface ICmisDocumentDAO
+{
+    /**
+     * Load a document
+     * @param nId The document id
+     * @param plugin The document plugin
+     * @return The document or null if it doesn't exist
+     */
+    CmisDocument load( int nId, Plugin plugin );
+
+    /**
+     * Load the documents of a space that are within their validity period
+     * @param nSpaceId The space id
+     * @param now The current time
+     * @param plugin The document plugin
+     * @return The documents ordered by id
+     */
+    List<CmisDocument> selectValidBySpace( int nSpaceId, Timestamp now, Plugin plugin );
+
+    /**
+     * Load a page of the documents of a space that are within their validity period
+     * @param nSpaceId The space id
+     * @param now The current time
+     * @param nOffset The number of documents to skip
+     * @param nLimit The maximum number of documents to load
+     * @param plugin The document plugin
+     * @return The documents ordered by id
+     */
+    List<CmisDocument> selectValidBySpace( int nSpaceId, Timestamp now, int nOffset, int nLimit, Plugin plugin );
+
+    /**
+     * Load a sorted page of the documents of a space that are within their validity period
+     * @param nSpaceId The space id
+     * @param now The current time
+     * @param sort The sort order
+     * @param nOffset The number of documents to skip
+     * @param nLimit The maximum number of documents to load
+     * @param plugin The document plugin
+     * @return The documents
+     */
+    List<CmisDocument> selectValidBySpace( int nSpaceId, Timestamp now, CmisDocumentSort sort, int nOffset,
+        int nLimit, Plugin plugin );
+
+    /**
+     * Load the documents of a space that are within their validity period and
+     * come after a given document in a sort order (keyset paging)
+     * @param nSpaceId The space id
+     * @param now The current time
+     * @param sort The sort order
+     * @param last The last document already read : its id and the values of the sort fields must be set
+     * @param nLimit The maximum number of documents to load
+     * @param plugin The document plugin
+     * @return The documents
+     */
+    List<CmisDocument> selectValidBySpaceAfter( int nSpaceId, Timestamp now, CmisDocumentSort sort, CmisDocument last,
+        int nLimit, Plugin plugin );
+
+    /**
+     * Count the documents of a space that are within their validity period
+     * @param nSpaceId The space id
+     * @param now The current time
+     * @param plugin The document plugin
+     * @return The number of documents
+     */
+    int countValidBySpace( int nSpaceId, Timestamp now, Plugin plugin );
+
+    /**
+     * Load the documents of several spaces that are within their validity period
+     * @param listSpaceIds The spaces ids
+     * @param now The current time
+     * @param plugin The document plugin
+     * @return The documents ordered by space id and document id
+     */
+    List<CmisDocument> selectValidBySpaces( List<Integer> listSpaceIds, Timestamp now, Plugin plugin );
+
+    /**
+     * Load the served content (validated content or working content if the
+     * document has never been validated) of a document
+     * @param nId The document id
+     * @param plugin The document plugin
+     * @return The content, or null if the document has no content
+     */
+    String selectServedContent( int nId, Plugin plugin );
+
+    /**
+     * Load the served contents of a list of documents
+     * @param listIds The documents ids
+     * @param plugin The document plugin
+     * @return The contents by document id, null for a document without content
+     */
+    Map<Integer, String> selectServedContents( List<Integer> listIds, Plugin plugin );
+
+    /**
+     * Load the byte length, computed by the database, of a served content
+     * that holds characters stored on several bytes. This sample tells whether
+     * the byte lengths of the database are the lengths of the contents encoded
+     * in UTF-8
+     * @param plugin The document plugin
+     * @return The length by document id, empty if no content holds such characters
+     */
+    Map<Integer, Long> selectMultiByteContentLength( Plugin plugin );
+
+    /**
+     * Load the byte length of the served content of a list of documents,
+     * computed by the database without reading the contents
+     * @param listIds The documents ids
+     * @param plugin The document plugin
+     * @return The lengths by document id, 0 for a document without content
+     */
+    Map<Integer, Long> selectServedContentLengths( List<Integer> listIds, Plugin plugin );
+
+    /**
+     * Load the text values of the attributes of a list of documents. The
+     * validated value is returned, or the working value if the document has
+     * never been validated
+     * @param listIds The documents ids
+     * @param plugin The document plugin
+     * @return The values by attribute code, by document id
+     */
+    Map<Integer, Map<String, String>> selectAttributeValues( List<Integer> listIds, Plugin plugin );
+}
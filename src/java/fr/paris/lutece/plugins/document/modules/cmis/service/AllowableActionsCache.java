@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import org.apache.chemistry.opencmis.commons.data.AllowableActions;
+import org.apache.chemistry.opencmis.commons.enums.Action;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AllowableActionsImpl;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+
+/**
+ * Allowable actions of the objects. The repository is read only, so the
+ * actions only depend on a small state signature (document or folder, root
+ * folder, content) : each signature maps to one immutable instance, built
+ * once and shared by all the objects that have this signature.
+ */
+final class AllowableActionsCache
+{
+    private static final int STATE_FOLDER = 1;
+    private static final int STATE_ROOT = 2;
+    private static final int STATE_CONTENT = 4;
+    private static final int STATE_COUNT = 8;
+    private static final AllowableActions[] ACTIONS = new AllowableActions[STATE_COUNT];
+
+    static
+    {
+        for ( int nState = 0; nState < ACTIONS.length; nState++ )
+        {
+            ACTIONS[nState] = buildActions( nState );
+        }
+    }
+
+    /**
+     * Private constructor
+     */
+    private AllowableActionsCache(  )
+    {
+    }
+
+    /**
+     * Returns the allowable actions of an object
+     * @param object The object
+     * @param bRoot true if the object is the root folder
+     * @return The shared actions, that must not be modified
+     */
+    static AllowableActions getAllowableActions( RepositoryObject object, boolean bRoot )
+    {
+        int nState = 0;
+
+        if ( object.isSpace(  ) )
+        {
+            nState |= STATE_FOLDER;
+
+            if ( bRoot )
+            {
+                nState |= STATE_ROOT;
+            }
+        }
+        else if ( object.getContentLength(  ) > 0 )
+        {
+            nState |= STATE_CONTENT;
+        }
+
+        return ACTIONS[nState];
+    }
+
+    private static AllowableActions buildActions( int nState )
+    {
+        Set<Action> setActions = EnumSet.of( Action.CAN_GET_PROPERTIES );
+
+        if ( ( nState & STATE_FOLDER ) != 0 )
+        {
+            setActions.add( Action.CAN_GET_CHILDREN );
+            setActions.add( Action.CAN_GET_DESCENDANTS );
+            setActions.add( Action.CAN_GET_FOLDER_TREE );
+
+            if ( ( nState & STATE_ROOT ) == 0 )
+            {
+                setActions.add( Action.CAN_GET_FOLDER_PARENT );
+                setActions.add( Action.CAN_GET_OBJECT_PARENTS );
+            }
+        }
+        else
+        {
+            setActions.add( Action.CAN_GET_OBJECT_PARENTS );
+
+            if ( ( nState & STATE_CONTENT ) != 0 )
+            {
+                setActions.add( Action.CAN_GET_CONTENT_STREAM );
+            }
+        }
+
+        AllowableActionsImpl actions = new AllowableActionsImpl(  );
+        actions.setAllowableActions( Collections.unmodifiableSet( setActions ) );
+
+        return actions;
+    }
+}
@@ -34,6 +34,7 @@
 package fr.paris.lutece.plugins.document.modules.cmis.service;
 
 import org.apache.chemistry.opencmis.commons.data.PermissionMapping;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
 import org.apache.chemistry.opencmis.commons.definitions.PermissionDefinition;
 import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.*;
@@ -49,6 +50,8 @@ import java.util.*;
  */
 public abstract class BaseRepository
 {
+    private static final GregorianCalendar CALENDAR_GMT = new GregorianCalendar( TimeZone.getTimeZone( "GMT" ) );
+
     /**
      * Create permission
      * @param permission The permission
@@ -97,6 +100,23 @@ public abstract class BaseRepository
         props.addProperty( new PropertyIdImpl( id, value ) );
     }
 
+    /**
+     * Add an already built property. It can be a shared constant property
+     * @param props The properties
+     * @param typeId The typeId
+     * @param filter the Filter
+     * @param property The property
+     */
+    protected void addProperty( PropertiesImpl props, String typeId, Set<String> filter, PropertyData<?> property )
+    {
+        if ( !checkAddProperty( props, typeId, filter, property.getId(  ) ) )
+        {
+            return;
+        }
+
+        props.addProperty( property );
+    }
+
     /**
      * Add an Id list property
      * @param props The properties
@@ -209,7 +229,7 @@ public abstract class BaseRepository
      * @param typeId The typeId
      * @param filter the Filter
      * @param id The id
-     * @return
+     * @return true if the property must be added
      */
     protected boolean checkAddProperty( org.apache.chemistry.opencmis.commons.data.Properties properties,
         String typeId, Set<String> filter, String id )
@@ -224,7 +244,18 @@ public abstract class BaseRepository
             throw new IllegalArgumentException( "Id must not be null!" );
         }
 
-        return true;
+        return isRequested( filter, id );
+    }
+
+    /**
+     * Check if a property is requested by a filter
+     * @param filter the Filter (null for all the properties)
+     * @param id The id
+     * @return true if the property is requested
+     */
+    protected static boolean isRequested( Set<String> filter, String id )
+    {
+        return ( filter == null ) || filter.contains( id );
     }
 
     /**
@@ -309,9 +340,9 @@ public abstract class BaseRepository
     */
     protected static GregorianCalendar millisToCalendar( long millis )
     {
-        GregorianCalendar result = new GregorianCalendar(  );
-        result.setTimeZone( TimeZone.getTimeZone( "GMT" ) );
-        result.setTimeInMillis( (long) ( Math.ceil( millis / 1000 ) * 1000 ) );
+        // cloning the GMT calendar avoids the time zone lookup of a new calendar
+        GregorianCalendar result = (GregorianCalendar) CALENDAR_GMT.clone(  );
+        result.setTimeInMillis( ( millis / 1000 ) * 1000 );
 
         return result;
     }
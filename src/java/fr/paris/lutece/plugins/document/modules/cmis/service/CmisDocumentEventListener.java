@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import fr.paris.lutece.plugins.document.business.Document;
+import fr.paris.lutece.plugins.document.service.DocumentEvent;
+import fr.paris.lutece.plugins.document.service.DocumentEventListener;
+
+
+/**
+ * Listens to the document events to keep the CMIS caches up to date
+ */
+public class CmisDocumentEventListener implements DocumentEventListener
+{
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void processDocumentEvent( DocumentEvent event )
+    {
+        if ( event.getDocument(  ) == null )
+        {
+            return;
+        }
+
+        Document document = event.getDocument(  );
+
+        // created, modified, state changed (published) or deleted
+        CmisObjectCacheService.getInstance(  ).removeDocument( document.getId(  ) );
+        MissingObjectCache.getInstance(  ).removeDocument( document.getId(  ) );
+        DocumentNameIndexService.getInstance(  ).documentChanged( document );
+
+        if ( event.getEventType(  ) == DocumentEvent.DOCUMENT_DELETED )
+        {
+            ContentLengthService.getInstance(  ).removeContentLength( document.getId(  ) );
+        }
+        else
+        {
+            // the content length is computed once, when the document is saved or published
+            ContentLengthService.getInstance(  ).computeContentLength( document );
+        }
+    }
+}
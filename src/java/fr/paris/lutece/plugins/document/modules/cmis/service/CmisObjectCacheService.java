@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Cache of the CMIS objects metadata, keyed by object id (D123, S45). Size
+ * and eviction policy (LRU) are managed by the Lutece cache configuration.
+ * Entries also expire after a time to live and are removed as soon as the
+ * document plugin notifies a change.
+ */
+public final class CmisObjectCacheService extends AbstractCacheableService
+{
+    private static final String SERVICE_NAME = "Document CMIS Objects Cache Service";
+    private static final String PROPERTY_TIME_TO_LIVE = "document-cmis.cache.objects.timeToLive";
+    private static final String PROPERTY_STATISTICS_INTERVAL = "document-cmis.cache.objects.statisticsInterval";
+    private static final int DEFAULT_TIME_TO_LIVE = 600;
+    private static final int DEFAULT_STATISTICS_INTERVAL = 10000;
+    private static CmisObjectCacheService _singleton = new CmisObjectCacheService(  );
+    private final AtomicLong _lHits = new AtomicLong(  );
+    private final AtomicLong _lMisses = new AtomicLong(  );
+    private long _lTimeToLive = DEFAULT_TIME_TO_LIVE * 1000L;
+    private long _lStatisticsInterval = DEFAULT_STATISTICS_INTERVAL;
+
+    /**
+     * Private constructor
+     */
+    private CmisObjectCacheService(  )
+    {
+    }
+
+    /**
+     * Returns the unique instance
+     * @return The instance
+     */
+    public static CmisObjectCacheService getInstance(  )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Initializes the cache
+     */
+    public void init(  )
+    {
+        _lTimeToLive = AppPropertiesService.getPropertyInt( PROPERTY_TIME_TO_LIVE, DEFAULT_TIME_TO_LIVE ) * 1000L;
+        _lStatisticsInterval = AppPropertiesService.getPropertyInt( PROPERTY_STATISTICS_INTERVAL,
+                DEFAULT_STATISTICS_INTERVAL );
+        initCache(  );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public String getName(  )
+    {
+        return SERVICE_NAME;
+    }
+
+    /**
+     * Returns an object from the cache
+     * @param strObjectId The object id
+     * @return The object or null if it is not in the cache or expired
+     */
+    public RepositoryObject getObject( String strObjectId )
+    {
+        RepositoryObject object = isCacheEnable(  ) ? (RepositoryObject) getFromCache( strObjectId ) : null;
+
+        if ( ( object != null ) && ( ( System.currentTimeMillis(  ) - object.getLoadTime(  ) ) > _lTimeToLive ) )
+        {
+            removeKey( strObjectId );
+            object = null;
+        }
+
+        long lLookups;
+
+        if ( object != null )
+        {
+            lLookups = _lHits.incrementAndGet(  ) + _lMisses.get(  );
+        }
+        else
+        {
+            lLookups = _lMisses.incrementAndGet(  ) + _lHits.get(  );
+        }
+
+        if ( ( _lStatisticsInterval > 0 ) && ( ( lLookups % _lStatisticsInterval ) == 0 ) )
+        {
+            AppLogService.info( getStatistics(  ) );
+        }
+
+        return object;
+    }
+
+    /**
+     * Puts an object in the cache
+     * @param object The object
+     */
+    public void putObject( RepositoryObject object )
+    {
+        if ( isCacheEnable(  ) )
+        {
+            putInCache( object.getId(  ), object );
+        }
+    }
+
+    /**
+     * Removes a document from the cache
+     * @param nDocumentId The document id
+     */
+    public void removeDocument( int nDocumentId )
+    {
+        if ( isCacheEnable(  ) )
+        {
+            removeKey( RepositoryObject.getDocumentKey( nDocumentId ) );
+        }
+    }
+
+    /**
+     * Removes a space from the cache
+     * @param nSpaceId The space id
+     */
+    public void removeSpace( int nSpaceId )
+    {
+        if ( isCacheEnable(  ) )
+        {
+            removeKey( RepositoryObject.getSpaceKey( nSpaceId ) );
+        }
+    }
+
+    /**
+     * Returns the hit rate of the cache since startup
+     * @return The hit rate between 0 and 1
+     */
+    public double getHitRate(  )
+    {
+        long lHits = _lHits.get(  );
+        long lLookups = lHits + _lMisses.get(  );
+
+        return ( lLookups == 0 ) ? 0 : ( (double) lHits / lLookups );
+    }
+
+    /**
+     * Returns the statistics of the cache
+     * @return The statistics
+     */
+    public String getStatistics(  )
+    {
+        return SERVICE_NAME + " : size=" + getCacheSize(  ) + " hits=" + _lHits.get(  ) + " misses=" +
+        _lMisses.get(  ) + " hitRate=" + Math.round( getHitRate(  ) * 100 ) + "%";
+    }
+}
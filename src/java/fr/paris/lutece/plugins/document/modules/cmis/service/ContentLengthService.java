@@ -0,0 +1,452 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import fr.paris.lutece.plugins.document.business.Document;
+import fr.paris.lutece.plugins.document.modules.cmis.business.CmisDocument;
+import fr.paris.lutece.plugins.document.modules.cmis.business.CmisDocumentHome;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Content Length Service : byte length of the content served by
+ * getContentStream (validated content, or working content if the document
+ * has never been validated, encoded in UTF-8). The length is computed once,
+ * when the document is saved or published, and then cached for this version
+ * of the document. The lengths missing from the cache are computed by the
+ * database, without transferring the contents, only if its byte lengths have
+ * been checked to be the UTF-8 lengths : the database length of a content
+ * holding characters stored on several bytes is compared once to the length
+ * computed here. Otherwise (other charset, or no such content to check), the
+ * contents are loaded by batches and their lengths are computed here. The
+ * cache is bounded, the least recently used lengths are evicted first.
+ */
+public final class ContentLengthService
+{
+    /** The charset of the served content */
+    public static final String CONTENT_CHARSET = "UTF-8";
+
+    // number of contents loaded by a single query when lengths are missing
+    private static final int LOAD_BATCH_SIZE = 50;
+    private static ContentLengthService _singleton = new ContentLengthService(  );
+    private static final String PROPERTY_MAX_SIZE = "document-cmis.cache.contentLength.maxSize";
+    private static final int DEFAULT_MAX_SIZE = 50000;
+
+    // source of the missing lengths
+    private static final int LENGTHS_UNCHECKED = 0;
+    private static final int LENGTHS_DATABASE = 1;
+    private static final int LENGTHS_CONTENTS = 2;
+    private final Map<Integer, ContentLength> _mapLengths = Collections.synchronizedMap( new LengthsMap(  ) );
+    private volatile int _nMaxSize = DEFAULT_MAX_SIZE;
+    private volatile int _nLengthsSource = LENGTHS_UNCHECKED;
+
+    /**
+     * Private constructor
+     */
+    private ContentLengthService(  )
+    {
+    }
+
+    /**
+     * Returns the unique instance
+     * @return The instance
+     */
+    public static ContentLengthService getInstance(  )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Reads the maximum number of cached lengths. The database lengths will
+     * be checked again before their first use
+     */
+    public void init(  )
+    {
+        _nMaxSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_MAX_SIZE, DEFAULT_MAX_SIZE ) );
+        _nLengthsSource = LENGTHS_UNCHECKED;
+    }
+
+    /**
+     * Returns the content length of a document, computed from its content only if it is not cached yet
+     * @param document The document
+     * @return The content length
+     */
+    public long getContentLength( Document document )
+    {
+        ContentLength length = _mapLengths.get( document.getId(  ) );
+
+        if ( ( length != null ) && ( length.getDateModification(  ) == getTime( document.getDateModification(  ) ) ) )
+        {
+            return length.getLength(  );
+        }
+
+        return computeContentLength( document );
+    }
+
+    /**
+     * Returns the content length of a version of a document. The content is
+     * loaded only if the length is not cached yet
+     * @param nDocumentId The document id
+     * @param lDateModification The modification date of the document in milliseconds
+     * @return The content length
+     */
+    public long getContentLength( int nDocumentId, long lDateModification )
+    {
+        long lLength = getCachedLength( nDocumentId, lDateModification );
+
+        if ( lLength < 0 )
+        {
+            loadLengths( Collections.singletonMap( nDocumentId, lDateModification ) );
+            lLength = getCachedLength( nDocumentId, lDateModification );
+        }
+
+        return ( lLength < 0 ) ? 0 : lLength;
+    }
+
+    /**
+     * Loads the missing content lengths of a list of documents with a few
+     * batched queries instead of one query per document
+     * @param listDocuments The documents loaded without their content
+     */
+    public void loadContentLengths( Collection<CmisDocument> listDocuments )
+    {
+        Map<Integer, Long> mapMissing = new LinkedHashMap<Integer, Long>(  );
+
+        for ( CmisDocument document : listDocuments )
+        {
+            long lDateModification = getTime( document.getDateModification(  ) );
+
+            if ( getCachedLength( document.getId(  ), lDateModification ) < 0 )
+            {
+                mapMissing.put( document.getId(  ), lDateModification );
+            }
+        }
+
+        loadLengths( mapMissing );
+    }
+
+    /**
+     * Computes and caches the content length of a document that has been saved or published
+     * @param document The document (with its content)
+     * @return The content length
+     */
+    public long computeContentLength( Document document )
+    {
+        String strContent = getServedContent( document );
+
+        if ( strContent == null )
+        {
+            _mapLengths.remove( document.getId(  ) );
+
+            return 0;
+        }
+
+        long lLength = getUtf8Length( strContent );
+        _mapLengths.put( document.getId(  ),
+            new ContentLength( getTime( document.getDateModification(  ) ), lLength ) );
+
+        return lLength;
+    }
+
+    /**
+     * Caches the length of a content loaded to be served. The length sent
+     * with the content and the cached length (HEAD requests, ranges,
+     * cmis:contentStreamLength) are then the same. A cached length that
+     * differs was computed by a database that doesn't count the UTF-8 bytes :
+     * its lengths are no longer used and all the cached lengths are dropped
+     * @param nDocumentId The document id
+     * @param lDateModification The modification date of the document in milliseconds
+     * @param strContent The served content
+     * @return The content length
+     */
+    public long putServedContentLength( int nDocumentId, long lDateModification, String strContent )
+    {
+        long lLength = ( strContent == null ) ? 0 : getUtf8Length( strContent );
+        long lCachedLength = getCachedLength( nDocumentId, lDateModification );
+
+        if ( ( lCachedLength >= 0 ) && ( lCachedLength != lLength ) )
+        {
+            synchronized ( this )
+            {
+                _nLengthsSource = LENGTHS_CONTENTS;
+            }
+
+            AppLogService.error( "CMIS content length of document " + nDocumentId + " is " + lLength +
+                " bytes in UTF-8, not " + lCachedLength + " : the lengths are now computed from the contents" );
+            _mapLengths.clear(  );
+            CmisObjectCacheService.getInstance(  ).resetCache(  );
+        }
+
+        _mapLengths.put( nDocumentId, new ContentLength( lDateModification, lLength ) );
+
+        return lLength;
+    }
+
+    /**
+     * Removes the content length of a deleted document
+     * @param nDocumentId The document id
+     */
+    public void removeContentLength( int nDocumentId )
+    {
+        _mapLengths.remove( nDocumentId );
+    }
+
+    /**
+     * Returns the content served for a document : the validated content or
+     * the working content if the document has never been validated
+     * @param document The document
+     * @return The content
+     */
+    public static String getServedContent( Document document )
+    {
+        String strContent = document.getXmlValidatedContent(  );
+
+        return ( strContent == null ) ? document.getXmlWorkingContent(  ) : strContent;
+    }
+
+    /**
+     * Returns the number of bytes of a text encoded in UTF-8, without encoding it
+     * @param strText The text
+     * @return The number of bytes
+     */
+    public static long getUtf8Length( CharSequence strText )
+    {
+        long lLength = 0;
+        int nLength = strText.length(  );
+
+        for ( int i = 0; i < nLength; i++ )
+        {
+            int nBytes = getUtf8Length( strText, i );
+            lLength += nBytes;
+
+            if ( nBytes == 4 )
+            {
+                // the low surrogate of the pair has been counted
+                i++;
+            }
+        }
+
+        return lLength;
+    }
+
+    /**
+     * Returns the number of bytes of a character encoded in UTF-8. A surrogate
+     * pair is a 4 bytes code point, counted on its high surrogate
+     * @param strText The text
+     * @param nIndex The index of the character
+     * @return The number of bytes
+     */
+    static int getUtf8Length( CharSequence strText, int nIndex )
+    {
+        char c = strText.charAt( nIndex );
+
+        if ( c < 0x80 )
+        {
+            return 1;
+        }
+
+        if ( c < 0x800 )
+        {
+            return 2;
+        }
+
+        if ( Character.isHighSurrogate( c ) && ( ( nIndex + 1 ) < strText.length(  ) ) &&
+                Character.isLowSurrogate( strText.charAt( nIndex + 1 ) ) )
+        {
+            return 4;
+        }
+
+        if ( ( c >= Character.MIN_SURROGATE ) && ( c <= Character.MAX_SURROGATE ) )
+        {
+            // an invalid surrogate is encoded as '?'
+            return 1;
+        }
+
+        return 3;
+    }
+
+    /**
+     * Returns the cached content length of a version of a document
+     * @param nDocumentId The document id
+     * @param lDateModification The modification date of the document in milliseconds
+     * @return The content length, or -1 if it is not cached
+     */
+    long getCachedLength( int nDocumentId, long lDateModification )
+    {
+        ContentLength length = _mapLengths.get( nDocumentId );
+
+        if ( ( length != null ) && ( length.getDateModification(  ) == lDateModification ) )
+        {
+            return length.getLength(  );
+        }
+
+        return -1;
+    }
+
+    /**
+     * Loads and caches the content lengths of versions of documents, by
+     * batches. The lengths are computed by the database if its lengths are
+     * the UTF-8 lengths, from the contents otherwise
+     * @param mapDocuments The modification dates by document id
+     */
+    private void loadLengths( Map<Integer, Long> mapDocuments )
+    {
+        List<Integer> listMissing = new ArrayList<Integer>( mapDocuments.keySet(  ) );
+        boolean bDatabaseLengths = !listMissing.isEmpty(  ) && isDatabaseLengthsSource(  );
+
+        for ( int nStart = 0; nStart < listMissing.size(  ); nStart += LOAD_BATCH_SIZE )
+        {
+            List<Integer> listIds = listMissing.subList( nStart,
+                    Math.min( nStart + LOAD_BATCH_SIZE, listMissing.size(  ) ) );
+            Map<Integer, Long> mapContentLengths = bDatabaseLengths
+                ? CmisDocumentHome.findServedContentLengths( listIds ) : computeLengths( listIds );
+
+            for ( Integer nId : listIds )
+            {
+                Long lLength = mapContentLengths.get( nId );
+                _mapLengths.put( nId,
+                    new ContentLength( mapDocuments.get( nId ), ( lLength == null ) ? 0 : lLength.longValue(  ) ) );
+            }
+        }
+    }
+
+    /**
+     * Returns true if the missing lengths can be computed by the database.
+     * The first call compares the database length of a content holding
+     * characters stored on several bytes with its UTF-8 length
+     * @return true if the database lengths are the UTF-8 lengths
+     */
+    private synchronized boolean isDatabaseLengthsSource(  )
+    {
+        if ( _nLengthsSource == LENGTHS_UNCHECKED )
+        {
+            _nLengthsSource = LENGTHS_CONTENTS;
+
+            for ( Map.Entry<Integer, Long> sample : CmisDocumentHome.findMultiByteContentLength(  ).entrySet(  ) )
+            {
+                String strContent = CmisDocumentHome.findServedContent( sample.getKey(  ) );
+
+                if ( ( strContent != null ) && ( getUtf8Length( strContent ) == sample.getValue(  ) ) )
+                {
+                    _nLengthsSource = LENGTHS_DATABASE;
+                }
+            }
+
+            AppLogService.debug( "CMIS content lengths computed by " +
+                ( ( _nLengthsSource == LENGTHS_DATABASE ) ? "the database" : "loading the contents" ) );
+        }
+
+        return _nLengthsSource == LENGTHS_DATABASE;
+    }
+
+    /**
+     * Computes the UTF-8 lengths of the contents of a batch of documents
+     * @param listIds The documents ids
+     * @return The lengths by document id
+     */
+    private static Map<Integer, Long> computeLengths( List<Integer> listIds )
+    {
+        Map<Integer, String> mapContents = CmisDocumentHome.findServedContents( listIds );
+        Map<Integer, Long> mapLengths = new HashMap<Integer, Long>(  );
+
+        for ( Map.Entry<Integer, String> content : mapContents.entrySet(  ) )
+        {
+            if ( content.getValue(  ) != null )
+            {
+                mapLengths.put( content.getKey(  ), getUtf8Length( content.getValue(  ) ) );
+            }
+        }
+
+        return mapLengths;
+    }
+
+    private static long getTime( Date date )
+    {
+        return ( date == null ) ? 0 : date.getTime(  );
+    }
+
+    /**
+     * Lengths by document id, the least recently used first
+     */
+    private final class LengthsMap extends LinkedHashMap<Integer, ContentLength>
+    {
+        private static final long serialVersionUID = 1L;
+
+        LengthsMap(  )
+        {
+            super( 16, 0.75f, true );
+        }
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<Integer, ContentLength> eldest )
+        {
+            return size(  ) > _nMaxSize;
+        }
+    }
+
+    /**
+     * Content length of a version of a document
+     */
+    private static final class ContentLength
+    {
+        private final long _lDateModification;
+        private final long _lLength;
+
+        ContentLength( long lDateModification, long lLength )
+        {
+            _lDateModification = lDateModification;
+            _lLength = lLength;
+        }
+
+        long getDateModification(  )
+        {
+            return _lDateModification;
+        }
+
+        long getLength(  )
+        {
+            return _lLength;
+        }
+    }
+}
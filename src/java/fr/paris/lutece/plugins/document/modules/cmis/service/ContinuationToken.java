@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import fr.paris.lutece.plugins.document.modules.cmis.business.CmisDocument;
+import fr.paris.lutece.plugins.document.modules.cmis.business.CmisDocumentSort;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+
+import org.apache.commons.codec.binary.Base64;
+
+import java.io.UnsupportedEncodingException;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+
+import java.sql.Timestamp;
+
+
+/**
+ * Continuation token of a children listing : the position of the last
+ * returned child, as the values of its sort keys and its id (keyset). The
+ * next page starts right after this position, so it costs the same whatever
+ * its depth and doesn't shift when children are added or removed before it.
+ * The token is bound to the folder and to the order of the listing.
+ */
+final class ContinuationToken
+{
+    private static final String VERSION = "1";
+    private static final String SEPARATOR = "|";
+    private static final String SEPARATOR_REGEX = "\\|";
+    private static final String NANOS_SEPARATOR = ".";
+    private static final String NANOS_SEPARATOR_REGEX = "\\.";
+    private static final String TYPE_DOCUMENT = "D";
+    private static final String TYPE_SPACE = "S";
+    private static final String ENCODING = "UTF-8";
+    private static final int FIELD_COUNT = 9;
+    private final String _strOrder;
+    private final int _nFolderId;
+    private final boolean _bSpace;
+    private final int _nId;
+    private final int _nPosition;
+    private final String _strTitle;
+    private final Timestamp _dateCreation;
+    private final Timestamp _dateModification;
+
+    private ContinuationToken( String strOrder, int nFolderId, boolean bSpace, int nId, int nPosition,
+        String strTitle, Timestamp dateCreation, Timestamp dateModification )
+    {
+        _strOrder = strOrder;
+        _nFolderId = nFolderId;
+        _bSpace = bSpace;
+        _nId = nId;
+        _nPosition = nPosition;
+        _strTitle = strTitle;
+        _dateCreation = dateCreation;
+        _dateModification = dateModification;
+    }
+
+    /**
+     * Creates the token of the position after a document
+     * @param strOrder The order of the listing
+     * @param nFolderId The folder id
+     * @param document The last returned document
+     * @param sort The sort order or null for the id order
+     * @return The token or null if a sort value of the document is missing
+     */
+    static ContinuationToken afterDocument( String strOrder, int nFolderId, CmisDocument document,
+        CmisDocumentSort sort )
+    {
+        for ( int i = 0; ( sort != null ) && ( i < sort.getFieldCount(  ) ); i++ )
+        {
+            // a keyset can't be built on a missing value
+            if ( getSortValue( document, sort.getField( i ) ) == null )
+            {
+                return null;
+            }
+        }
+
+        return new ContinuationToken( strOrder, nFolderId, false, document.getId(  ), 0, document.getTitle(  ),
+            document.getDateCreation(  ), document.getDateModification(  ) );
+    }
+
+    /**
+     * Creates the token of the position after a space
+     * @param strOrder The order of the listing
+     * @param nFolderId The folder id
+     * @param nSpaceId The last returned space
+     * @param strName The name of the space
+     * @param nPosition The position of the space in the child spaces of the folder
+     * @return The token
+     */
+    static ContinuationToken afterSpace( String strOrder, int nFolderId, int nSpaceId, String strName, int nPosition )
+    {
+        return new ContinuationToken( strOrder, nFolderId, true, nSpaceId, nPosition, strName, null, null );
+    }
+
+    /**
+     * Decodes a token
+     * @param strToken The token sent by the client
+     * @return The token
+     * @throws CmisInvalidArgumentException if the token is malformed
+     */
+    static ContinuationToken decode( String strToken )
+    {
+        try
+        {
+            String strDecoded = new String( Base64.decodeBase64( strToken.getBytes( ENCODING ) ), ENCODING );
+            String[] fields = strDecoded.split( SEPARATOR_REGEX, -1 );
+
+            if ( ( fields.length != FIELD_COUNT ) || !VERSION.equals( fields[0] ) ||
+                    !( TYPE_DOCUMENT.equals( fields[3] ) || TYPE_SPACE.equals( fields[3] ) ) )
+            {
+                throw new CmisInvalidArgumentException( "Invalid continuation token" );
+            }
+
+            return new ContinuationToken( URLDecoder.decode( fields[1], ENCODING ), Integer.parseInt( fields[2] ),
+                TYPE_SPACE.equals( fields[3] ), Integer.parseInt( fields[4] ), Integer.parseInt( fields[5] ),
+                URLDecoder.decode( fields[6], ENCODING ), decodeTimestamp( fields[7] ), decodeTimestamp( fields[8] ) );
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            throw new CmisRuntimeException( e.getMessage(  ), e );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // also catches NumberFormatException
+            throw new CmisInvalidArgumentException( "Invalid continuation token" );
+        }
+    }
+
+    /**
+     * Encodes the token as an opaque string
+     * @return The token
+     */
+    String encode(  )
+    {
+        try
+        {
+            String strTitle = ( _strTitle == null ) ? "" : _strTitle;
+            StringBuilder sbToken = new StringBuilder( VERSION );
+            sbToken.append( SEPARATOR ).append( URLEncoder.encode( _strOrder, ENCODING ) );
+            sbToken.append( SEPARATOR ).append( _nFolderId );
+            sbToken.append( SEPARATOR ).append( _bSpace ? TYPE_SPACE : TYPE_DOCUMENT );
+            sbToken.append( SEPARATOR ).append( _nId );
+            sbToken.append( SEPARATOR ).append( _nPosition );
+            sbToken.append( SEPARATOR ).append( URLEncoder.encode( strTitle, ENCODING ) );
+            sbToken.append( SEPARATOR ).append( encodeTimestamp( _dateCreation ) );
+            sbToken.append( SEPARATOR ).append( encodeTimestamp( _dateModification ) );
+
+            return Base64.encodeBase64URLSafeString( sbToken.toString(  ).getBytes( ENCODING ) );
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            throw new CmisRuntimeException( e.getMessage(  ), e );
+        }
+    }
+
+    /**
+     * Checks that the token was issued by the same listing
+     * @param strOrder The order of the listing
+     * @param nFolderId The folder id
+     * @return true if the token can be used
+     */
+    boolean isIssuedBy( String strOrder, int nFolderId )
+    {
+        return ( _nFolderId == nFolderId ) && _strOrder.equals( strOrder );
+    }
+
+    /**
+     * Returns true if the token points after a space, false after a document
+     * @return true for a space
+     */
+    boolean isSpace(  )
+    {
+        return _bSpace;
+    }
+
+    /**
+     * Returns the id of the last returned child
+     * @return The id
+     */
+    int getId(  )
+    {
+        return _nId;
+    }
+
+    /**
+     * Returns the position of the last returned space in the child spaces
+     * @return The position
+     */
+    int getPosition(  )
+    {
+        return _nPosition;
+    }
+
+    /**
+     * Returns the title of the last returned child
+     * @return The title
+     */
+    String getTitle(  )
+    {
+        return _strTitle;
+    }
+
+    /**
+     * Returns the last returned document with its id and sort values
+     * @return The document
+     */
+    CmisDocument getDocument(  )
+    {
+        CmisDocument document = new CmisDocument(  );
+        document.setId( _nId );
+        document.setTitle( _strTitle );
+        document.setDateCreation( _dateCreation );
+        document.setDateModification( _dateModification );
+
+        return document;
+    }
+
+    private static Object getSortValue( CmisDocument document, int nField )
+    {
+        switch ( nField )
+        {
+            case CmisDocumentSort.FIELD_TITLE:
+                return document.getTitle(  );
+
+            case CmisDocumentSort.FIELD_DATE_CREATION:
+                return document.getDateCreation(  );
+
+            default:
+                return document.getDateModification(  );
+        }
+    }
+
+    private static String encodeTimestamp( Timestamp timestamp )
+    {
+        return ( timestamp == null ) ? "" : ( timestamp.getTime(  ) + NANOS_SEPARATOR + timestamp.getNanos(  ) );
+    }
+
+    private static Timestamp decodeTimestamp( String strTimestamp )
+    {
+        if ( strTimestamp.length(  ) == 0 )
+        {
+            return null;
+        }
+
+        String[] parts = strTimestamp.split( NANOS_SEPARATOR_REGEX );
+
+        if ( parts.length != 2 )
+        {
+            throw new IllegalArgumentException( strTimestamp );
+        }
+
+        // the nanos hold the whole fraction of second, including the milliseconds
+        Timestamp timestamp = new Timestamp( Long.parseLong( parts[0] ) );
+        timestamp.setNanos( Integer.parseInt( parts[1] ) );
+
+        return timestamp;
+    }
+}
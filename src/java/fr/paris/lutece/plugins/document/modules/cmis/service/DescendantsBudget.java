@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Maximum number of nodes that a single descendants request may return. The
+ * budget is shared by all the threads that walk the tree of the request.
+ * <br>The budget also holds the pool threads that the request may use besides
+ * the request thread, whatever the thread that splits the tree.
+ * <br>The children of a folder are charged once : a folder listed again gets
+ * the count granted to its first listing.
+ */
+final class DescendantsBudget
+{
+    private final int _nMaxNodes;
+    private final boolean _bTruncate;
+    private final AtomicInteger _nRemaining;
+    private final Semaphore _threads;
+    private final ConcurrentMap<Integer, Integer> _mapFolderGrants = new ConcurrentHashMap<Integer, Integer>(  );
+
+    /**
+     * Constructor
+     * @param nMaxNodes The maximum number of nodes, 0 or less for no limit
+     * @param bTruncate true to truncate the tree when the budget is exhausted,
+     * false to reject the request
+     * @param nThreads The number of pool threads that the request may use
+     * besides the request thread
+     */
+    DescendantsBudget( int nMaxNodes, boolean bTruncate, int nThreads )
+    {
+        _nMaxNodes = nMaxNodes;
+        _bTruncate = bTruncate;
+        _nRemaining = new AtomicInteger( nMaxNodes );
+        _threads = new Semaphore( Math.max( 0, nThreads ) );
+    }
+
+    /**
+     * Takes pool threads from the budget, without waiting
+     * @param nCount The number of threads wanted
+     * @return The number of threads granted, which must be released by {@link #releaseThread()}
+     */
+    int acquireThreads( int nCount )
+    {
+        int nGranted = 0;
+
+        while ( ( nGranted < nCount ) && _threads.tryAcquire(  ) )
+        {
+            nGranted++;
+        }
+
+        return nGranted;
+    }
+
+    /**
+     * Gives back a pool thread once its subtrees are walked
+     */
+    void releaseThread(  )
+    {
+        _threads.release(  );
+    }
+
+    /**
+     * Takes from the budget the nodes of the children of a folder. A folder
+     * listed again (a streamed level compiled again once its containers have
+     * been reclaimed) gets the count granted to its first listing without
+     * being charged again, so the tree doesn't depend on the garbage collector
+     * @param nFolderId The id of the folder
+     * @param nCount The number of children of the folder
+     * @return The number of children that can be added
+     * @throws CmisConstraintException if the budget is exhausted and the tree must not be truncated
+     */
+    int take( int nFolderId, int nCount )
+    {
+        if ( _nMaxNodes <= 0 )
+        {
+            return nCount;
+        }
+
+        Integer granted = _mapFolderGrants.get( nFolderId );
+
+        if ( granted != null )
+        {
+            return granted;
+        }
+
+        int nGranted = take( nCount );
+        _mapFolderGrants.put( nFolderId, nGranted );
+
+        return nGranted;
+    }
+
+    /**
+     * Takes nodes from the budget
+     * @param nCount The number of nodes to add to the tree
+     * @return The number of nodes that can be added, lower than the requested
+     * count if the tree must be truncated
+     * @throws CmisConstraintException if the budget is exhausted and the tree must not be truncated
+     */
+    int take( int nCount )
+    {
+        if ( ( _nMaxNodes <= 0 ) || ( nCount == 0 ) )
+        {
+            return nCount;
+        }
+
+        while ( true )
+        {
+            int nRemaining = _nRemaining.get(  );
+            int nGranted = Math.min( nRemaining, nCount );
+
+            if ( _nRemaining.compareAndSet( nRemaining, nRemaining - nGranted ) )
+            {
+                if ( ( nGranted < nCount ) && !_bTruncate )
+                {
+                    throw new CmisConstraintException( "The descendants exceed the maximum of " + _nMaxNodes +
+                        " objects per request. Use a smaller depth." );
+                }
+
+                return nGranted;
+            }
+        }
+    }
+}
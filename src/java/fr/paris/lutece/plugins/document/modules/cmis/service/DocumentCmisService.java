@@ -44,7 +44,7 @@ import org.apache.chemistry.opencmis.commons.server.CallContext;
 
 import java.math.BigInteger;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 
@@ -62,21 +62,35 @@ public class DocumentCmisService extends AbstractCmisService
      */
     public void setCallContext( CallContext context )
     {
+        // a request that was not closed must not leave its objects behind
+        if ( _context != context )
+        {
+            RequestObjectMap.release( _context );
+        }
+
         _context = context;
     }
 
+    /**
+     * Ends the current request : the objects it has loaded are released
+     */
+    @Override
+    public void close(  )
+    {
+        RequestObjectMap.release( _context );
+        _context = null;
+        super.close(  );
+    }
+
     /**
      * {@inheritDoc }
      */
     @Override
     public List<RepositoryInfo> getRepositoryInfos( ExtensionsData extension )
     {
-        AppLogService.info( "getRepositoryInfos" );
+        AppLogService.debug( "getRepositoryInfos" );
 
-        List<RepositoryInfo> list = new ArrayList<RepositoryInfo>(  );
-        list.add( _repository.getInfos(  ) );
-
-        return list;
+        return Collections.singletonList( _repository.getInfos(  ) );
     }
 
     /**
@@ -85,7 +99,7 @@ public class DocumentCmisService extends AbstractCmisService
     @Override
     public RepositoryInfo getRepositoryInfo( String repositoryId, ExtensionsData extension )
     {
-        AppLogService.info( "getRepositoryInfo" );
+        AppLogService.debug( "getRepositoryInfo" );
 
         return _repository.getInfos(  );
     }
@@ -97,9 +111,12 @@ public class DocumentCmisService extends AbstractCmisService
     public TypeDefinitionList getTypeChildren( String repositoryId, String typeId, Boolean includePropertyDefinitions,
         BigInteger maxItems, BigInteger skipCount, ExtensionsData extension )
     {
-        AppLogService.info( "getTypeChildren" );
+        AppLogService.debug( "getTypeChildren" );
+
+        boolean bIncludePropertyDefinitions = ( includePropertyDefinitions != null ) &&
+            includePropertyDefinitions.booleanValue(  );
 
-        return _repository.getTypesChildren( _context, typeId, true, maxItems, skipCount );
+        return _repository.getTypesChildren( _context, typeId, bIncludePropertyDefinitions, maxItems, skipCount );
     }
 
     /**
@@ -108,7 +125,7 @@ public class DocumentCmisService extends AbstractCmisService
     @Override
     public TypeDefinition getTypeDefinition( String repositoryId, String typeId, ExtensionsData extension )
     {
-        AppLogService.info( "getTypeDefinition" );
+        AppLogService.debug( "getTypeDefinition" );
 
         return _repository.getTypeDefinition( _context, typeId );
     }
@@ -121,7 +138,7 @@ public class DocumentCmisService extends AbstractCmisService
         Boolean includeAllowableActions, IncludeRelationships includeRelationships, String renditionFilter,
         Boolean includePathSegment, BigInteger maxItems, BigInteger skipCount, ExtensionsData extension )
     {
-        AppLogService.info( "getChildren" );
+        AppLogService.debug( "getChildren" );
 
         return _repository.getChildren( _context, folderId, filter, orderBy, includeAllowableActions,
             includeRelationships, renditionFilter, includePathSegment, maxItems, skipCount, extension, this );
@@ -135,7 +152,20 @@ public class DocumentCmisService extends AbstractCmisService
         Boolean includeAllowableActions, IncludeRelationships includeRelationships, String renditionFilter,
         Boolean includeRelativePathSegment, ExtensionsData extension )
     {
-        throw new UnsupportedOperationException( "Not supported yet." );
+        AppLogService.debug( "getObjectParents : objectId=" + objectId );
+
+        return _repository.getObjectParents( _context, objectId, filter, includeRelativePathSegment, this );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public ObjectData getFolderParent( String repositoryId, String folderId, String filter, ExtensionsData extension )
+    {
+        AppLogService.debug( "getFolderParent : folderId=" + folderId );
+
+        return _repository.getFolderParent( _context, folderId, filter, this );
     }
 
     /**
@@ -146,7 +176,7 @@ public class DocumentCmisService extends AbstractCmisService
         IncludeRelationships includeRelationships, String renditionFilter, Boolean includePolicyIds,
         Boolean includeAcl, ExtensionsData extension )
     {
-        AppLogService.info( "getObject : repositoryId=" + repositoryId + " objectId=" + objectId );
+        AppLogService.debug( "getObject : repositoryId=" + repositoryId + " objectId=" + objectId );
 
         return _repository.getObject( _context, objectId, filter, includeAllowableActions, includeRelationships,
             renditionFilter, includePolicyIds, includeAcl, extension, this );
@@ -184,4 +214,16 @@ public class DocumentCmisService extends AbstractCmisService
         return _repository.getDescendants( _context, folderId, depth, filter, includeAllowableActions,
             includePathSegment, this, false );
     }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<ObjectInFolderContainer> getFolderTree( String repositoryId, String folderId, BigInteger depth,
+        String filter, Boolean includeAllowableActions, IncludeRelationships includeRelationships,
+        String renditionFilter, Boolean includePathSegment, ExtensionsData extension )
+    {
+        return _repository.getFolderTree( _context, folderId, depth, filter, includeAllowableActions,
+            includePathSegment, this, false );
+    }
 }
@@ -33,6 +33,8 @@
  */
 package fr.paris.lutece.plugins.document.modules.cmis.service;
 
+import fr.paris.lutece.plugins.document.service.DocumentEventListernersManager;
+
 import org.apache.chemistry.opencmis.commons.impl.server.AbstractServiceFactory;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
@@ -40,6 +42,8 @@ import org.apache.chemistry.opencmis.server.support.CmisServiceWrapper;
 
 import java.math.BigInteger;
 
+import java.util.Map;
+
 
 /**
  * Document CMIS Service factory
@@ -50,8 +54,44 @@ public class DocumentCmisServiceFactory extends AbstractServiceFactory
     private static final BigInteger DEFAULT_DEPTH_TYPES = BigInteger.valueOf( -1 );
     private static final BigInteger DEFAULT_MAX_ITEMS_OBJECTS = BigInteger.valueOf( 200 );
     private static final BigInteger DEFAULT_DEPTH_OBJECTS = BigInteger.valueOf( 10 );
+    private static boolean _bInitialized;
     private ThreadLocal<CmisServiceWrapper<DocumentCmisService>> threadLocalService = new ThreadLocal<CmisServiceWrapper<DocumentCmisService>>(  );
 
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public synchronized void init( Map<String, String> parameters )
+    {
+        super.init( parameters );
+
+        // the factory is shared by all the bindings servlets : initialize the services once
+        if ( !_bInitialized )
+        {
+            CmisObjectCacheService.getInstance(  ).init(  );
+            MissingObjectCache.getInstance(  ).init(  );
+            ContentLengthService.getInstance(  ).init(  );
+            SpaceHierarchyService.getInstance(  ).init(  );
+            DocumentTypeService.getInstance(  ).init(  );
+            SpacePermissionService.getInstance(  ).init(  );
+            ParallelCompilationService.getInstance(  ).init(  );
+            DocumentEventListernersManager.getInstance(  ).registerListener( new CmisDocumentEventListener(  ) );
+            _bInitialized = true;
+        }
+    }
+
+    /**
+     * Stops the background threads of the services. Called by Spring when the
+     * context is closed (webapp reload or shutdown)
+     */
+    @Override
+    public synchronized void destroy(  )
+    {
+        SpaceHierarchyService.getInstance(  ).shutdown(  );
+        ParallelCompilationService.getInstance(  ).shutdown(  );
+        super.destroy(  );
+    }
+
     /**
      * {@inheritDoc }
      */
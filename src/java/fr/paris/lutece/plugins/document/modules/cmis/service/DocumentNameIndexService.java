@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import fr.paris.lutece.plugins.document.business.Document;
+import fr.paris.lutece.plugins.document.modules.cmis.business.CmisDocument;
+import fr.paris.lutece.plugins.document.modules.cmis.business.CmisDocumentHome;
+
+import java.sql.Timestamp;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Index of the documents of each space by title, used to resolve paths.
+ * The index of a space is built on its first lookup and dropped as soon as
+ * one of its documents is created, modified, moved or deleted. When several
+ * documents of a space have the same title, the one with the lowest id wins.
+ */
+public final class DocumentNameIndexService
+{
+    /** Value returned when no document has the given title */
+    public static final int NOT_FOUND = -1;
+    private static DocumentNameIndexService _singleton = new DocumentNameIndexService(  );
+    private final Map<Integer, Map<String, Integer>> _mapIndexes =
+        new ConcurrentHashMap<Integer, Map<String, Integer>>(  );
+    private final Map<Integer, Integer> _mapDocumentSpaces = new ConcurrentHashMap<Integer, Integer>(  );
+
+    /**
+     * Private constructor
+     */
+    private DocumentNameIndexService(  )
+    {
+    }
+
+    /**
+     * Returns the unique instance
+     * @return The instance
+     */
+    public static DocumentNameIndexService getInstance(  )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Returns the id of the document of a space having the given title
+     * @param nSpaceId The space id
+     * @param strTitle The title
+     * @return The document id or {@link #NOT_FOUND}
+     */
+    public int getDocumentId( int nSpaceId, String strTitle )
+    {
+        Map<String, Integer> index = _mapIndexes.get( nSpaceId );
+
+        if ( index == null )
+        {
+            index = buildIndex( nSpaceId );
+            _mapIndexes.put( nSpaceId, index );
+        }
+
+        Integer nDocumentId = index.get( strTitle );
+
+        return ( nDocumentId == null ) ? NOT_FOUND : nDocumentId;
+    }
+
+    /**
+     * Drops the indexes that may hold a modified document : the index of its
+     * current space and the index of the space where it was indexed
+     * @param document The document
+     */
+    public void documentChanged( Document document )
+    {
+        Integer nOldSpaceId = _mapDocumentSpaces.remove( document.getId(  ) );
+
+        if ( nOldSpaceId != null )
+        {
+            _mapIndexes.remove( nOldSpaceId );
+        }
+
+        _mapIndexes.remove( document.getSpaceId(  ) );
+    }
+
+    private Map<String, Integer> buildIndex( int nSpaceId )
+    {
+        // only the documents that are listed by getChildren
+        List<CmisDocument> listDocuments = CmisDocumentHome.findValidBySpace( nSpaceId,
+                new Timestamp( System.currentTimeMillis(  ) ) );
+
+        for ( CmisDocument document : listDocuments )
+        {
+            _mapDocumentSpaces.put( document.getId(  ), nSpaceId );
+        }
+
+        return indexByTitle( listDocuments );
+    }
+
+    /**
+     * Indexes documents by title. When several documents have the same title,
+     * the one with the lowest id wins
+     * @param listDocuments The documents
+     * @return The document ids by title
+     */
+    static Map<String, Integer> indexByTitle( List<CmisDocument> listDocuments )
+    {
+        Map<String, Integer> index = new HashMap<String, Integer>(  );
+
+        for ( CmisDocument document : listDocuments )
+        {
+            Integer nCurrent = index.get( document.getTitle(  ) );
+
+            if ( ( nCurrent == null ) || ( document.getId(  ) < nCurrent ) )
+            {
+                index.put( document.getTitle(  ), document.getId(  ) );
+            }
+        }
+
+        return index;
+    }
+}
@@ -33,13 +33,16 @@
  */
 package fr.paris.lutece.plugins.document.modules.cmis.service;
 
-import fr.paris.lutece.plugins.document.business.Document;
-import fr.paris.lutece.plugins.document.business.spaces.DocumentSpace;
+import fr.paris.lutece.plugins.document.modules.cmis.business.CmisDocument;
+import fr.paris.lutece.plugins.document.modules.cmis.business.CmisDocumentHome;
+import fr.paris.lutece.plugins.document.modules.cmis.business.CmisDocumentSort;
 import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.data.*;
 import org.apache.chemistry.opencmis.commons.definitions.PermissionDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionList;
 import org.apache.chemistry.opencmis.commons.enums.*;
@@ -47,14 +50,22 @@ import org.apache.chemistry.opencmis.commons.exceptions.*;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.*;
 import org.apache.chemistry.opencmis.commons.impl.server.ObjectInfoImpl;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.commons.server.ObjectInfo;
 import org.apache.chemistry.opencmis.commons.server.ObjectInfoHandler;
+import org.apache.chemistry.opencmis.server.shared.ContinuationTokens;
+import org.apache.chemistry.opencmis.server.shared.HttpUtils;
+import org.apache.chemistry.opencmis.server.shared.PartialContentStream;
 
 import org.apache.tika.mime.MimeTypes;
 
 import java.io.*;
 
+import java.lang.ref.SoftReference;
+
 import java.math.BigInteger;
 
+import java.sql.Timestamp;
+
 import java.util.*;
 
 
@@ -75,19 +86,60 @@ public class DocumentRepository extends BaseRepository
     private static final String CMIS_ALL = "cmis:all";
     private static final String ROOT_SPACE_ID = "S0";
     private static final String PREFIX_DOC = "D";
-    private static final String PREFIX_SPACE = "S";
+    private static final int ROOT_SPACE = 0;
     private static final String MIME_TYPE_XML = MimeTypes.PLAIN_TEXT;
+    private static final String MIME_TYPE_CONTENT = "application/xml; charset=" + ContentLengthService.CONTENT_CHARSET;
+    private static final String PROPERTY_DESCENDANTS_MAX_NODES = "document-cmis.descendants.maxNodes";
+    private static final String PROPERTY_DESCENDANTS_TRUNCATE = "document-cmis.descendants.truncate";
+    private static final String PROPERTY_DESCENDANTS_STREAMING = "document-cmis.descendants.streaming";
+    private static final String ORDER_BY_SEPARATOR = ",";
+    private static final String ORDER_BY_WHITESPACES = "\\s+";
+    private static final String ORDER_BY_ASC = "ASC";
+    private static final String ORDER_BY_DESC = "DESC";
+    private static final String EXTENSION_NAMESPACE = "http://lutece.paris.fr/cmis/document";
+    private static final String EXTENSION_TRUNCATED = "truncated";
+
+    // marker of an object whose descendants were cut by the node budget
+    private static final CmisExtensionElement EXTENSION_ELEMENT_TRUNCATED = new CmisExtensionElementImpl(
+            EXTENSION_NAMESPACE, EXTENSION_TRUNCATED, null, Boolean.TRUE.toString(  ) );
+
+    // constant properties, shared by all the compiled objects
+    private static final PropertyData<?> PROPERTY_CREATED_BY = new PropertyStringImpl( PropertyIds.CREATED_BY,
+            CREATED_BY );
+    private static final PropertyData<?> PROPERTY_LAST_MODIFIED_BY = new PropertyStringImpl(
+            PropertyIds.LAST_MODIFIED_BY, CREATED_BY );
+    private static final PropertyData<?> PROPERTY_CHANGE_TOKEN = new PropertyStringImpl( PropertyIds.CHANGE_TOKEN,
+            (String) null );
+    private static final PropertyData<?> PROPERTY_DOCUMENT_BASE_TYPE_ID = new PropertyIdImpl( PropertyIds.BASE_TYPE_ID,
+            BaseTypeId.CMIS_DOCUMENT.value(  ) );
+    private static final PropertyData<?> PROPERTY_DOCUMENT_OBJECT_TYPE_ID = new PropertyIdImpl(
+            PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value(  ) );
+    private static final PropertyData<?> PROPERTY_FOLDER_BASE_TYPE_ID = new PropertyIdImpl( PropertyIds.BASE_TYPE_ID,
+            BaseTypeId.CMIS_FOLDER.value(  ) );
+    private static final PropertyData<?> PROPERTY_FOLDER_OBJECT_TYPE_ID = new PropertyIdImpl(
+            PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_FOLDER.value(  ) );
+    private static final PropertyData<?> PROPERTY_CONTENT_STREAM_MIME_TYPE = new PropertyIdImpl(
+            PropertyIds.CONTENT_STREAM_MIME_TYPE, MIME_TYPE_XML );
 
     /**
-     * Types
+     * Repository infos, built once : they never change
      */
-    private final TypeManager types = new TypeManager(  );
+    private final RepositoryInfo _repositoryInfo = buildInfos(  );
 
     /**
      * Get repository infos
-     * @return The infos
+     * @return The infos, shared by all the callers, that must not be modified
      */
     public RepositoryInfo getInfos(  )
+    {
+        return _repositoryInfo;
+    }
+
+    /**
+     * Builds the repository infos
+     * @return The infos
+     */
+    private static RepositoryInfo buildInfos(  )
     {
         RepositoryInfoImpl repositoryInfo = new RepositoryInfoImpl(  );
 
@@ -132,7 +184,7 @@ public class DocumentRepository extends BaseRepository
         permissions.add( createPermission( CMIS_READ, "Read" ) );
         permissions.add( createPermission( CMIS_WRITE, "Write" ) );
         permissions.add( createPermission( CMIS_ALL, "All" ) );
-        aclCapability.setPermissionDefinitionData( permissions );
+        aclCapability.setPermissionDefinitionData( Collections.unmodifiableList( permissions ) );
 
         // mapping
         List<PermissionMapping> list = new ArrayList<PermissionMapping>(  );
@@ -162,7 +214,7 @@ public class DocumentRepository extends BaseRepository
             map.put( pm.getKey(  ), pm );
         }
 
-        aclCapability.setPermissionMappingData( map );
+        aclCapability.setPermissionMappingData( Collections.unmodifiableMap( map ) );
 
         repositoryInfo.setAclCapabilities( aclCapability );
 
@@ -182,7 +234,8 @@ public class DocumentRepository extends BaseRepository
     public TypeDefinitionList getTypesChildren( CallContext context, String typeId, boolean includePropertyDefinitions,
         BigInteger maxItems, BigInteger skipCount )
     {
-        return types.getTypesChildren( context, typeId, includePropertyDefinitions, maxItems, skipCount );
+        return DocumentTypeService.getInstance(  ).getTypes(  )
+                                  .getTypesChildren( context, typeId, includePropertyDefinitions, maxItems, skipCount );
     }
 
     /**
@@ -194,7 +247,7 @@ public class DocumentRepository extends BaseRepository
      */
     public TypeDefinition getTypeDefinition( CallContext context, String typeId )
     {
-        return types.getTypeDefinition( context, typeId );
+        return DocumentTypeService.getInstance(  ).getTypes(  ).getTypeDefinition( context, typeId );
     }
 
     /**
@@ -222,8 +275,6 @@ public class DocumentRepository extends BaseRepository
         result.setObjects( new ArrayList<ObjectInFolderData>(  ) );
         result.setHasMoreItems( false );
 
-        int count = 0;
-
         // skip and max
         int skip = ( ( skipCount == null ) ? 0 : skipCount.intValue(  ) );
 
@@ -239,12 +290,8 @@ public class DocumentRepository extends BaseRepository
             max = Integer.MAX_VALUE;
         }
 
-        if ( folderId.equalsIgnoreCase( ROOT_ID ) )
-        {
-            folderId = ROOT_SPACE_ID;
-        }
-
-        RepositoryObject object = new RepositoryObject( folderId );
+        SpaceHierarchy hierarchy = SpacePermissionService.getInstance(  ).getHierarchy( context );
+        RepositoryObject object = loadObject( context, hierarchy, folderId );
 
         if ( object.isDocument(  ) )
         {
@@ -252,78 +299,359 @@ public class DocumentRepository extends BaseRepository
         }
 
         String folderPath = object.getName(  );
+        Set<String> filterCollection = splitFilter( filter );
+        CmisDocumentSort sort = parseOrderBy( orderBy );
+
+        // documents come first, then spaces, each group in the requested
+        // order : the validity filter, the order and the page are applied by
+        // the database, the spaces come from the snapshot
+        Timestamp now = new Timestamp( System.currentTimeMillis(  ) );
+        int nFolderId = object.getNumericId(  );
+        int[] spaceIds = hierarchy.getChildIds( nFolderId );
+
+        if ( sort != null )
+        {
+            spaceIds = sortSpaces( hierarchy, spaceIds, sort );
+        }
 
-        List<Document> listDocuments = object.getDocumentChildren(  );
+        String strOrder = ( orderBy == null ) ? "" : orderBy.trim(  );
+        ContinuationToken token = getContinuationToken( extension, strOrder, nFolderId );
+        List<CmisDocument> listPage = new ArrayList<CmisDocument>(  );
+        int nFirstSpace;
+        boolean bMoreDocuments = false;
+        int nDocumentCount = -1;
 
-        // iterate through children
-        for ( Document document : listDocuments )
+        if ( token == null )
         {
-            // skip hidden and shadow files
-            if ( document.isOutOfDate(  ) || !document.isValid(  ) )
+            nDocumentCount = CmisDocumentHome.countValidBySpace( nFolderId, now );
+
+            if ( ( skip < nDocumentCount ) && ( max > 0 ) )
             {
-                continue;
+                int nLimit = Math.min( max, nDocumentCount - skip );
+                listPage = ( sort == null ) ? CmisDocumentHome.findValidBySpace( nFolderId, now, skip, nLimit )
+                                            : CmisDocumentHome.findValidBySpace( nFolderId, now, sort, skip, nLimit );
             }
 
-            count++;
-
-            if ( skip > 0 )
+            bMoreDocuments = ( skip + listPage.size(  ) ) < nDocumentCount;
+            nFirstSpace = Math.max( 0, skip - nDocumentCount );
+        }
+        else if ( !token.isSpace(  ) )
+        {
+            // keyset paging : one more document tells if the documents go on
+            if ( max > 0 )
             {
-                skip--;
+                listPage = CmisDocumentHome.findValidBySpaceAfter( nFolderId, now,
+                        ( sort == null ) ? new CmisDocumentSort(  ) : sort, token.getDocument(  ),
+                        ( max == Integer.MAX_VALUE ) ? max : ( max + 1 ) );
+            }
 
-                continue;
+            if ( listPage.size(  ) > max )
+            {
+                listPage = listPage.subList( 0, max );
+                bMoreDocuments = true;
             }
 
-            if ( result.getObjects(  ).size(  ) >= max )
+            nFirstSpace = 0;
+        }
+        else
+        {
+            nFirstSpace = findNextSpace( hierarchy, spaceIds, sort, token );
+        }
+
+        List<RepositoryObject> listChildren = new ArrayList<RepositoryObject>(  );
+        boolean iaa = ( includeAllowableActions != null ) && includeAllowableActions.booleanValue(  );
+
+        // only the contents of the page are read, and only for the lengths not cached yet
+        loadDocumentData( listPage, filterCollection, iaa );
+
+        for ( CmisDocument document : listPage )
+        {
+            // build child object from the already loaded row
+            listChildren.add( new RepositoryObject( document ) );
+        }
+
+        int nNextSpace = nFirstSpace;
+
+        while ( !bMoreDocuments && ( nNextSpace < spaceIds.length ) && ( listChildren.size(  ) < max ) )
+        {
+            // build child object from the hierarchy snapshot
+            listChildren.add( RepositoryObject.fromHierarchy( hierarchy, spaceIds[nNextSpace++] ) );
+        }
+
+        // compile the entries from the already loaded objects
+        boolean ips = ( ( includePathSegment == null ) ? false : includePathSegment.booleanValue(  ) );
+        result.getObjects(  )
+              .addAll( compileChildren( context, listChildren, filterCollection, iaa, true, ips, true,
+                objectInfos, folderPath ) );
+
+        boolean bMoreItems = bMoreDocuments || ( nNextSpace < spaceIds.length );
+        result.setHasMoreItems( bMoreItems );
+
+        // the count costs a scan of the folder, so it is left out of the keyset pages
+        if ( nDocumentCount >= 0 )
+        {
+            result.setNumItems( BigInteger.valueOf( (long) nDocumentCount + spaceIds.length ) );
+        }
+
+        if ( bMoreItems && !listChildren.isEmpty(  ) )
+        {
+            ContinuationToken next;
+
+            if ( nNextSpace > nFirstSpace )
+            {
+                int nLastSpace = spaceIds[nNextSpace - 1];
+                next = ContinuationToken.afterSpace( strOrder, nFolderId, nLastSpace, hierarchy.getName( nLastSpace ),
+                        nNextSpace - 1 );
+            }
+            else
             {
-                result.setHasMoreItems( true );
+                next = ContinuationToken.afterDocument( strOrder, nFolderId, listPage.get( listPage.size(  ) - 1 ),
+                        sort );
+            }
 
-                continue;
+            if ( next != null )
+            {
+                ContinuationTokens.setToken( result, next.encode(  ) );
             }
+        }
+
+        return result;
+    }
 
-            // build and add child object
-            ObjectInFolderDataImpl objectInFolder = new ObjectInFolderDataImpl(  );
-            objectInFolder.setObject( getObject( context, PREFIX_DOC + document.getId(  ), filter,
-                    includeAllowableActions, includeRelationships, renditionFilter, includePathSegment,
-                    includePathSegment, extension, objectInfos, folderPath ) );
+    /**
+     * Returns the continuation token sent with a listing request
+     * @param extension The extensions of the request
+     * @param strOrder The order of the listing
+     * @param nFolderId The folder id
+     * @return The token or null if there is none
+     * @throws CmisInvalidArgumentException if the token is malformed or was issued by another listing
+     */
+    private static ContinuationToken getContinuationToken( ExtensionsData extension, String strOrder, int nFolderId )
+    {
+        String strToken = ContinuationTokens.getToken( extension );
 
-            result.getObjects(  ).add( objectInFolder );
+        if ( strToken == null )
+        {
+            return null;
         }
 
-        List<DocumentSpace> listSpaces = object.getSpaceChildren(  );
+        ContinuationToken token = ContinuationToken.decode( strToken );
 
-        // iterate through children
-        for ( DocumentSpace space : listSpaces )
+        if ( !token.isIssuedBy( strOrder, nFolderId ) )
         {
-            count++;
+            throw new CmisInvalidArgumentException( "The continuation token was issued for another folder or order" );
+        }
+
+        return token;
+    }
 
-            if ( skip > 0 )
+    /**
+     * Finds the first space after the position of a continuation token
+     * @param hierarchy The space hierarchy snapshot
+     * @param spaceIds The child spaces of the folder, in the order of the listing
+     * @param sort The sort order or null for the order of the snapshot
+     * @param token The token
+     * @return The index of the first space to return
+     */
+    private static int findNextSpace( SpaceHierarchy hierarchy, int[] spaceIds, CmisDocumentSort sort,
+        ContinuationToken token )
+    {
+        if ( sort == null )
+        {
+            for ( int i = 0; i < spaceIds.length; i++ )
             {
-                skip--;
+                if ( spaceIds[i] == token.getId(  ) )
+                {
+                    return i + 1;
+                }
+            }
 
-                continue;
+            // the space has been removed : resume at its former position
+            return Math.min( token.getPosition(  ), spaceIds.length );
+        }
+
+        for ( int i = 0; i < spaceIds.length; i++ )
+        {
+            if ( compareSpaces( sort, hierarchy.getName( spaceIds[i] ), spaceIds[i], token.getTitle(  ),
+                        token.getId(  ) ) > 0 )
+            {
+                return i;
             }
+        }
+
+        return spaceIds.length;
+    }
+
+    /**
+     * Compile the entries of a folder listing, in parallel for large pages
+     * @param context The context
+     * @param listChildren The child objects
+     * @param filter The requested properties (null for all)
+     * @param includeAllowableActions include actions
+     * @param includeAcl include ACL
+     * @param includePathSegment include path segment
+     * @param userReadOnly user read only
+     * @param objectInfos object infos
+     * @param folderPath The folder path
+     * @return The entries, in the order of the child objects
+     */
+    private List<ObjectInFolderData> compileChildren( final CallContext context, List<RepositoryObject> listChildren,
+        final Set<String> filter, final boolean includeAllowableActions, final boolean includeAcl,
+        final boolean includePathSegment, final boolean userReadOnly, ObjectInfoHandler objectInfos,
+        final String folderPath )
+    {
+        final ObjectInfoHandler handler = new SynchronizedObjectInfoHandler( objectInfos );
 
-            if ( result.getObjects(  ).size(  ) >= max )
+        return ParallelCompilationService.getInstance(  )
+                                         .compileAll( listChildren,
+            new ParallelCompilationService.Compiler<RepositoryObject, ObjectInFolderData>(  )
             {
-                result.setHasMoreItems( true );
+                @Override
+                public ObjectInFolderData compile( RepositoryObject child )
+                {
+                    ObjectInFolderDataImpl objectInFolder = new ObjectInFolderDataImpl(  );
+                    objectInFolder.setObject( compileObjectType( context, child, filter, includeAllowableActions,
+                            includeAcl, userReadOnly, handler, folderPath ) );
 
-                continue;
+                    if ( includePathSegment )
+                    {
+                        objectInFolder.setPathSegment( child.getName(  ) );
+                    }
+
+                    return objectInFolder;
+                }
+            } );
+    }
+
+    /**
+     * Parses an orderBy statement : property query names separated by commas,
+     * each one optionally followed by ASC or DESC
+     * @param orderBy The orderBy statement
+     * @return The sort order or null if no order is requested
+     */
+    private static CmisDocumentSort parseOrderBy( String orderBy )
+    {
+        if ( ( orderBy == null ) || ( orderBy.trim(  ).length(  ) == 0 ) )
+        {
+            return null;
+        }
+
+        CmisDocumentSort sort = new CmisDocumentSort(  );
+
+        for ( String strTerm : orderBy.split( ORDER_BY_SEPARATOR ) )
+        {
+            String[] tokens = strTerm.trim(  ).split( ORDER_BY_WHITESPACES );
+            boolean bAscending = true;
+
+            if ( tokens.length == 2 )
+            {
+                if ( tokens[1].equalsIgnoreCase( ORDER_BY_DESC ) )
+                {
+                    bAscending = false;
+                }
+                else if ( !tokens[1].equalsIgnoreCase( ORDER_BY_ASC ) )
+                {
+                    throw new CmisInvalidArgumentException( "Invalid orderBy direction : " + tokens[1] );
+                }
+            }
+            else if ( tokens.length > 2 )
+            {
+                throw new CmisInvalidArgumentException( "Invalid orderBy : " + orderBy );
             }
 
-            // build and add child object
-            ObjectInFolderDataImpl objectInFolder = new ObjectInFolderDataImpl(  );
-            objectInFolder.setObject( getObject( context, PREFIX_SPACE + space.getId(  ), filter,
-                    includeAllowableActions, includeRelationships, renditionFilter, includePathSegment,
-                    includePathSegment, extension, objectInfos, folderPath ) );
+            if ( PropertyIds.NAME.equals( tokens[0] ) )
+            {
+                sort.addField( CmisDocumentSort.FIELD_TITLE, bAscending );
+            }
+            else if ( PropertyIds.CREATION_DATE.equals( tokens[0] ) )
+            {
+                sort.addField( CmisDocumentSort.FIELD_DATE_CREATION, bAscending );
+            }
+            else if ( PropertyIds.LAST_MODIFICATION_DATE.equals( tokens[0] ) )
+            {
+                sort.addField( CmisDocumentSort.FIELD_DATE_MODIFICATION, bAscending );
+            }
+            else
+            {
+                throw new CmisInvalidArgumentException( "Unsupported orderBy property : " + tokens[0] + " (" +
+                    PropertyIds.NAME + ", " + PropertyIds.CREATION_DATE + " and " +
+                    PropertyIds.LAST_MODIFICATION_DATE + " are supported)" );
+            }
+        }
+
+        return sort;
+    }
+
+    /**
+     * Sorts the child spaces of a folder. The spaces have no dates, so they
+     * are only sorted by name, then by id like the documents.
+     * @param hierarchy The space hierarchy snapshot
+     * @param spaceIds The spaces ids (not modified)
+     * @param sort The sort order
+     * @return The sorted spaces ids
+     */
+    private static int[] sortSpaces( final SpaceHierarchy hierarchy, int[] spaceIds, final CmisDocumentSort sort )
+    {
+        Integer[] sortedIds = new Integer[spaceIds.length];
 
-            result.getObjects(  ).add( objectInFolder );
+        for ( int i = 0; i < spaceIds.length; i++ )
+        {
+            sortedIds[i] = spaceIds[i];
         }
 
-        result.setNumItems( BigInteger.valueOf( count ) );
+        Arrays.sort( sortedIds,
+            new Comparator<Integer>(  )
+            {
+                @Override
+                public int compare( Integer nId1, Integer nId2 )
+                {
+                    return compareSpaces( sort, hierarchy.getName( nId1 ), nId1, hierarchy.getName( nId2 ), nId2 );
+                }
+            } );
+
+        int[] result = new int[spaceIds.length];
+
+        for ( int i = 0; i < sortedIds.length; i++ )
+        {
+            result[i] = sortedIds[i];
+        }
 
         return result;
     }
 
+    /**
+     * Compares two spaces in a sort order : by name if requested, then by id
+     */
+    private static int compareSpaces( CmisDocumentSort sort, String strName1, int nId1, String strName2, int nId2 )
+    {
+        for ( int i = 0; i < sort.getFieldCount(  ); i++ )
+        {
+            if ( sort.getField( i ) == CmisDocumentSort.FIELD_TITLE )
+            {
+                int nResult = compareNames( strName1, strName2 );
+
+                if ( nResult != 0 )
+                {
+                    return sort.isAscending( i ) ? nResult : ( -nResult );
+                }
+            }
+        }
+
+        int nResult = ( nId1 < nId2 ) ? ( -1 ) : ( ( nId1 == nId2 ) ? 0 : 1 );
+
+        return sort.isIdAscending(  ) ? nResult : ( -nResult );
+    }
+
+    private static int compareNames( String strName1, String strName2 )
+    {
+        if ( ( strName1 == null ) || ( strName2 == null ) )
+        {
+            return ( strName1 == null ) ? ( ( strName2 == null ) ? 0 : ( -1 ) ) : 1;
+        }
+
+        return String.CASE_INSENSITIVE_ORDER.compare( strName1, strName2 );
+    }
+
     /**
      * Get Object
      * 
@@ -367,14 +695,12 @@ public class DocumentRepository extends BaseRepository
         IncludeRelationships includeRelationships, String renditionFilter, Boolean includePolicyIds,
         Boolean includeAcl, ExtensionsData extension, ObjectInfoHandler objectInfo, String folderPath )
     {
-        if ( objectId.equalsIgnoreCase( ROOT_ID ) )
-        {
-            objectId = ROOT_SPACE_ID;
-        }
+        RepositoryObject object = loadObject( context, SpacePermissionService.getInstance(  ).getHierarchy( context ),
+                objectId );
 
-        RepositoryObject object = new RepositoryObject( objectId );
+        boolean iaa = ( includeAllowableActions != null ) && includeAllowableActions.booleanValue(  );
 
-        return compileObjectType( context, object, null, true, true, true, objectInfo, folderPath );
+        return compileObjectType( context, object, splitFilter( filter ), iaa, true, true, objectInfo, folderPath );
     }
 
     /**
@@ -402,12 +728,72 @@ public class DocumentRepository extends BaseRepository
             throw new CmisInvalidArgumentException( "Invalid folder path!" );
         }
 
-        RepositoryObject object = new RepositoryObject( ROOT_SPACE_ID );
+        SpaceHierarchy hierarchy = SpacePermissionService.getInstance(  ).getHierarchy( context );
+        RepositoryObject object = resolvePath( context, hierarchy, folderPath );
 
         return compileObjectType( context, object, filterCollection, includeAllowableActions, includeACL, userReadOnly,
             objectInfos, folderPath );
     }
 
+    /**
+     * Resolves a path with one index lookup per segment. Each segment but the
+     * last one must be a space. For the last one, a space wins over a document
+     * having the same title.
+     * @param context The call context
+     * @param hierarchy The space hierarchy snapshot
+     * @param strPath The path
+     * @return The object
+     */
+    private static RepositoryObject resolvePath( CallContext context, SpaceHierarchy hierarchy, String strPath )
+    {
+        String[] segments = strPath.split( "/" );
+        int nSpaceId = ROOT_SPACE;
+        int nLast = segments.length - 1;
+
+        // ignore trailing slashes
+        while ( ( nLast >= 0 ) && ( segments[nLast].length(  ) == 0 ) )
+        {
+            nLast--;
+        }
+
+        for ( int i = 0; i <= nLast; i++ )
+        {
+            String strSegment = segments[i];
+
+            if ( strSegment.length(  ) == 0 )
+            {
+                continue;
+            }
+
+            int nChildId = hierarchy.getChildId( nSpaceId, strSegment );
+
+            if ( hierarchy.contains( nChildId ) )
+            {
+                nSpaceId = nChildId;
+            }
+            else
+            {
+                int nDocumentId = ( i == nLast )
+                    ? DocumentNameIndexService.getInstance(  ).getDocumentId( nSpaceId, strSegment )
+                    : DocumentNameIndexService.NOT_FOUND;
+
+                if ( nDocumentId == DocumentNameIndexService.NOT_FOUND )
+                {
+                    throw new CmisObjectNotFoundException( "Path not found : " + strPath );
+                }
+
+                return checkVisible( hierarchy, RequestObjectMap.load( context, PREFIX_DOC + nDocumentId ) );
+            }
+        }
+
+        if ( !hierarchy.contains( nSpaceId ) )
+        {
+            return checkVisible( hierarchy, RequestObjectMap.load( context, ROOT_SPACE_ID ) );
+        }
+
+        return RepositoryObject.fromHierarchy( hierarchy, nSpaceId );
+    }
+
     /**
      * CMIS getContentStream.
      *
@@ -419,34 +805,54 @@ public class DocumentRepository extends BaseRepository
      */
     public ContentStream getContentStream( CallContext context, String objectId, BigInteger offset, BigInteger length )
     {
-        if ( ( offset != null ) || ( length != null ) )
+        RepositoryObject object = loadObject( context, SpacePermissionService.getInstance(  ).getHierarchy( context ),
+                objectId );
+
+        if ( !object.isDocument(  ) )
         {
-            throw new CmisInvalidArgumentException( "Offset and Length are not supported!" );
+            throw new CmisStreamNotSupportedException( "Document not found" );
         }
 
-        RepositoryObject object = new RepositoryObject( objectId );
-
-        Document document = object.getDocument(  );
+        // a HEAD request is answered from the cached length, without reading the content. A GET request
+        // caches the length of the content it sends : both get their length from the same cache
+        boolean bHead = HttpUtils.isHeadRequest( context );
+        ContentLengthService lengths = ContentLengthService.getInstance(  );
+        String xml = null;
+        long lContentLength;
 
-        if ( document == null )
+        if ( bHead )
         {
-            throw new CmisStreamNotSupportedException( "Document not found" );
+            lContentLength = lengths.getContentLength( object.getNumericId(  ), object.getDateModification(  ) );
+        }
+        else
+        {
+            // the content is read as a whole (Lutece DAOUtil frees the connection before the response is
+            // written), then encoded while it is sent : its exact length is computed without encoding it
+            xml = CmisDocumentHome.findServedContent( object.getNumericId(  ) );
+
+            if ( xml == null )
+            {
+                xml = "";
+            }
+
+            lContentLength = lengths.putServedContentLength( object.getNumericId(  ), object.getDateModification(  ),
+                    xml );
         }
 
-        String xml = document.getXmlValidatedContent(  );
+        // a range is served by skipping the bytes before the offset. A suffix range asks for the last bytes
+        PartialContentStream result = PartialContentStream.forRange( offset, length,
+                HttpUtils.getSuffixLength( context ), lContentLength );
+        result.setFileName( object.getName(  ) );
+        result.setMimeType( MIME_TYPE_CONTENT );
 
-        if ( xml == null )
+        if ( bHead || !result.isSatisfiable(  ) )
         {
-            xml = document.getXmlWorkingContent(  );
+            result.setStream( new ByteArrayInputStream( new byte[0] ) );
+
+            return result;
         }
 
-        byte[] bytes = xml.getBytes(  );
-        InputStream stream = new ByteArrayInputStream( bytes );
-        ContentStreamImpl result = new ContentStreamImpl(  );
-        result.setFileName( document.getTitle(  ) );
-        result.setLength( BigInteger.valueOf( bytes.length ) );
-        result.setMimeType( "application/xml" );
-        result.setStream( stream );
+        result.setStream( new Utf8InputStream( xml, result.getOffset(  ).longValue(  ), result.getLength(  ) ) );
 
         return result;
     }
@@ -469,63 +875,272 @@ public class DocumentRepository extends BaseRepository
         String filter, Boolean includeAllowableActions, Boolean includePathSegment, ObjectInfoHandler objectInfos,
         boolean userReadOnly )
     {
-        RepositoryObject object = new RepositoryObject( folderId );
-        String folderPath = "/" + object.getName(  );
+        return getDescendants( context, folderId, depth, filter, includeAllowableActions, includePathSegment,
+            objectInfos, userReadOnly, false );
+    }
 
-        // check depth
-        int d = ( ( depth == null ) ? 2 : depth.intValue(  ) );
+    /**
+     * Get Folder tree
+     *
+     * @param context The context
+     * @param folderId The folder's ID
+     * @param depth the depth
+     * @param filter Filters
+     * @param includeAllowableActions include actions
+     * @param includePathSegment include path segment
+     * @param objectInfos Objects infos
+     * @param userReadOnly user Read Only
+     * @return The folder tree
+     */
+    public List<ObjectInFolderContainer> getFolderTree( CallContext context, String folderId, BigInteger depth,
+        String filter, Boolean includeAllowableActions, Boolean includePathSegment, ObjectInfoHandler objectInfos,
+        boolean userReadOnly )
+    {
+        return getDescendants( context, folderId, depth, filter, includeAllowableActions, includePathSegment,
+            objectInfos, userReadOnly, true );
+    }
 
-        if ( d == 0 )
+    /**
+     * Get the parent folder of a folder
+     *
+     * @param context The context
+     * @param folderId The folder's ID
+     * @param filter Filters
+     * @param objectInfos Objects infos
+     * @return The parent folder
+     */
+    public ObjectData getFolderParent( CallContext context, String folderId, String filter,
+        ObjectInfoHandler objectInfos )
+    {
+        SpaceHierarchy hierarchy = SpacePermissionService.getInstance(  ).getHierarchy( context );
+        RepositoryObject object = loadObject( context, hierarchy, folderId );
+
+        if ( !object.isSpace(  ) )
         {
-            throw new CmisInvalidArgumentException( "Depth must not be 0!" );
+            throw new CmisInvalidArgumentException( "Object is not a folder!" );
         }
 
-        if ( d < -1 )
+        int nParentId = hierarchy.getParentId( object.getNumericId(  ) );
+
+        if ( !hierarchy.contains( nParentId ) )
         {
-            d = -1;
+            throw new CmisInvalidArgumentException( "The root folder has no parent!" );
         }
 
-        // split filter
-        Set<String> filterCollection = splitFilter( filter );
+        RepositoryObject parent = RepositoryObject.fromHierarchy( hierarchy, nParentId );
 
-        boolean foldersOnly = true;
-        List<ObjectInFolderContainer> result = new ArrayList<ObjectInFolderContainer>(  );
+        return compileObjectType( context, parent, splitFilter( filter ), false, false, true, objectInfos, "/" );
+    }
 
-        // set defaults if values not set
-        boolean iaa = ( ( includeAllowableActions == null ) ? false : includeAllowableActions.booleanValue(  ) );
-        boolean ips = ( ( includePathSegment == null ) ? false : includePathSegment.booleanValue(  ) );
+    /**
+     * Get the parents of an object
+     *
+     * @param context The context
+     * @param objectId The object's ID
+     * @param filter Filters
+     * @param includeRelativePathSegment include relative path segment
+     * @param objectInfos Objects infos
+     * @return The parents (empty for the root folder)
+     */
+    public List<ObjectParentData> getObjectParents( CallContext context, String objectId, String filter,
+        Boolean includeRelativePathSegment, ObjectInfoHandler objectInfos )
+    {
+        SpaceHierarchy hierarchy = SpacePermissionService.getInstance(  ).getHierarchy( context );
+        RepositoryObject object = loadObject( context, hierarchy, objectId );
+        List<ObjectParentData> result = new ArrayList<ObjectParentData>(  );
 
         if ( context.isObjectInfoRequired(  ) )
         {
-            compileObjectType( context, object, null, false, false, userReadOnly, objectInfos, folderPath );
+            compileObjectType( context, object, null, false, false, true, objectInfos, "/" );
         }
 
-        AppLogService.debug( "object=" + object );
+        int nParentId = object.isDocument(  ) ? object.getParentId(  )
+                                                : hierarchy.getParentId( object.getNumericId(  ) );
 
-        gatherDescendants( context, object, result, foldersOnly, d, filterCollection, iaa, ips, userReadOnly,
-            objectInfos, folderPath );
+        if ( !hierarchy.contains( nParentId ) )
+        {
+            return result;
+        }
+
+        RepositoryObject parent = RepositoryObject.fromHierarchy( hierarchy, nParentId );
+        ObjectParentDataImpl parentData = new ObjectParentDataImpl(  );
+        parentData.setObject( compileObjectType( context, parent, splitFilter( filter ), false, false, true,
+                objectInfos, "/" ) );
+
+        if ( ( includeRelativePathSegment != null ) && includeRelativePathSegment.booleanValue(  ) )
+        {
+            parentData.setRelativePathSegment( object.getName(  ) );
+        }
+
+        result.add( parentData );
+
+        return result;
+    }
+
+    /**
+     * Get Descendants or folder tree
+     */
+    private List<ObjectInFolderContainer> getDescendants( CallContext context, String folderId, BigInteger depth,
+        String filter, Boolean includeAllowableActions, Boolean includePathSegment, ObjectInfoHandler objectInfos,
+        boolean userReadOnly, boolean foldersOnly )
+    {
+        SpaceHierarchy hierarchy = SpacePermissionService.getInstance(  ).getHierarchy( context );
+        RepositoryObject object = loadObject( context, hierarchy, folderId );
+
+        if ( !object.isSpace(  ) )
+        {
+            throw new CmisInvalidArgumentException( "Object is not a folder!" );
+        }
+
+        String folderPath = "/" + object.getName(  );
+
+        // check depth
+        int d = ( ( depth == null ) ? 2 : depth.intValue(  ) );
+
+        if ( d == 0 )
+        {
+            throw new CmisInvalidArgumentException( "Depth must not be 0!" );
+        }
+
+        if ( d < -1 )
+        {
+            d = -1;
+        }
+
+        // split filter
+        Set<String> filterCollection = splitFilter( filter );
+
+        // set defaults if values not set
+        boolean iaa = ( ( includeAllowableActions == null ) ? false : includeAllowableActions.booleanValue(  ) );
+        boolean ips = ( ( includePathSegment == null ) ? false : includePathSegment.booleanValue(  ) );
+
+        if ( context.isObjectInfoRequired(  ) )
+        {
+            compileObjectType( context, object, null, false, false, userReadOnly, objectInfos, folderPath );
+        }
+
+        AppLogService.debug( "object=" + object );
+
+        // a streamed response can't be rejected once started, so it is always truncated. The AtomPub
+        // binding needs the object info of every entry, so its tree is always built first
+        boolean bStreaming = !context.isObjectInfoRequired(  ) &&
+            AppPropertiesService.getPropertyBoolean( PROPERTY_DESCENDANTS_STREAMING, false );
+        DescendantsBudget budget = new DescendantsBudget( AppPropertiesService.getPropertyInt(
+                    PROPERTY_DESCENDANTS_MAX_NODES, 0 ),
+                bStreaming || AppPropertiesService.getPropertyBoolean( PROPERTY_DESCENDANTS_TRUNCATE, false ),
+                ParallelCompilationService.getInstance(  ).getDescendantsParallelism(  ) - 1 );
+
+        if ( bStreaming )
+        {
+            List<CmisDocument> listDocuments = null;
+
+            if ( !foldersOnly )
+            {
+                listDocuments = loadDocumentChildren( Collections.singletonList( object ), filterCollection, iaa )
+                                    .get( object.getNumericId(  ) );
+            }
+
+            return new DescendantsLevel( context, hierarchy, object, null, listDocuments, foldersOnly, d,
+                filterCollection, iaa, ips, userReadOnly, objectInfos, folderPath, budget );
+        }
+
+        List<ObjectInFolderContainer> result = new ArrayList<ObjectInFolderContainer>(  );
+        gatherDescendants( context, hierarchy,
+            Collections.singletonList( new DescendantsNode( object, null, result, folderPath ) ), foldersOnly, d,
+            filterCollection, iaa, ips, userReadOnly, objectInfos, budget );
 
         return result;
     }
 
-    private ObjectData compileObjectType( CallContext context, RepositoryObject object, Set<String> filter,
+    /**
+     * Load an object. Spaces known by the hierarchy snapshot are built without any database access.
+     * @param context The call context
+     * @param hierarchy The space hierarchy snapshot
+     * @param objectId The object's ID
+     * @return The object
+     */
+    private static RepositoryObject loadObject( CallContext context, SpaceHierarchy hierarchy, String objectId )
+    {
+        if ( objectId.equalsIgnoreCase( ROOT_ID ) )
+        {
+            objectId = ROOT_SPACE_ID;
+        }
+
+        long lObjectId = ObjectIdCodec.decode( objectId );
+
+        if ( ( lObjectId != ObjectIdCodec.INVALID ) &&
+                ( ObjectIdCodec.getType( lObjectId ) == ObjectIdCodec.TYPE_SPACE ) &&
+                hierarchy.contains( ObjectIdCodec.getId( lObjectId ) ) )
+        {
+            return RepositoryObject.fromHierarchy( hierarchy, ObjectIdCodec.getId( lObjectId ) );
+        }
+
+        return checkVisible( hierarchy, RequestObjectMap.load( context, objectId ) );
+    }
+
+    /**
+     * Creates the object info of a compiled object. The object info is only
+     * built for the bindings that use it
+     * @param context The call context
+     * @return A new object info or null if the binding doesn't use it
+     */
+    static ObjectInfoImpl newObjectInfo( CallContext context )
+    {
+        return context.isObjectInfoRequired(  ) ? new ObjectInfoImpl(  ) : null;
+    }
+
+    /**
+     * Checks that an object loaded from the database is visible by the user
+     * @param hierarchy The space hierarchy snapshot seen by the user
+     * @param object The object
+     * @return The object
+     * @throws CmisPermissionDeniedException if the object is in a hidden space
+     */
+    private static RepositoryObject checkVisible( SpaceHierarchy hierarchy, RepositoryObject object )
+    {
+        if ( hierarchy.isHidden( object.isDocument(  ) ? object.getParentId(  ) : object.getNumericId(  ) ) )
+        {
+            throw new CmisPermissionDeniedException( "Permission denied : " + object.getId(  ) );
+        }
+
+        return object;
+    }
+
+    /**
+     * Compiles an object : its properties, its allowable actions and, for the
+     * bindings that use it, its object info
+     * @param context The call context
+     * @param object The object
+     * @param filter The requested properties (null for all)
+     * @param includeAllowableActions true to add the allowable actions
+     * @param includeAcl true to add the ACL
+     * @param userReadOnly true if the user can only read
+     * @param objectInfos The handler receiving the object info
+     * @param folderPath The folder path
+     * @return The object data
+     */
+    ObjectData compileObjectType( CallContext context, RepositoryObject object, Set<String> filter,
         boolean includeAllowableActions, boolean includeAcl, boolean userReadOnly, ObjectInfoHandler objectInfos,
         String folderPath )
     {
         ObjectDataImpl result = new ObjectDataImpl(  );
-        ObjectInfoImpl objectInfo = new ObjectInfoImpl(  );
+
+        ObjectInfoImpl objectInfo = newObjectInfo( context );
 
         result.setProperties( compileProperties( object, filter, objectInfo, folderPath ) );
 
+        // the actions are shared by all the objects of the same state, never built per object
+        if ( includeAllowableActions )
+        {
+            result.setAllowableActions( AllowableActionsCache.getAllowableActions( object,
+                    object.isSpace(  ) && ( object.getNumericId(  ) == ROOT_SPACE ) ) );
+        }
+
         /*
-         * if (includeAllowableActions) {
-         * result.setAllowableActions(compileAllowableActions( document,
-         * userReadOnly)); }
-         *
          * if (includeAcl) { result.setAcl(compileAcl(file));
          * result.setIsExactAcl(true); }
          */
-        if ( context.isObjectInfoRequired(  ) )
+        if ( objectInfo != null )
         {
             objectInfo.setObject( result );
             objectInfos.addObjectInfo( objectInfo );
@@ -534,17 +1149,23 @@ public class DocumentRepository extends BaseRepository
         return result;
     }
 
+    /**
+     * Compiles the properties of an object. The properties that are not in the
+     * filter are neither added nor computed
+     * @param object The object
+     * @param filter The requested properties (null for all)
+     * @param objectInfo The object info or null if the binding doesn't use it
+     * @param folderPath The folder path
+     * @return The properties
+     */
     private org.apache.chemistry.opencmis.commons.data.Properties compileProperties( RepositoryObject object,
-        Set<String> orgfilter, ObjectInfoImpl objectInfo, String folderPath )
+        Set<String> filter, ObjectInfoImpl objectInfo, String folderPath )
     {
         if ( object == null )
         {
             throw new IllegalArgumentException( "Document must not be null!" );
         }
 
-        // copy filter
-        Set<String> filter = ( ( orgfilter == null ) ? null : new HashSet<String>( orgfilter ) );
-
         // find base type
         String typeId = null;
 
@@ -555,76 +1176,79 @@ public class DocumentRepository extends BaseRepository
             String id = object.getId(  );
             String name = object.getName(  );
 
-            objectInfo.setId( id );
-            objectInfo.setName( name );
-            objectInfo.setCreatedBy( CREATED_BY );
-            objectInfo.setHasAcl( false );
-            objectInfo.setHasParent( true );
-            objectInfo.setVersionSeriesId( null );
-            objectInfo.setIsCurrentVersion( true );
-            objectInfo.setRelationshipSourceIds( null );
-            objectInfo.setRelationshipTargetIds( null );
-            objectInfo.setRenditionInfos( null );
-            objectInfo.setSupportsPolicies( false );
-            objectInfo.setSupportsRelationships( false );
-            objectInfo.setWorkingCopyId( null );
-            objectInfo.setWorkingCopyOriginalId( null );
+            TypeManager types = DocumentTypeService.getInstance(  ).getTypes(  );
+            String objectTypeId = object.isDocument(  )
+                ? types.getDocumentTypeId( object.getCodeDocumentType(  ) ) : TypeManager.FOLDER_TYPE_ID;
+
+            if ( objectInfo != null )
+            {
+                compileObjectInfo( object, objectTypeId, objectInfo );
+            }
 
             addPropertyId( result, typeId, filter, PropertyIds.OBJECT_ID, id );
             addPropertyString( result, typeId, filter, PropertyIds.NAME, name );
-            addPropertyString( result, typeId, filter, PropertyIds.CREATED_BY, CREATED_BY );
-            addPropertyString( result, typeId, filter, PropertyIds.LAST_MODIFIED_BY, CREATED_BY );
-            addPropertyString( result, typeId, filter, PropertyIds.PATH, folderPath );
-            addPropertyString( result, typeId, filter, PropertyIds.CHANGE_TOKEN, null );
+            addProperty( result, typeId, filter, PROPERTY_CREATED_BY );
+            addProperty( result, typeId, filter, PROPERTY_LAST_MODIFIED_BY );
+
+            if ( isRequested( filter, PropertyIds.PATH ) )
+            {
+                // the path of a space is computed from the hierarchy so that getObjectByPath can resolve it
+                String path = object.isSpace(  )
+                    ? SpaceHierarchyService.getInstance(  ).getHierarchy(  ).getPath( object.getNumericId(  ) )
+                    : folderPath;
+                addPropertyString( result, typeId, filter, PropertyIds.PATH, path );
+            }
+
+            addProperty( result, typeId, filter, PROPERTY_CHANGE_TOKEN );
 
             if ( object.isDocument(  ) )
             {
-                Document doc = object.getDocument(  );
                 typeId = TypeManager.DOCUMENT_TYPE_ID;
 
-                GregorianCalendar created = millisToCalendar( object.getDocument(  ).getDateCreation(  ).getTime(  ) );
-                GregorianCalendar lastModified = millisToCalendar( object.getDocument(  ).getDateModification(  )
-                                                                         .getTime(  ) );
-
-                objectInfo.setBaseType( BaseTypeId.CMIS_DOCUMENT );
-                objectInfo.setTypeId( typeId );
-                objectInfo.setSupportsDescendants( false );
-                objectInfo.setSupportsFolderTree( false );
-                objectInfo.setHasContent( true );
-                objectInfo.setContentType( MIME_TYPE_XML );
-                objectInfo.setFileName( doc.getTitle(  ) );
-                objectInfo.setCreationDate( created );
-                objectInfo.setLastModificationDate( lastModified );
-
-                addPropertyId( result, typeId, filter, PropertyIds.BASE_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value(  ) );
-                addPropertyId( result, typeId, filter, PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value(  ) );
-                addPropertyDateTime( result, typeId, filter, PropertyIds.CREATION_DATE, created );
-                addPropertyDateTime( result, typeId, filter, PropertyIds.LAST_MODIFICATION_DATE, lastModified );
-                addPropertyId( result, typeId, filter, PropertyIds.CONTENT_STREAM_MIME_TYPE, MIME_TYPE_XML );
-                addPropertyId( result, typeId, filter, PropertyIds.CONTENT_STREAM_ID, object.getId(  ) );
-                addPropertyId( result, typeId, filter, PropertyIds.CONTENT_STREAM_LENGTH,
-                    "" + doc.getXmlWorkingContent(  ).length(  ) );
+                addProperty( result, typeId, filter, PROPERTY_DOCUMENT_BASE_TYPE_ID );
+
+                if ( objectTypeId.equals( TypeManager.DOCUMENT_TYPE_ID ) )
+                {
+                    addProperty( result, typeId, filter, PROPERTY_DOCUMENT_OBJECT_TYPE_ID );
+                }
+                else
+                {
+                    addPropertyId( result, typeId, filter, PropertyIds.OBJECT_TYPE_ID, objectTypeId );
+                }
+
+                // the dates are only converted if they are requested
+                if ( isRequested( filter, PropertyIds.CREATION_DATE ) )
+                {
+                    addPropertyDateTime( result, typeId, filter, PropertyIds.CREATION_DATE,
+                        millisToCalendar( object.getDateCreation(  ) ) );
+                }
+
+                if ( isRequested( filter, PropertyIds.LAST_MODIFICATION_DATE ) )
+                {
+                    addPropertyDateTime( result, typeId, filter, PropertyIds.LAST_MODIFICATION_DATE,
+                        millisToCalendar( object.getDateModification(  ) ) );
+                }
+
+                addProperty( result, typeId, filter, PROPERTY_CONTENT_STREAM_MIME_TYPE );
+                addPropertyId( result, typeId, filter, PropertyIds.CONTENT_STREAM_ID, id );
+
+                if ( isRequested( filter, PropertyIds.CONTENT_STREAM_LENGTH ) )
+                {
+                    addPropertyInteger( result, typeId, filter, PropertyIds.CONTENT_STREAM_LENGTH,
+                        object.getContentLength(  ) );
+                }
+
+                // the attributes of the document type, so that the clients don't have to read the content
+                for ( PropertyDefinition<?> propDef : types.getAttributeDefinitions( objectTypeId ) )
+                {
+                    addAttributeProperty( result, objectTypeId, filter, propDef, object );
+                }
             }
             else if ( object.isSpace(  ) )
             {
                 typeId = TypeManager.FOLDER_TYPE_ID;
-                objectInfo.setBaseType( BaseTypeId.CMIS_FOLDER );
-                objectInfo.setTypeId( typeId );
-                objectInfo.setSupportsDescendants( true );
-                objectInfo.setSupportsFolderTree( true );
-                objectInfo.setHasContent( false );
-                addPropertyId( result, typeId, filter, PropertyIds.BASE_TYPE_ID, BaseTypeId.CMIS_FOLDER.value(  ) );
-                addPropertyId( result, typeId, filter, PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_FOLDER.value(  ) );
-            }
-
-            // read custom properties
-            // readCustomProperties(file, result, filter, objectInfo);
-            if ( filter != null )
-            {
-                if ( !filter.isEmpty(  ) )
-                {
-                    // debug("Unknown filter properties: " + filter.toString(), null);
-                }
+                addProperty( result, typeId, filter, PROPERTY_FOLDER_BASE_TYPE_ID );
+                addProperty( result, typeId, filter, PROPERTY_FOLDER_OBJECT_TYPE_ID );
             }
 
             return result;
@@ -640,6 +1264,105 @@ public class DocumentRepository extends BaseRepository
         }
     }
 
+    /**
+     * Adds the property of a document attribute. The values that can't be
+     * converted to the type of the property are left out
+     * @param props The properties
+     * @param typeId The type id
+     * @param filter The filter
+     * @param propDef The definition of the property
+     * @param object The document, whose attributes are read only if the property is requested
+     */
+    private void addAttributeProperty( PropertiesImpl props, String typeId, Set<String> filter,
+        PropertyDefinition<?> propDef, RepositoryObject object )
+    {
+        if ( !checkAddProperty( props, typeId, filter, propDef.getId(  ) ) )
+        {
+            return;
+        }
+
+        String value = object.getAttributeValues(  ).get( propDef.getLocalName(  ) );
+
+        if ( value == null )
+        {
+            return;
+        }
+
+        switch ( propDef.getPropertyType(  ) )
+        {
+            case HTML:
+                props.addProperty( new PropertyHtmlImpl( propDef.getId(  ), value ) );
+
+                break;
+
+            case URI:
+                props.addProperty( new PropertyUriImpl( propDef.getId(  ), value ) );
+
+                break;
+
+            case INTEGER:
+
+                try
+                {
+                    props.addProperty( new PropertyIntegerImpl( propDef.getId(  ), new BigInteger( value.trim(  ) ) ) );
+                }
+                catch ( NumberFormatException e )
+                {
+                    AppLogService.debug( "Attribute " + propDef.getId(  ) + " is not an integer : " + value );
+                }
+
+                break;
+
+            default:
+                props.addProperty( new PropertyStringImpl( propDef.getId(  ), value ) );
+        }
+    }
+
+    /**
+     * Fills the object info used by the AtomPub binding
+     * @param object The object
+     * @param objectTypeId The type id of the object
+     * @param objectInfo The object info
+     */
+    private static void compileObjectInfo( RepositoryObject object, String objectTypeId, ObjectInfoImpl objectInfo )
+    {
+        objectInfo.setId( object.getId(  ) );
+        objectInfo.setName( object.getName(  ) );
+        objectInfo.setCreatedBy( CREATED_BY );
+        objectInfo.setHasAcl( false );
+        objectInfo.setHasParent( true );
+        objectInfo.setVersionSeriesId( null );
+        objectInfo.setIsCurrentVersion( true );
+        objectInfo.setRelationshipSourceIds( null );
+        objectInfo.setRelationshipTargetIds( null );
+        objectInfo.setRenditionInfos( null );
+        objectInfo.setSupportsPolicies( false );
+        objectInfo.setSupportsRelationships( false );
+        objectInfo.setWorkingCopyId( null );
+        objectInfo.setWorkingCopyOriginalId( null );
+
+        if ( object.isDocument(  ) )
+        {
+            objectInfo.setBaseType( BaseTypeId.CMIS_DOCUMENT );
+            objectInfo.setTypeId( objectTypeId );
+            objectInfo.setSupportsDescendants( false );
+            objectInfo.setSupportsFolderTree( false );
+            objectInfo.setHasContent( true );
+            objectInfo.setContentType( MIME_TYPE_XML );
+            objectInfo.setFileName( object.getName(  ) );
+            objectInfo.setCreationDate( millisToCalendar( object.getDateCreation(  ) ) );
+            objectInfo.setLastModificationDate( millisToCalendar( object.getDateModification(  ) ) );
+        }
+        else if ( object.isSpace(  ) )
+        {
+            objectInfo.setBaseType( BaseTypeId.CMIS_FOLDER );
+            objectInfo.setTypeId( objectTypeId );
+            objectInfo.setSupportsDescendants( true );
+            objectInfo.setSupportsFolderTree( true );
+            objectInfo.setHasContent( false );
+        }
+    }
+
     /**
      * Splits a filter statement into a collection of properties. If
      * <code>filter</code> is
@@ -683,80 +1406,532 @@ public class DocumentRepository extends BaseRepository
         return result;
     }
 
-    private void gatherDescendants( CallContext context, RepositoryObject object, List<ObjectInFolderContainer> list,
+    /**
+     * Walks the descendants of a list of spaces level by level. The documents
+     * of all the spaces of a level are loaded with batched queries instead of
+     * one query per space.
+     * @param listRoots The spaces whose descendants are gathered
+     * @param depth The depth below the roots
+     */
+    private void gatherDescendants( CallContext context, SpaceHierarchy hierarchy, List<DescendantsNode> listRoots,
         boolean foldersOnly, int depth, Set<String> filter, boolean includeAllowableActions,
-        boolean includePathSegments, boolean userReadOnly, ObjectInfoHandler objectInfos, String folderPath )
+        boolean includePathSegments, boolean userReadOnly, ObjectInfoHandler objectInfos, DescendantsBudget budget )
     {
-        // iterate through children
-        if ( object.getSpaceChildren(  ) == null )
+        List<DescendantsNode> listLevel = listRoots;
+        int nDepth = depth;
+
+        while ( !listLevel.isEmpty(  ) )
         {
-            AppLogService.debug( "No childs " );
+            Map<Integer, List<CmisDocument>> mapDocuments = null;
 
-            return;
+            if ( !foldersOnly )
+            {
+                List<RepositoryObject> listSpaces = new ArrayList<RepositoryObject>( listLevel.size(  ) );
+
+                for ( DescendantsNode node : listLevel )
+                {
+                    listSpaces.add( node.getObject(  ) );
+                }
+
+                mapDocuments = loadDocumentChildren( listSpaces, filter, includeAllowableActions );
+            }
+
+            List<DescendantsNode> listNext = new ArrayList<DescendantsNode>(  );
+
+            for ( DescendantsNode node : listLevel )
+            {
+                List<RepositoryObject> listSpaces = new ArrayList<RepositoryObject>(  );
+                List<ObjectInFolderData> listEntries = compileLevel( context, hierarchy, node.getObject(  ),
+                        node.getEntry(  ), listSpaces,
+                        ( mapDocuments == null ) ? null : mapDocuments.get( node.getObject(  ).getNumericId(  ) ),
+                        filter, includeAllowableActions, includePathSegments, userReadOnly, objectInfos,
+                        node.getFolderPath(  ), budget );
+
+                for ( int i = 0; i < listEntries.size(  ); i++ )
+                {
+                    ObjectInFolderContainerImpl container = new ObjectInFolderContainerImpl(  );
+                    container.setObject( listEntries.get( i ) );
+                    node.getChildren(  ).add( container );
+
+                    // move to next level : the spaces come first, documents have no children
+                    if ( ( nDepth != 1 ) && ( i < listSpaces.size(  ) ) )
+                    {
+                        container.setChildren( new ArrayList<ObjectInFolderContainer>(  ) );
+                        listNext.add( new DescendantsNode( listSpaces.get( i ), listEntries.get( i ),
+                                container.getChildren(  ), node.getFolderPath(  ) ) );
+                    }
+                }
+            }
+
+            if ( ( nDepth == 1 ) ||
+                    gatherSubtreesInParallel( context, hierarchy, listNext, foldersOnly, nDepth - 1, filter,
+                        includeAllowableActions, includePathSegments, userReadOnly, objectInfos, budget ) )
+            {
+                return;
+            }
+
+            listLevel = listNext;
+            nDepth--;
         }
+    }
 
-        folderPath = folderPath + "/" + object.getName(  );
+    /**
+     * Loads the documents of a list of spaces, and the content lengths and the
+     * attributes that the request needs, with batched queries
+     * @param listSpaces The spaces
+     * @param filter The filter of the request
+     * @param includeAllowableActions true if the allowable actions are requested
+     * @return The documents of each space by space id
+     */
+    private static Map<Integer, List<CmisDocument>> loadDocumentChildren( List<RepositoryObject> listSpaces,
+        Set<String> filter, boolean includeAllowableActions )
+    {
+        Map<Integer, List<CmisDocument>> mapDocuments = RepositoryObject.getDocumentChildren( listSpaces );
+        List<CmisDocument> listDocuments = new ArrayList<CmisDocument>(  );
 
-        for ( DocumentSpace space : object.getSpaceChildren(  ) )
+        for ( List<CmisDocument> listSpaceDocuments : mapDocuments.values(  ) )
         {
-            AppLogService.debug( "child space " + space.getName(  ) );
+            listDocuments.addAll( listSpaceDocuments );
+        }
 
-            // add to list
-            ObjectInFolderDataImpl objectInFolder = new ObjectInFolderDataImpl(  );
-            RepositoryObject child = new RepositoryObject( PREFIX_SPACE + space.getId(  ) );
-            objectInFolder.setObject( compileObjectType( context, child, filter, includeAllowableActions, false,
-                    userReadOnly, objectInfos, folderPath ) );
+        loadDocumentData( listDocuments, filter, includeAllowableActions );
+
+        return mapDocuments;
+    }
 
-            if ( includePathSegments )
+    /**
+     * Loads with batched queries the content lengths and the attributes of
+     * documents, only if the request needs them. The data left out is loaded
+     * by the repository object if it is read anyway
+     * @param listDocuments The documents
+     * @param filter The filter of the request
+     * @param includeAllowableActions true if the allowable actions are requested
+     */
+    private static void loadDocumentData( List<CmisDocument> listDocuments, Set<String> filter,
+        boolean includeAllowableActions )
+    {
+        // the allowable actions depend on the presence of a content
+        if ( includeAllowableActions || isRequested( filter, PropertyIds.CONTENT_STREAM_LENGTH ) )
+        {
+            ContentLengthService.getInstance(  ).loadContentLengths( listDocuments );
+        }
+
+        if ( isAttributeRequested( filter ) )
+        {
+            DocumentTypeService.getInstance(  ).loadAttributeValues( listDocuments );
+        }
+    }
+
+    /**
+     * Returns true if a filter requests at least one document attribute property
+     * @param filter the Filter (null for all the properties)
+     * @return true if an attribute is requested
+     */
+    private static boolean isAttributeRequested( Set<String> filter )
+    {
+        if ( filter == null )
+        {
+            return true;
+        }
+
+        for ( String id : filter )
+        {
+            if ( TypeManager.isAttributePropertyId( id ) )
             {
-                objectInFolder.setPathSegment( space.getName(  ) );
+                return true;
             }
+        }
 
-            ObjectInFolderContainerImpl container = new ObjectInFolderContainerImpl(  );
-            container.setObject( objectInFolder );
+        return false;
+    }
 
-            list.add( container );
+    /**
+     * Compiles the children of a folder, as many as the node budget allows :
+     * its child spaces first, then its documents. When some children are cut,
+     * the parent entry (or the last entry of the first level) is marked as
+     * truncated.
+     * @param listSpaces Filled with the kept child spaces
+     * @param listDocuments The documents of the folder, or null for the spaces only
+     * @return The entries of the kept child spaces followed by the entries of the kept documents
+     */
+    private List<ObjectInFolderData> compileLevel( CallContext context, SpaceHierarchy hierarchy,
+        RepositoryObject object, ObjectInFolderData parentEntry, List<RepositoryObject> listSpaces,
+        List<CmisDocument> listDocuments, Set<String> filter, boolean includeAllowableActions,
+        boolean includePathSegments, boolean userReadOnly, ObjectInfoHandler objectInfos, String folderPath,
+        DescendantsBudget budget )
+    {
+        // the child spaces come from the hierarchy snapshot
+        int[] spaceIds = hierarchy.getChildIds( object.getNumericId(  ) );
+        int nDocuments = ( listDocuments == null ) ? 0 : listDocuments.size(  );
+        int nCount = spaceIds.length + nDocuments;
+        int nKept = budget.take( object.getNumericId(  ), nCount );
+        List<RepositoryObject> listChildren = new ArrayList<RepositoryObject>( nKept );
+
+        for ( int i = 0; i < nKept; i++ )
+        {
+            if ( i < spaceIds.length )
+            {
+                RepositoryObject space = RepositoryObject.fromHierarchy( hierarchy, spaceIds[i] );
+                listSpaces.add( space );
+                listChildren.add( space );
+            }
+            else
+            {
+                listChildren.add( new RepositoryObject( listDocuments.get( i - spaceIds.length ) ) );
+            }
+        }
 
-            // move to next level
-            if ( ( depth != 1 ) )
+        List<ObjectInFolderData> listEntries = compileChildren( context, listChildren, filter,
+                includeAllowableActions, false, includePathSegments, userReadOnly, objectInfos, folderPath );
+
+        if ( nKept < nCount )
+        {
+            if ( parentEntry != null )
             {
-                container.setChildren( new ArrayList<ObjectInFolderContainer>(  ) );
-                gatherDescendants( context, child, container.getChildren(  ), foldersOnly, depth - 1, filter,
-                    includeAllowableActions, includePathSegments, userReadOnly, objectInfos, folderPath );
+                markTruncated( parentEntry );
+            }
+            else if ( !listEntries.isEmpty(  ) )
+            {
+                markTruncated( listEntries.get( listEntries.size(  ) - 1 ) );
             }
         }
 
-        // folders only?
-        if ( !foldersOnly )
+        return listEntries;
+    }
+
+    /**
+     * Adds the truncation marker to the extensions of an entry, unless it is
+     * already marked by a previous compilation of its level
+     */
+    private static void markTruncated( ObjectInFolderData entry )
+    {
+        ObjectData object = entry.getObject(  );
+        List<CmisExtensionElement> listExtensions = new ArrayList<CmisExtensionElement>(  );
+
+        if ( object.getExtensions(  ) != null )
         {
-            for ( Document doc : object.getDocumentChildren(  ) )
+            if ( object.getExtensions(  ).contains( EXTENSION_ELEMENT_TRUNCATED ) )
             {
-                AppLogService.debug( "document " + doc.getTitle(  ) );
+                return;
+            }
 
-                // add to list
-                ObjectInFolderDataImpl objectInFolder = new ObjectInFolderDataImpl(  );
-                RepositoryObject child = new RepositoryObject( PREFIX_DOC + doc.getId(  ) );
-                objectInFolder.setObject( compileObjectType( context, child, filter, includeAllowableActions, false,
-                        userReadOnly, objectInfos, folderPath ) );
+            listExtensions.addAll( object.getExtensions(  ) );
+        }
 
-                if ( includePathSegments )
+        listExtensions.add( EXTENSION_ELEMENT_TRUNCATED );
+        object.setExtensions( listExtensions );
+    }
+
+    /**
+     * Walks the subtrees of the spaces of a level in parallel. The subtrees
+     * are shared between the current thread and the pool threads left in the
+     * budget of the request, the largest subtrees first, each group being
+     * walked by one thread. Each subtree is written into its own container, so
+     * the result doesn't depend on the scheduling.
+     * @return false if the subtrees must be walked by the current thread
+     */
+    private boolean gatherSubtreesInParallel( final CallContext context, final SpaceHierarchy hierarchy,
+        List<DescendantsNode> listNodes, final boolean foldersOnly, final int depth, final Set<String> filter,
+        final boolean includeAllowableActions, final boolean includePathSegments, final boolean userReadOnly,
+        ObjectInfoHandler objectInfos, final DescendantsBudget budget )
+    {
+        int nSize = listNodes.size(  );
+        int[] sizes = new int[nSize];
+        int nSubtrees = 0;
+
+        for ( int i = 0; i < nSize; i++ )
+        {
+            sizes[i] = hierarchy.countDescendants( listNodes.get( i ).getObject(  ).getNumericId(  ) );
+
+            if ( sizes[i] > 0 )
+            {
+                nSubtrees++;
+            }
+        }
+
+        // a single subtree is split at the next level
+        if ( nSubtrees <= 1 )
+        {
+            return false;
+        }
+
+        final int nThreads = budget.acquireThreads( nSubtrees - 1 );
+
+        if ( nThreads == 0 )
+        {
+            return false;
+        }
+
+        int nGroups = nThreads + 1;
+        int[] loads = new int[nGroups];
+        List<List<DescendantsNode>> listGroups = new ArrayList<List<DescendantsNode>>( nGroups );
+
+        for ( int i = 0; i < nGroups; i++ )
+        {
+            listGroups.add( new ArrayList<DescendantsNode>(  ) );
+        }
+
+        // largest subtrees first, each one to the least loaded group
+        Integer[] order = new Integer[nSize];
+
+        for ( int i = 0; i < nSize; i++ )
+        {
+            order[i] = i;
+        }
+
+        final int[] subtreeSizes = sizes;
+        Arrays.sort( order,
+            new Comparator<Integer>(  )
+            {
+                @Override
+                public int compare( Integer i1, Integer i2 )
+                {
+                    return subtreeSizes[i2] - subtreeSizes[i1];
+                }
+            } );
+
+        for ( Integer nIndex : order )
+        {
+            int nLightest = 0;
+
+            for ( int g = 1; g < nGroups; g++ )
+            {
+                if ( loads[g] < loads[nLightest] )
                 {
-                    objectInFolder.setPathSegment( doc.getTitle(  ) );
+                    nLightest = g;
                 }
+            }
+
+            // a space costs one node plus its subtree
+            loads[nLightest] += ( subtreeSizes[nIndex] + 1 );
+            listGroups.get( nLightest ).add( listNodes.get( nIndex ) );
+        }
 
-                ObjectInFolderContainerImpl container = new ObjectInFolderContainerImpl(  );
-                container.setObject( objectInFolder );
+        final ObjectInfoHandler handler = new SynchronizedObjectInfoHandler( objectInfos );
+        List<Runnable> listTasks = new ArrayList<Runnable>( nGroups );
 
-                list.add( container );
+        for ( int g = 0; g < nGroups; g++ )
+        {
+            final List<DescendantsNode> listGroup = listGroups.get( g );
 
-                // move to next level
-                if ( ( depth != 1 ) )
+            // the last group is walked by the current thread, the others give back their pool thread
+            final boolean bPooled = g < nThreads;
+            listTasks.add( new Runnable(  )
                 {
-                    container.setChildren( new ArrayList<ObjectInFolderContainer>(  ) );
-                    gatherDescendants( context, child, container.getChildren(  ), foldersOnly, depth - 1, filter,
-                        includeAllowableActions, includePathSegments, userReadOnly, objectInfos, folderPath );
+                    @Override
+                    public void run(  )
+                    {
+                        try
+                        {
+                            gatherDescendants( context, hierarchy, listGroup, foldersOnly, depth, filter,
+                                includeAllowableActions, includePathSegments, userReadOnly, handler, budget );
+                        }
+                        finally
+                        {
+                            if ( bPooled )
+                            {
+                                budget.releaseThread(  );
+                            }
+                        }
+                    }
+                } );
+        }
+
+        ParallelCompilationService.getInstance(  ).runAll( listTasks );
+
+        return true;
+    }
+
+    /**
+     * A space whose children are gathered : its compiled entry and the list
+     * that receives the containers of its children
+     */
+    private static final class DescendantsNode
+    {
+        private final RepositoryObject _object;
+        private final ObjectInFolderData _entry;
+        private final List<ObjectInFolderContainer> _listChildren;
+        private final String _strFolderPath;
+
+        /**
+         * Constructor
+         * @param object The space
+         * @param entry The compiled entry of the space, null for the folder of the request
+         * @param listChildren The list that receives the containers of the children
+         * @param strParentPath The folder path of the parent
+         */
+        DescendantsNode( RepositoryObject object, ObjectInFolderData entry, List<ObjectInFolderContainer> listChildren,
+            String strParentPath )
+        {
+            _object = object;
+            _entry = entry;
+            _listChildren = listChildren;
+            _strFolderPath = strParentPath + "/" + object.getName(  );
+        }
+
+        RepositoryObject getObject(  )
+        {
+            return _object;
+        }
+
+        ObjectInFolderData getEntry(  )
+        {
+            return _entry;
+        }
+
+        List<ObjectInFolderContainer> getChildren(  )
+        {
+            return _listChildren;
+        }
+
+        String getFolderPath(  )
+        {
+            return _strFolderPath;
+        }
+    }
+
+    /**
+     * One level of a streamed descendants tree. The children of the level are
+     * compiled when the level is created, but their own children are only
+     * compiled when their container is requested, so the bindings write the
+     * tree while it is walked and only the levels of the current branch are
+     * held in memory. The documents of all the child spaces of a level are
+     * loaded at once. The container of each index is kept through a soft
+     * reference : a second call of {@link #get(int)} returns the same container
+     * without compiling its level again, while the walked branches can still
+     * be reclaimed. A reclaimed level is compiled again with the node count
+     * granted to its first compilation : the budget is charged once per level.
+     */
+    private final class DescendantsLevel extends AbstractList<ObjectInFolderContainer>
+    {
+        private final CallContext _context;
+        private final SpaceHierarchy _hierarchy;
+        private final boolean _bFoldersOnly;
+        private final int _nDepth;
+        private final Set<String> _filter;
+        private final boolean _bIncludeAllowableActions;
+        private final boolean _bIncludePathSegments;
+        private final boolean _bUserReadOnly;
+        private final ObjectInfoHandler _objectInfos;
+        private final String _strFolderPath;
+        private final DescendantsBudget _budget;
+        private final List<RepositoryObject> _listSpaces = new ArrayList<RepositoryObject>(  );
+        private final List<ObjectInFolderData> _listEntries;
+        private final Map<Integer, List<CmisDocument>> _mapChildDocuments;
+        private final List<SoftReference<ObjectInFolderContainer>> _listContainers;
+
+        /**
+         * Creates the level below a space and compiles its children
+         */
+        DescendantsLevel( CallContext context, SpaceHierarchy hierarchy, RepositoryObject object,
+            ObjectInFolderData parentEntry, List<CmisDocument> listDocuments, boolean foldersOnly, int depth,
+            Set<String> filter, boolean includeAllowableActions, boolean includePathSegments, boolean userReadOnly,
+            ObjectInfoHandler objectInfos, String folderPath, DescendantsBudget budget )
+        {
+            _context = context;
+            _hierarchy = hierarchy;
+            _bFoldersOnly = foldersOnly;
+            _nDepth = depth;
+            _filter = filter;
+            _bIncludeAllowableActions = includeAllowableActions;
+            _bIncludePathSegments = includePathSegments;
+            _bUserReadOnly = userReadOnly;
+            _objectInfos = objectInfos;
+            _strFolderPath = folderPath + "/" + object.getName(  );
+            _budget = budget;
+            _listEntries = compileLevel( context, hierarchy, object, parentEntry, _listSpaces, listDocuments, filter,
+                    includeAllowableActions, includePathSegments, userReadOnly, objectInfos, _strFolderPath, budget );
+            _mapChildDocuments = ( foldersOnly || ( depth == 1 ) ) ? null
+                                                                  : loadDocumentChildren( _listSpaces, filter,
+                                                                    includeAllowableActions );
+            _listContainers = new ArrayList<SoftReference<ObjectInFolderContainer>>( _listEntries.size(  ) );
+
+            for ( int i = 0; i < _listEntries.size(  ); i++ )
+            {
+                _listContainers.add( null );
+            }
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public ObjectInFolderContainer get( int nIndex )
+        {
+            SoftReference<ObjectInFolderContainer> reference = _listContainers.get( nIndex );
+            ObjectInFolderContainer cached = ( reference == null ) ? null : reference.get(  );
+
+            if ( cached != null )
+            {
+                return cached;
+            }
+
+            ObjectInFolderContainerImpl container = new ObjectInFolderContainerImpl(  );
+            container.setObject( _listEntries.get( nIndex ) );
+
+            // move to next level : the spaces come first, documents have no children
+            if ( ( _nDepth != 1 ) && ( nIndex < _listSpaces.size(  ) ) )
+            {
+                RepositoryObject space = _listSpaces.get( nIndex );
+                List<CmisDocument> listDocuments = null;
+
+                if ( !_bFoldersOnly )
+                {
+                    listDocuments = _mapChildDocuments.get( space.getNumericId(  ) );
                 }
+
+                container.setChildren( new DescendantsLevel( _context, _hierarchy, space, _listEntries.get( nIndex ),
+                        listDocuments, _bFoldersOnly, _nDepth - 1, _filter, _bIncludeAllowableActions,
+                        _bIncludePathSegments, _bUserReadOnly, _objectInfos, _strFolderPath, _budget ) );
             }
+
+            _listContainers.set( nIndex, new SoftReference<ObjectInFolderContainer>( container ) );
+
+            return container;
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public int size(  )
+        {
+            return _listEntries.size(  );
+        }
+    }
+
+    /**
+     * Object info handler that can be fed by several compilation threads
+     */
+    private static final class SynchronizedObjectInfoHandler implements ObjectInfoHandler
+    {
+        private final ObjectInfoHandler _handler;
+
+        /**
+         * Constructor
+         * @param handler The handler of the request
+         */
+        SynchronizedObjectInfoHandler( ObjectInfoHandler handler )
+        {
+            _handler = handler;
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public synchronized ObjectInfo getObjectInfo( String repositoryId, String objectId )
+        {
+            return _handler.getObjectInfo( repositoryId, objectId );
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public synchronized void addObjectInfo( ObjectInfo objectInfo )
+        {
+            _handler.addObjectInfo( objectInfo );
         }
     }
 }
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import fr.paris.lutece.plugins.document.business.DocumentType;
+import fr.paris.lutece.plugins.document.business.attributes.DocumentAttribute;
+import fr.paris.lutece.plugins.document.modules.cmis.business.CmisDocument;
+import fr.paris.lutece.plugins.document.modules.cmis.business.CmisDocumentHome;
+import fr.paris.lutece.plugins.document.modules.cmis.business.CmisDocumentTypeHome;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import org.apache.chemistry.opencmis.server.shared.SharedTypeCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * Document Type Service : holds the CMIS types, with a subtype of
+ * cmis:document for each document type of the document plugin. The types are
+ * built on their first use, then read without any lock. The document types
+ * are reloaded when they are older than the refresh interval (the document
+ * plugin doesn't notify document type changes) and the types are only
+ * rebuilt, with a new version, if the document types have changed.
+ */
+public final class DocumentTypeService
+{
+    private static final String PROPERTY_REFRESH_INTERVAL = "document-cmis.documentTypes.refreshInterval";
+    private static final int DEFAULT_REFRESH_INTERVAL = 300;
+
+    // number of documents whose attributes are loaded by a single query
+    private static final int LOAD_BATCH_SIZE = 50;
+    private static DocumentTypeService _singleton = new DocumentTypeService(  );
+    private volatile TypeManager _types;
+    private volatile long _lLoadTime;
+    private List<DocumentType> _listDocumentTypes;
+    private final AtomicBoolean _bReloading = new AtomicBoolean(  );
+    private long _lRefreshInterval = DEFAULT_REFRESH_INTERVAL * 1000L;
+
+    /**
+     * Private constructor
+     */
+    private DocumentTypeService(  )
+    {
+    }
+
+    /**
+     * Returns the unique instance
+     * @return The instance
+     */
+    public static DocumentTypeService getInstance(  )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Reads the refresh interval. The types are not built before their first use
+     */
+    public void init(  )
+    {
+        _lRefreshInterval = AppPropertiesService.getPropertyInt( PROPERTY_REFRESH_INTERVAL,
+                DEFAULT_REFRESH_INTERVAL ) * 1000L;
+    }
+
+    /**
+     * Returns the current types
+     * @return The types
+     */
+    public TypeManager getTypes(  )
+    {
+        TypeManager types = _types;
+
+        if ( types == null )
+        {
+            return reload(  );
+        }
+
+        if ( ( ( System.currentTimeMillis(  ) - _lLoadTime ) > _lRefreshInterval ) &&
+                _bReloading.compareAndSet( false, true ) )
+        {
+            // only one thread reloads, the others keep reading the current types
+            try
+            {
+                types = load(  );
+            }
+            finally
+            {
+                _bReloading.set( false );
+            }
+        }
+
+        return types;
+    }
+
+    /**
+     * Reloads the document types from the database and rebuilds the types if they have changed
+     * @return The current types
+     */
+    public synchronized TypeManager reload(  )
+    {
+        return load(  );
+    }
+
+    /**
+     * Loads the missing attribute values of a list of documents with a few
+     * batched queries instead of one query per document. Only the documents
+     * whose type has attribute properties are read
+     * @param listDocuments The documents loaded without their attributes
+     */
+    public void loadAttributeValues( Collection<CmisDocument> listDocuments )
+    {
+        TypeManager types = getTypes(  );
+        List<CmisDocument> listMissing = new ArrayList<CmisDocument>(  );
+
+        for ( CmisDocument document : listDocuments )
+        {
+            if ( document.getAttributeValues(  ) != null )
+            {
+                continue;
+            }
+
+            if ( types.getAttributeDefinitions( types.getDocumentTypeId( document.getCodeDocumentType(  ) ) )
+                          .isEmpty(  ) )
+            {
+                document.setAttributeValues( Collections.<String, String>emptyMap(  ) );
+            }
+            else
+            {
+                listMissing.add( document );
+            }
+        }
+
+        for ( int nStart = 0; nStart < listMissing.size(  ); nStart += LOAD_BATCH_SIZE )
+        {
+            List<CmisDocument> listBatch = listMissing.subList( nStart,
+                    Math.min( nStart + LOAD_BATCH_SIZE, listMissing.size(  ) ) );
+            List<Integer> listIds = new ArrayList<Integer>( listBatch.size(  ) );
+
+            for ( CmisDocument document : listBatch )
+            {
+                listIds.add( document.getId(  ) );
+            }
+
+            Map<Integer, Map<String, String>> mapValues = CmisDocumentHome.findAttributeValues( listIds );
+
+            for ( CmisDocument document : listBatch )
+            {
+                Map<String, String> mapDocumentValues = mapValues.get( document.getId(  ) );
+                document.setAttributeValues( ( mapDocumentValues == null )
+                    ? Collections.<String, String>emptyMap(  ) : Collections.unmodifiableMap( mapDocumentValues ) );
+            }
+        }
+    }
+
+    /**
+     * Loads the attribute values of a document. The database is read only if
+     * the type of the document has attribute properties
+     * @param nDocumentId The document id
+     * @param strCodeDocumentType The code of the document type
+     * @return The values by attribute code
+     */
+    public Map<String, String> getAttributeValues( int nDocumentId, String strCodeDocumentType )
+    {
+        TypeManager types = getTypes(  );
+
+        if ( types.getAttributeDefinitions( types.getDocumentTypeId( strCodeDocumentType ) ).isEmpty(  ) )
+        {
+            return Collections.emptyMap(  );
+        }
+
+        Map<String, String> mapValues = CmisDocumentHome.findAttributeValues( Collections.singletonList( nDocumentId ) )
+                                                        .get( nDocumentId );
+
+        return ( mapValues == null ) ? Collections.<String, String>emptyMap(  )
+                                     : Collections.unmodifiableMap( mapValues );
+    }
+
+    private TypeManager load(  )
+    {
+        return load( CmisDocumentTypeHome.findAllDocumentTypes(  ) );
+    }
+
+    /**
+     * Builds the types from the document types if they have changed
+     * @param listDocumentTypes The document types
+     * @return The current types
+     */
+    synchronized TypeManager load( List<DocumentType> listDocumentTypes )
+    {
+        TypeManager types = _types;
+
+        if ( ( types == null ) || !isSameDocumentTypes( _listDocumentTypes, listDocumentTypes ) )
+        {
+            types = new TypeManager( ( types == null ) ? 1 : ( types.getVersion(  ) + 1 ), listDocumentTypes );
+            _listDocumentTypes = listDocumentTypes;
+            _types = types;
+
+            if ( types.getVersion(  ) > 1 )
+            {
+                // the definitions served and the cached objects were built for the previous types
+                SharedTypeCache.invalidateAll(  );
+                CmisObjectCacheService.getInstance(  ).resetCache(  );
+            }
+
+            AppLogService.debug( "CMIS types built from the document types, version " + types.getVersion(  ) );
+        }
+
+        _lLoadTime = System.currentTimeMillis(  );
+
+        return types;
+    }
+
+    /**
+     * Checks whether two lists of document types give the same CMIS types :
+     * same types in the same order, with the same attributes
+     * @param listTypes1 The first list
+     * @param listTypes2 The second list
+     * @return true if the CMIS types don't have to be rebuilt
+     */
+    static boolean isSameDocumentTypes(List<DocumentType> listTypes1, List<DocumentType> listTypes2 )
+    {
+        if ( listTypes1.size(  ) != listTypes2.size(  ) )
+        {
+            return false;
+        }
+
+        for ( int i = 0; i < listTypes1.size(  ); i++ )
+        {
+            DocumentType type1 = listTypes1.get( i );
+            DocumentType type2 = listTypes2.get( i );
+
+            if ( !equals( type1.getCode(  ), type2.getCode(  ) ) || !equals( type1.getName(  ), type2.getName(  ) ) ||
+                    !equals( type1.getDescription(  ), type2.getDescription(  ) ) ||
+                    ( type1.getAttributes(  ).size(  ) != type2.getAttributes(  ).size(  ) ) )
+            {
+                return false;
+            }
+
+            for ( int j = 0; j < type1.getAttributes(  ).size(  ); j++ )
+            {
+                DocumentAttribute attribute1 = type1.getAttributes(  ).get( j );
+                DocumentAttribute attribute2 = type2.getAttributes(  ).get( j );
+
+                if ( !equals( attribute1.getCode(  ), attribute2.getCode(  ) ) ||
+                        !equals( attribute1.getName(  ), attribute2.getName(  ) ) ||
+                        !equals( attribute1.getDescription(  ), attribute2.getDescription(  ) ) ||
+                        !equals( attribute1.getCodeAttributeType(  ), attribute2.getCodeAttributeType(  ) ) ||
+                        ( attribute1.isRequired(  ) != attribute2.isRequired(  ) ) )
+                {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean equals( String str1, String str2 )
+    {
+        return ( str1 == null ) ? ( str2 == null ) : str1.equals( str2 );
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Bounded cache of the ids that are known not to exist, so that the lookups
+ * of deleted or never created objects (crawlers, stale clients) are answered
+ * without any database access. The oldest ids are evicted first, ids expire
+ * after a time to live and an id is removed as soon as an object is created
+ * with it.
+ */
+public final class MissingObjectCache
+{
+    private static final String PROPERTY_MAX_SIZE = "document-cmis.cache.missing.maxSize";
+    private static final String PROPERTY_TIME_TO_LIVE = "document-cmis.cache.missing.timeToLive";
+    private static final int DEFAULT_MAX_SIZE = 10000;
+    private static final int DEFAULT_TIME_TO_LIVE = 60;
+    private static MissingObjectCache _singleton = new MissingObjectCache(  );
+    private final Map<Long, Long> _mapExpirations = new LinkedHashMap<Long, Long>(  )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<Long, Long> eldest )
+            {
+                return size(  ) > _nMaxSize;
+            }
+        };
+
+    private int _nMaxSize = DEFAULT_MAX_SIZE;
+    private long _lTimeToLive = DEFAULT_TIME_TO_LIVE * 1000L;
+
+    /**
+     * Private constructor
+     */
+    private MissingObjectCache(  )
+    {
+    }
+
+    /**
+     * Returns the unique instance
+     * @return The instance
+     */
+    public static MissingObjectCache getInstance(  )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Initializes the cache
+     */
+    public synchronized void init(  )
+    {
+        _nMaxSize = AppPropertiesService.getPropertyInt( PROPERTY_MAX_SIZE, DEFAULT_MAX_SIZE );
+        _lTimeToLive = AppPropertiesService.getPropertyInt( PROPERTY_TIME_TO_LIVE, DEFAULT_TIME_TO_LIVE ) * 1000L;
+        _mapExpirations.clear(  );
+    }
+
+    /**
+     * Returns true if the object is known not to exist
+     * @param lObjectId The object id decoded by {@link ObjectIdCodec}
+     * @return true if the object is missing
+     */
+    synchronized boolean isMissing( long lObjectId )
+    {
+        if ( _mapExpirations.isEmpty(  ) )
+        {
+            return false;
+        }
+
+        Long lExpiration = _mapExpirations.get( lObjectId );
+
+        if ( lExpiration == null )
+        {
+            return false;
+        }
+
+        if ( lExpiration < System.currentTimeMillis(  ) )
+        {
+            _mapExpirations.remove( lObjectId );
+
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Records an object that doesn't exist
+     * @param lObjectId The object id decoded by {@link ObjectIdCodec}
+     */
+    synchronized void putMissing( long lObjectId )
+    {
+        if ( ( _nMaxSize > 0 ) && ( _lTimeToLive > 0 ) )
+        {
+            _mapExpirations.put( lObjectId, System.currentTimeMillis(  ) + _lTimeToLive );
+        }
+    }
+
+    /**
+     * Removes a created document
+     * @param nDocumentId The document id
+     */
+    public synchronized void removeDocument( int nDocumentId )
+    {
+        _mapExpirations.remove( ObjectIdCodec.pack( ObjectIdCodec.TYPE_DOCUMENT, nDocumentId ) );
+    }
+
+    /**
+     * Removes a created space
+     * @param nSpaceId The space id
+     */
+    public synchronized void removeSpace( int nSpaceId )
+    {
+        _mapExpirations.remove( ObjectIdCodec.pack( ObjectIdCodec.TYPE_SPACE, nSpaceId ) );
+    }
+}
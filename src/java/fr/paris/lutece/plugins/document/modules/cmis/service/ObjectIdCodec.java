@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+
+/**
+ * Codec of the CMIS object ids : a type prefix (D for a document, S for a
+ * space, in any case) followed by the decimal id. An id is decoded into a
+ * single long holding the type and the numeric id, without any allocation,
+ * so that malformed ids are rejected before any lookup.
+ */
+final class ObjectIdCodec
+{
+    /** Type of a document */
+    static final int TYPE_DOCUMENT = 0;
+
+    /** Type of a space */
+    static final int TYPE_SPACE = 1;
+
+    /** Value returned for a malformed id */
+    static final long INVALID = -1L;
+    private static final char PREFIX_DOCUMENT = 'D';
+    private static final char PREFIX_SPACE = 'S';
+    private static final int MAX_DIGITS = 10;
+    private static final int RADIX = 10;
+    private static final int TYPE_SHIFT = 32;
+    private static final long ID_MASK = 0xFFFFFFFFL;
+
+    /**
+     * Private constructor
+     */
+    private ObjectIdCodec(  )
+    {
+    }
+
+    /**
+     * Decodes an object id
+     * @param strObjectId The object id
+     * @return The encoded type and id, or {@link #INVALID} if the id is malformed
+     */
+    static long decode( String strObjectId )
+    {
+        if ( ( strObjectId == null ) || ( strObjectId.length(  ) < 2 ) ||
+                ( strObjectId.length(  ) > ( MAX_DIGITS + 1 ) ) )
+        {
+            return INVALID;
+        }
+
+        int nType;
+
+        switch ( Character.toUpperCase( strObjectId.charAt( 0 ) ) )
+        {
+            case PREFIX_DOCUMENT:
+                nType = TYPE_DOCUMENT;
+
+                break;
+
+            case PREFIX_SPACE:
+                nType = TYPE_SPACE;
+
+                break;
+
+            default:
+                return INVALID;
+        }
+
+        long lId = 0;
+
+        for ( int i = 1; i < strObjectId.length(  ); i++ )
+        {
+            char c = strObjectId.charAt( i );
+
+            if ( ( c < '0' ) || ( c > '9' ) )
+            {
+                return INVALID;
+            }
+
+            lId = ( lId * RADIX ) + ( c - '0' );
+        }
+
+        if ( lId > Integer.MAX_VALUE )
+        {
+            return INVALID;
+        }
+
+        return pack( nType, (int) lId );
+    }
+
+    /**
+     * Encodes a type and a numeric id
+     * @param nType The type
+     * @param nId The numeric id
+     * @return The encoded type and id
+     */
+    static long pack( int nType, int nId )
+    {
+        return ( ( (long) nType ) << TYPE_SHIFT ) | ( nId & ID_MASK );
+    }
+
+    /**
+     * Returns the type of a decoded id
+     * @param lObjectId The decoded id
+     * @return The type
+     */
+    static int getType( long lObjectId )
+    {
+        return (int) ( lObjectId >>> TYPE_SHIFT );
+    }
+
+    /**
+     * Returns the numeric id of a decoded id
+     * @param lObjectId The decoded id
+     * @return The numeric id
+     */
+    static int getId( long lObjectId )
+    {
+        return (int) ( lObjectId & ID_MASK );
+    }
+
+    /**
+     * Returns the CMIS object id of a type and a numeric id
+     * @param nType The type
+     * @param nId The numeric id
+     * @return The object id
+     */
+    static String toObjectId( int nType, int nId )
+    {
+        return ( ( nType == TYPE_DOCUMENT ) ? PREFIX_DOCUMENT : PREFIX_SPACE ) + Integer.toString( nId );
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Parallel Compilation Service : compiles the entries of a large page on a
+ * shared and bounded pool of threads. The page is split into contiguous
+ * slices and the results are put back in the order of the page, so the
+ * output is the same as a sequential compilation. Pages smaller than the
+ * threshold are compiled by the calling thread.
+ * <br>The same pool walks the sibling subtrees of a descendants request, with
+ * a cap on the number of subtrees walked at once for a single request. The
+ * cap is held by the request, so it also binds the subtrees split by a worker.
+ */
+public final class ParallelCompilationService
+{
+    private static final String PROPERTY_THRESHOLD = "document-cmis.compilation.parallelThreshold";
+    private static final String PROPERTY_THREADS = "document-cmis.compilation.threads";
+    private static final String PROPERTY_QUEUE_SIZE = "document-cmis.compilation.queueSize";
+    private static final String PROPERTY_DESCENDANTS_PARALLELISM = "document-cmis.descendants.parallelism";
+    private static final int DEFAULT_THRESHOLD = 0;
+    private static final int DEFAULT_QUEUE_SIZE = 256;
+    private static final int DEFAULT_DESCENDANTS_PARALLELISM = 1;
+    private static final String THREAD_NAME = "document-cmis-compilation-";
+    private static ParallelCompilationService _singleton = new ParallelCompilationService(  );
+    private static final ThreadLocal<Boolean> _bWorker = new ThreadLocal<Boolean>(  );
+    private int _nThreshold = DEFAULT_THRESHOLD;
+    private int _nThreads;
+    private int _nDescendantsParallelism = DEFAULT_DESCENDANTS_PARALLELISM;
+    private volatile ThreadPoolExecutor _executor;
+
+    /**
+     * Private constructor
+     */
+    private ParallelCompilationService(  )
+    {
+    }
+
+    /**
+     * Returns the unique instance
+     * @return The instance
+     */
+    public static ParallelCompilationService getInstance(  )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Reads the configuration and creates the pool if the parallel mode is enabled
+     */
+    public synchronized void init(  )
+    {
+        _nThreshold = AppPropertiesService.getPropertyInt( PROPERTY_THRESHOLD, DEFAULT_THRESHOLD );
+        _nThreads = AppPropertiesService.getPropertyInt( PROPERTY_THREADS,
+                Runtime.getRuntime(  ).availableProcessors(  ) );
+
+        _nDescendantsParallelism = AppPropertiesService.getPropertyInt( PROPERTY_DESCENDANTS_PARALLELISM,
+                DEFAULT_DESCENDANTS_PARALLELISM );
+
+        if ( ( ( _nThreshold > 0 ) || ( _nDescendantsParallelism > 1 ) ) && ( _nThreads > 1 ) &&
+                ( _executor == null ) )
+        {
+            int nQueueSize = AppPropertiesService.getPropertyInt( PROPERTY_QUEUE_SIZE, DEFAULT_QUEUE_SIZE );
+
+            // when the pool is saturated, the calling thread compiles its slices itself
+            _executor = new ThreadPoolExecutor( _nThreads, _nThreads, 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>( nQueueSize ), new WorkerThreadFactory(  ),
+                    new ThreadPoolExecutor.CallerRunsPolicy(  ) );
+            _executor.allowCoreThreadTimeOut( true );
+            AppLogService.info( "Document CMIS : parallel compilation enabled on " + _nThreads +
+                " threads (page threshold : " + _nThreshold + ", descendants parallelism : " +
+                _nDescendantsParallelism + ")" );
+        }
+    }
+
+    /**
+     * Stops the threads of the pool. The slices that no worker has started
+     * are compiled by the threads that wait for them
+     */
+    public synchronized void shutdown(  )
+    {
+        if ( _executor != null )
+        {
+            _executor.shutdownNow(  );
+            _executor = null;
+        }
+    }
+
+    /**
+     * Compiles a list of sources, in parallel if the list is large enough
+     * @param <S> The source type
+     * @param <T> The result type
+     * @param listSources The sources
+     * @param compiler The compiler (called by several threads at once)
+     * @return The results, in the order of the sources
+     */
+    public <S, T> List<T> compileAll( List<S> listSources, Compiler<S, T> compiler )
+    {
+        ThreadPoolExecutor executor = _executor;
+
+        // a worker never waits for other workers, so the pool cannot deadlock
+        if ( ( executor == null ) || ( _nThreshold <= 0 ) || ( listSources.size(  ) < _nThreshold ) ||
+                isWorker(  ) )
+        {
+            return compileSlice( listSources, compiler );
+        }
+
+        int nSlices = Math.min( _nThreads, listSources.size(  ) );
+        int nSliceSize = ( ( listSources.size(  ) + nSlices ) - 1 ) / nSlices;
+        List<FutureTask<List<T>>> listFutures = new ArrayList<FutureTask<List<T>>>( nSlices );
+
+        for ( int nStart = 0; nStart < listSources.size(  ); nStart += nSliceSize )
+        {
+            final List<S> listSlice = listSources.subList( nStart,
+                    Math.min( nStart + nSliceSize, listSources.size(  ) ) );
+            final Compiler<S, T> sliceCompiler = compiler;
+            FutureTask<List<T>> future = new FutureTask<List<T>>( new Callable<List<T>>(  )
+                    {
+                        @Override
+                        public List<T> call(  )
+                        {
+                            return compileSlice( listSlice, sliceCompiler );
+                        }
+                    } );
+            listFutures.add( future );
+            executor.execute( future );
+        }
+
+        List<T> listResults = new ArrayList<T>( listSources.size(  ) );
+
+        for ( FutureTask<List<T>> future : listFutures )
+        {
+            // a slice dropped by a pool being shut down is compiled here
+            runIfNotStarted( executor, future );
+            listResults.addAll( getResult( future ) );
+        }
+
+        return listResults;
+    }
+
+    /**
+     * Returns the number of subtrees that a descendants request may walk at
+     * once, the request thread included
+     * @return The parallelism, 1 if the subtrees must be walked by the request thread
+     */
+    public int getDescendantsParallelism(  )
+    {
+        if ( _executor == null )
+        {
+            return 1;
+        }
+
+        return Math.max( 1, Math.min( _nDescendantsParallelism, _nThreads ) );
+    }
+
+    /**
+     * Runs tasks on the pool and waits for their completion. The calling
+     * thread runs the last task itself, then the tasks that no worker has
+     * started yet, so a worker may call this method without deadlocking the pool
+     * @param listTasks The tasks
+     */
+    public void runAll( List<Runnable> listTasks )
+    {
+        ThreadPoolExecutor executor = _executor;
+
+        if ( executor == null )
+        {
+            for ( Runnable task : listTasks )
+            {
+                task.run(  );
+            }
+
+            return;
+        }
+
+        int nLast = listTasks.size(  ) - 1;
+        List<FutureTask<Object>> listFutures = new ArrayList<FutureTask<Object>>( nLast );
+
+        for ( int i = 0; i < nLast; i++ )
+        {
+            FutureTask<Object> future = new FutureTask<Object>( listTasks.get( i ), null );
+            listFutures.add( future );
+            executor.execute( future );
+        }
+
+        try
+        {
+            if ( nLast >= 0 )
+            {
+                listTasks.get( nLast ).run(  );
+            }
+        }
+        finally
+        {
+            for ( FutureTask<Object> future : listFutures )
+            {
+                runIfNotStarted( executor, future );
+                getResult( future );
+            }
+        }
+    }
+
+    /**
+     * Returns true if the current thread is a worker of the pool
+     * @return true for a worker
+     */
+    static boolean isWorker(  )
+    {
+        return Boolean.TRUE.equals( _bWorker.get(  ) );
+    }
+
+    /**
+     * Runs a task on the current thread if no worker has started it : a task
+     * still queued, or dropped by a pool being shut down. A started task is
+     * left to its worker
+     */
+    private static void runIfNotStarted( ThreadPoolExecutor executor, FutureTask<?> future )
+    {
+        executor.remove( future );
+        future.run(  );
+    }
+
+    private static <S, T> List<T> compileSlice( List<S> listSources, Compiler<S, T> compiler )
+    {
+        List<T> listResults = new ArrayList<T>( listSources.size(  ) );
+
+        for ( S source : listSources )
+        {
+            listResults.add( compiler.compile( source ) );
+        }
+
+        return listResults;
+    }
+
+    private static <T> T getResult( Future<T> future )
+    {
+        try
+        {
+            return future.get(  );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread(  ).interrupt(  );
+            throw new CmisRuntimeException( "Compilation interrupted", e );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause(  ) instanceof RuntimeException )
+            {
+                throw (RuntimeException) e.getCause(  );
+            }
+
+            throw new CmisRuntimeException( e.getCause(  ).getMessage(  ), e.getCause(  ) );
+        }
+    }
+
+    /**
+     * Compiler of an entry
+     * @param <S> The source type
+     * @param <T> The result type
+     */
+    public interface Compiler<S, T>
+    {
+        /**
+         * Compiles an entry
+         * @param source The source
+         * @return The result
+         */
+        T compile( S source );
+    }
+
+    /**
+     * Creates the daemon threads of the pool
+     */
+    private static final class WorkerThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger _nCount = new AtomicInteger(  );
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public Thread newThread( final Runnable runnable )
+        {
+            Thread thread = new Thread( new Runnable(  )
+                    {
+                        @Override
+                        public void run(  )
+                        {
+                            _bWorker.set( Boolean.TRUE );
+                            runnable.run(  );
+                        }
+                    }, THREAD_NAME + _nCount.incrementAndGet(  ) );
+            thread.setDaemon( true );
+
+            return thread;
+        }
+    }
+}
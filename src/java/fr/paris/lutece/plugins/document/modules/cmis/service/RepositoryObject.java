@@ -33,49 +33,195 @@
  */
 package fr.paris.lutece.plugins.document.modules.cmis.service;
 
-import fr.paris.lutece.plugins.document.business.Document;
-import fr.paris.lutece.plugins.document.business.DocumentHome;
 import fr.paris.lutece.plugins.document.business.spaces.DocumentSpace;
 import fr.paris.lutece.plugins.document.business.spaces.DocumentSpaceHome;
+import fr.paris.lutece.plugins.document.modules.cmis.business.CmisDocument;
+import fr.paris.lutece.plugins.document.modules.cmis.business.CmisDocumentHome;
 
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+
+import java.sql.Timestamp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
- * Repository object
+ * Repository object. This is a compact view of a document or a space : it
+ * holds the metadata needed by CMIS (with the text attributes of a document)
+ * but never the XML content, so that it can be kept in the objects cache.
+ * The content length and the attributes of a document are resolved on their
+ * first use, unless they were loaded with the document.
  */
-public class RepositoryObject
+public final class RepositoryObject
 {
-    private static final String STYPE_DOCUMENT = "D";
-    private static final String STYPE_SPACE = "S";
-    private static final int TYPE_DOCUMENT = 0;
-    private static final int TYPE_SPACE = 1;
-    private String _id;
-    private Document _document;
-    private DocumentSpace _space;
-    private String _name;
-    private int _type;
+    private static final int TYPE_DOCUMENT = ObjectIdCodec.TYPE_DOCUMENT;
+    private static final int TYPE_SPACE = ObjectIdCodec.TYPE_SPACE;
+    private static final int SPACES_BATCH_SIZE = 500;
+    private final String _id;
+    private final int _nId;
+    private final int _type;
+    private final String _name;
+    private final int _nParentId;
+    private final long _lDateCreation;
+    private final long _lDateModification;
+    private final String _strCodeDocumentType;
+    private volatile long _lContentLength;
+    private volatile Map<String, String> _mapAttributeValues;
+    private final long _lLoadTime;
+
+    /**
+     * Builds a repository object from a document loaded without its content
+     * (no database access). The content length is taken if it is cached, the
+     * attributes if they have been loaded with the document
+     * @param document The document
+     */
+    RepositoryObject( CmisDocument document )
+    {
+        _id = getDocumentKey( document.getId(  ) );
+        _nId = document.getId(  );
+        _type = TYPE_DOCUMENT;
+        _name = document.getTitle(  );
+        _nParentId = document.getSpaceId(  );
+        _lDateCreation = getTime( document.getDateCreation(  ) );
+        _lDateModification = getTime( document.getDateModification(  ) );
+        _lContentLength = ContentLengthService.getInstance(  ).getCachedLength( _nId, _lDateModification );
+        _strCodeDocumentType = document.getCodeDocumentType(  );
+        _mapAttributeValues = document.getAttributeValues(  );
+        _lLoadTime = System.currentTimeMillis(  );
+    }
+
+    /**
+     * Builds a repository object from an already loaded space (no database access)
+     * @param space The space
+     */
+    RepositoryObject( DocumentSpace space )
+    {
+        this( space.getId(  ), space.getIdParent(  ), space.getName(  ) );
+    }
+
+    /**
+     * Builds a space object
+     * @param nSpaceId The space id
+     * @param nParentId The parent space id
+     * @param strName The space name
+     */
+    private RepositoryObject( int nSpaceId, int nParentId, String strName )
+    {
+        _id = getSpaceKey( nSpaceId );
+        _nId = nSpaceId;
+        _type = TYPE_SPACE;
+        _name = strName;
+        _nParentId = nParentId;
+        _lDateCreation = 0;
+        _lDateModification = 0;
+        _lContentLength = 0;
+        _strCodeDocumentType = null;
+        _mapAttributeValues = Collections.emptyMap(  );
+        _lLoadTime = System.currentTimeMillis(  );
+    }
+
+    /**
+     * Builds a space object from the space hierarchy snapshot (no database access)
+     * @param hierarchy The space hierarchy snapshot
+     * @param nSpaceId The space id
+     * @return The space object
+     */
+    static RepositoryObject fromHierarchy( SpaceHierarchy hierarchy, int nSpaceId )
+    {
+        return new RepositoryObject( nSpaceId, hierarchy.getParentId( nSpaceId ), hierarchy.getName( nSpaceId ) );
+    }
 
-    RepositoryObject( String objectId )
+    /**
+     * Returns the object from the objects cache or loads it from the database.
+     * Malformed ids and ids known not to exist are rejected without any database access
+     * @param objectId The object id (D123 for a document, S45 for a space)
+     * @return The object
+     * @throws CmisInvalidArgumentException if the id is malformed
+     * @throws CmisObjectNotFoundException if the object doesn't exist
+     */
+    static RepositoryObject load( String objectId )
     {
-        _id = objectId;
+        long lObjectId = ObjectIdCodec.decode( objectId );
+
+        if ( lObjectId == ObjectIdCodec.INVALID )
+        {
+            throw new CmisInvalidArgumentException( "Invalid object id : " + objectId );
+        }
+
+        MissingObjectCache missing = MissingObjectCache.getInstance(  );
 
-        String strType = objectId.substring( 0, 1 );
-        String strId = objectId.substring( 1 );
-        int nId = Integer.parseInt( strId );
+        if ( missing.isMissing( lObjectId ) )
+        {
+            throw new CmisObjectNotFoundException( "Object not found : " + objectId );
+        }
+
+        int nType = ObjectIdCodec.getType( lObjectId );
+        int nId = ObjectIdCodec.getId( lObjectId );
+        String strKey = ObjectIdCodec.toObjectId( nType, nId );
+        CmisObjectCacheService cache = CmisObjectCacheService.getInstance(  );
+        RepositoryObject object = cache.getObject( strKey );
+
+        if ( object != null )
+        {
+            return object;
+        }
+
+        if ( nType == TYPE_DOCUMENT )
+        {
+            CmisDocument document = CmisDocumentHome.findByPrimaryKey( nId );
 
-        if ( strType.equalsIgnoreCase( STYPE_DOCUMENT ) )
+            if ( document != null )
+            {
+                object = new RepositoryObject( document );
+            }
+        }
+        else
         {
-            _type = TYPE_DOCUMENT;
-            _document = DocumentHome.findByPrimaryKey( nId );
-            _name = _document.getTitle(  );
+            DocumentSpace space = DocumentSpaceHome.findByPrimaryKey( nId );
+            SpaceHierarchyService.getInstance(  ).spaceLoaded( nId, space );
+
+            if ( space != null )
+            {
+                object = new RepositoryObject( space );
+            }
         }
-        else if ( strType.equalsIgnoreCase( STYPE_SPACE ) )
+
+        if ( object == null )
         {
-            _type = TYPE_SPACE;
-            _space = DocumentSpaceHome.findByPrimaryKey( nId );
-            _name = _space.getName(  );
+            missing.putMissing( lObjectId );
+
+            throw new CmisObjectNotFoundException( "Object not found : " + objectId );
         }
+
+        cache.putObject( object );
+
+        return object;
+    }
+
+    /**
+     * Returns the cache key of a document
+     * @param nDocumentId The document id
+     * @return The key
+     */
+    static String getDocumentKey( int nDocumentId )
+    {
+        return ObjectIdCodec.toObjectId( TYPE_DOCUMENT, nDocumentId );
+    }
+
+    /**
+     * Returns the cache key of a space
+     * @param nSpaceId The space id
+     * @return The key
+     */
+    static String getSpaceKey( int nSpaceId )
+    {
+        return ObjectIdCodec.toObjectId( TYPE_SPACE, nSpaceId );
     }
 
     /**
@@ -87,6 +233,15 @@ public class RepositoryObject
         return _id;
     }
 
+    /**
+     * Returns the numeric id of the document or the space
+     * @return The numeric id
+     */
+    public int getNumericId(  )
+    {
+        return _nId;
+    }
+
     /**
      *
      * @return
@@ -115,29 +270,135 @@ public class RepositoryObject
     }
 
     /**
-     *
-     * @return
+     * Returns the id of the parent space (the space of a document)
+     * @return The parent space id
      */
-    public Document getDocument(  )
+    public int getParentId(  )
     {
-        return _document;
+        return _nParentId;
     }
 
     /**
-     *
-     * @return
+     * Returns the creation date of a document
+     * @return The date in milliseconds
      */
-    public List<Document> getDocumentChildren(  )
+    public long getDateCreation(  )
     {
-        return DocumentHome.findBySpaceKey( _space.getId(  ) );
+        return _lDateCreation;
     }
 
     /**
-     *
-     * @return
+     * Returns the modification date of a document
+     * @return The date in milliseconds
+     */
+    public long getDateModification(  )
+    {
+        return _lDateModification;
+    }
+
+    /**
+     * Returns the content length of a document, loaded if it was not known when the object was built
+     * @return The content length
+     */
+    public long getContentLength(  )
+    {
+        long lLength = _lContentLength;
+
+        if ( lLength < 0 )
+        {
+            lLength = ContentLengthService.getInstance(  ).getContentLength( _nId, _lDateModification );
+            _lContentLength = lLength;
+        }
+
+        return lLength;
+    }
+
+    /**
+     * Returns the code of the document type of a document
+     * @return The code, or null for a space
+     */
+    public String getCodeDocumentType(  )
+    {
+        return _strCodeDocumentType;
+    }
+
+    /**
+     * Returns the text values of the attributes of a document, loaded if they
+     * were not loaded with the document
+     * @return The values by attribute code, empty for a space
+     */
+    public Map<String, String> getAttributeValues(  )
+    {
+        Map<String, String> mapValues = _mapAttributeValues;
+
+        if ( mapValues == null )
+        {
+            mapValues = DocumentTypeService.getInstance(  ).getAttributeValues( _nId, _strCodeDocumentType );
+            _mapAttributeValues = mapValues;
+        }
+
+        return mapValues;
+    }
+
+    /**
+     * Returns the time this object has been loaded from the database
+     * @return The time in milliseconds
+     */
+    public long getLoadTime(  )
+    {
+        return _lLoadTime;
+    }
+
+    /**
+     * Returns the documents of a space that are within their validity period,
+     * loaded without their content
+     * @return The documents
+     */
+    public List<CmisDocument> getDocumentChildren(  )
+    {
+        return CmisDocumentHome.findValidBySpace( _nId, new Timestamp( System.currentTimeMillis(  ) ) );
+    }
+
+    /**
+     * Returns the documents of several spaces that are within their validity
+     * period, loaded without their content with one query per batch of spaces
+     * @param listSpaces The spaces
+     * @return The documents of each space by space id. Spaces without documents have no entry
      */
-    public List<DocumentSpace> getSpaceChildren(  )
+    public static Map<Integer, List<CmisDocument>> getDocumentChildren( List<RepositoryObject> listSpaces )
+    {
+        Map<Integer, List<CmisDocument>> mapDocuments = new HashMap<Integer, List<CmisDocument>>(  );
+        Timestamp now = new Timestamp( System.currentTimeMillis(  ) );
+
+        for ( int nStart = 0; nStart < listSpaces.size(  ); nStart += SPACES_BATCH_SIZE )
+        {
+            int nEnd = Math.min( nStart + SPACES_BATCH_SIZE, listSpaces.size(  ) );
+            List<Integer> listIds = new ArrayList<Integer>( nEnd - nStart );
+
+            for ( RepositoryObject space : listSpaces.subList( nStart, nEnd ) )
+            {
+                listIds.add( space._nId );
+            }
+
+            for ( CmisDocument document : CmisDocumentHome.findValidBySpaces( listIds, now ) )
+            {
+                List<CmisDocument> listDocuments = mapDocuments.get( document.getSpaceId(  ) );
+
+                if ( listDocuments == null )
+                {
+                    listDocuments = new ArrayList<CmisDocument>(  );
+                    mapDocuments.put( document.getSpaceId(  ), listDocuments );
+                }
+
+                listDocuments.add( document );
+            }
+        }
+
+        return mapDocuments;
+    }
+
+    private static long getTime( Date date )
     {
-        return DocumentSpaceHome.findChilds( _space.getId(  ) );
+        return ( date == null ) ? 0 : date.getTime(  );
     }
 }
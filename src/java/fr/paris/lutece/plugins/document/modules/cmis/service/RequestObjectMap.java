@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/**
+ * Identity map of the objects loaded during one CMIS request. An object is
+ * read from the database at most once per request, whatever the number of
+ * lookups, and the map is dropped when the request ends so that nothing is
+ * kept from one request to another. Maps are keyed by call context : the
+ * threads that compile a request in parallel share the map of the request.
+ */
+final class RequestObjectMap
+{
+    private static final ConcurrentMap<CallContext, RequestObjectMap> _mapRequests =
+        new ConcurrentHashMap<CallContext, RequestObjectMap>(  );
+    private final Map<String, RepositoryObject> _mapObjects = new ConcurrentHashMap<String, RepositoryObject>(  );
+
+    /**
+     * Private constructor
+     */
+    private RequestObjectMap(  )
+    {
+    }
+
+    /**
+     * Returns the map of a request, created on the first call
+     * @param context The call context of the request
+     * @return The map or null if there is no context
+     */
+    static RequestObjectMap getInstance( CallContext context )
+    {
+        if ( context == null )
+        {
+            return null;
+        }
+
+        RequestObjectMap map = _mapRequests.get( context );
+
+        if ( map == null )
+        {
+            RequestObjectMap newMap = new RequestObjectMap(  );
+            map = _mapRequests.putIfAbsent( context, newMap );
+
+            if ( map == null )
+            {
+                map = newMap;
+            }
+        }
+
+        return map;
+    }
+
+    /**
+     * Drops the map of a request. Called when the request ends
+     * @param context The call context of the request
+     */
+    static void release( CallContext context )
+    {
+        if ( context != null )
+        {
+            _mapRequests.remove( context );
+        }
+    }
+
+    /**
+     * Returns an object of the request, loaded from the objects cache or the
+     * database on the first lookup only
+     * @param context The call context of the request
+     * @param strObjectId The object id
+     * @return The object
+     */
+    static RepositoryObject load( CallContext context, String strObjectId )
+    {
+        RequestObjectMap map = getInstance( context );
+
+        if ( map == null )
+        {
+            return RepositoryObject.load( strObjectId );
+        }
+
+        RepositoryObject object = map._mapObjects.get( strObjectId );
+
+        if ( object == null )
+        {
+            object = RepositoryObject.load( strObjectId );
+            map._mapObjects.put( strObjectId, object );
+        }
+
+        return object;
+    }
+}
@@ -0,0 +1,623 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import fr.paris.lutece.plugins.document.business.spaces.DocumentSpace;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+
+/**
+ * Immutable snapshot of the space hierarchy. Parents, names and children are
+ * stored in arrays indexed by the space id. A snapshot is never modified :
+ * patches return a new snapshot (copy on write) so that it can be read
+ * without any lock.
+ * Children are also indexed by name so that a path is resolved with one
+ * lookup per segment. When several children of a space have the same name,
+ * the one with the lowest id wins.
+ * A snapshot can be restricted to the spaces visible by a user : the hidden
+ * spaces are then unknown by the restricted snapshot.
+ */
+public final class SpaceHierarchy
+{
+    /** Parent id of a space that has no parent */
+    public static final int NO_PARENT = -1;
+    private static final int[] EMPTY = new int[0];
+    private static final char NAME_KEY_SEPARATOR = '/';
+    private static final char MARKER_SEPARATOR = '/';
+    private static final byte STATE_NEW = 0;
+    private static final byte STATE_PENDING = 1;
+    private static final byte STATE_OPEN = 2;
+    private static final byte STATE_COUNTED = 3;
+    private final int[] _parents;
+    private final String[] _names;
+    private final String[] _workgroups;
+    private final int[][] _children;
+    private final boolean[] _exists;
+    private final int[] _subtreeSizes;
+    private final BitSet _visible;
+    private final Map<String, Integer> _mapChildrenByName;
+    private final Set<String> _setWorkgroups;
+    private final long _lBuildTime;
+
+    private SpaceHierarchy( int[] parents, String[] names, String[] workgroups, int[][] children, boolean[] exists,
+        BitSet visible )
+    {
+        _parents = parents;
+        _names = names;
+        _workgroups = workgroups;
+        _children = children;
+        _exists = exists;
+        _subtreeSizes = countSubtrees( children, exists );
+        _visible = visible;
+        _mapChildrenByName = indexNames( parents, names, exists );
+        _setWorkgroups = collectWorkgroups( workgroups, exists );
+        _lBuildTime = System.currentTimeMillis(  );
+    }
+
+    /**
+     * Builds a snapshot from a list of spaces
+     * @param listSpaces The spaces (id, parent id and name). The order of the list gives the order of the children
+     * @return The snapshot
+     */
+    static SpaceHierarchy build( List<DocumentSpace> listSpaces )
+    {
+        int nMaxId = -1;
+
+        for ( DocumentSpace space : listSpaces )
+        {
+            nMaxId = Math.max( nMaxId, space.getId(  ) );
+        }
+
+        int nSize = nMaxId + 1;
+        int[] parents = new int[nSize];
+        String[] names = new String[nSize];
+        String[] workgroups = new String[nSize];
+        boolean[] exists = new boolean[nSize];
+        int[] counts = new int[nSize];
+        Arrays.fill( parents, NO_PARENT );
+
+        for ( DocumentSpace space : listSpaces )
+        {
+            int nId = space.getId(  );
+            parents[nId] = space.getIdParent(  );
+            names[nId] = space.getName(  );
+            workgroups[nId] = space.getWorkgroup(  );
+            exists[nId] = true;
+        }
+
+        for ( int nId = 0; nId < nSize; nId++ )
+        {
+            if ( exists[nId] && isIndex( parents[nId], nSize ) && ( parents[nId] != nId ) )
+            {
+                counts[parents[nId]]++;
+            }
+        }
+
+        int[][] children = new int[nSize][];
+
+        for ( int nId = 0; nId < nSize; nId++ )
+        {
+            children[nId] = ( counts[nId] == 0 ) ? EMPTY : new int[counts[nId]];
+            counts[nId] = 0;
+        }
+
+        // keep the order of the list for the children
+        for ( DocumentSpace space : listSpaces )
+        {
+            int nId = space.getId(  );
+            int nParent = parents[nId];
+
+            if ( isIndex( nParent, nSize ) && ( nParent != nId ) )
+            {
+                children[nParent][counts[nParent]++] = nId;
+            }
+        }
+
+        return new SpaceHierarchy( parents, names, workgroups, children, exists, null );
+    }
+
+    /**
+     * Computes a marker of a list of spaces : their number and a checksum of
+     * their ids, parents, names and workgroups. The marker changes when a
+     * space is created, moved, renamed, deleted or changes of workgroup
+     * @param listSpaces The spaces, in the order of the database
+     * @return The marker
+     */
+    static String getMarker( List<DocumentSpace> listSpaces )
+    {
+        StringBuilder sbSpaces = new StringBuilder(  );
+
+        for ( DocumentSpace space : listSpaces )
+        {
+            sbSpaces.append( space.getId(  ) ).append( MARKER_SEPARATOR ).append( space.getIdParent(  ) );
+            appendMarkerValue( sbSpaces, space.getName(  ) );
+            appendMarkerValue( sbSpaces, space.getWorkgroup(  ) );
+        }
+
+        return listSpaces.size(  ) + String.valueOf( MARKER_SEPARATOR ) + DigestUtils.md5Hex( sbSpaces.toString(  ) );
+    }
+
+    /**
+     * Returns a snapshot restricted to the visible spaces. The hidden spaces
+     * are unknown by the restricted snapshot and removed from the children
+     * @param visible The ids of the visible spaces
+     * @return The restricted snapshot
+     */
+    SpaceHierarchy restrictTo( BitSet visible )
+    {
+        boolean[] exists = new boolean[_exists.length];
+        int[][] children = new int[_children.length][];
+
+        for ( int nId = 0; nId < _exists.length; nId++ )
+        {
+            exists[nId] = _exists[nId] && visible.get( nId );
+        }
+
+        for ( int nId = 0; nId < _children.length; nId++ )
+        {
+            int[] visibleChildren = new int[_children[nId].length];
+            int nCount = 0;
+
+            for ( int nChild : _children[nId] )
+            {
+                if ( exists[nChild] )
+                {
+                    visibleChildren[nCount++] = nChild;
+                }
+            }
+
+            if ( nCount == _children[nId].length )
+            {
+                children[nId] = _children[nId];
+            }
+            else
+            {
+                children[nId] = ( nCount == 0 ) ? EMPTY : Arrays.copyOf( visibleChildren, nCount );
+            }
+        }
+
+        return new SpaceHierarchy( _parents, _names, _workgroups, children, exists, (BitSet) visible.clone(  ) );
+    }
+
+    /**
+     * Returns true if the space is known by the snapshot
+     * @param nId The space id
+     * @return true if the space exists
+     */
+    public boolean contains( int nId )
+    {
+        return isIndex( nId, _exists.length ) && _exists[nId];
+    }
+
+    /**
+     * Returns the parent id of a space
+     * @param nId The space id
+     * @return The parent id or {@link #NO_PARENT}
+     */
+    public int getParentId( int nId )
+    {
+        return contains( nId ) ? _parents[nId] : NO_PARENT;
+    }
+
+    /**
+     * Returns the name of a space
+     * @param nId The space id
+     * @return The name or null if the space is unknown
+     */
+    public String getName( int nId )
+    {
+        return contains( nId ) ? _names[nId] : null;
+    }
+
+    /**
+     * Returns the workgroup of a space
+     * @param nId The space id
+     * @return The workgroup key or null if the space has none or is unknown
+     */
+    public String getWorkgroup( int nId )
+    {
+        return contains( nId ) ? _workgroups[nId] : null;
+    }
+
+    /**
+     * Returns the distinct workgroups of the spaces, sorted
+     * @return The workgroup keys (spaces without workgroup are not counted)
+     */
+    public Set<String> getWorkgroups(  )
+    {
+        return _setWorkgroups;
+    }
+
+    /**
+     * Returns an upper bound of the space ids
+     * @return The highest space id plus one
+     */
+    public int getSize(  )
+    {
+        return _exists.length;
+    }
+
+    /**
+     * Returns true if this snapshot is restricted to the spaces visible by a
+     * user and the given space is not one of them
+     * @param nId The space id
+     * @return true if the space is hidden
+     */
+    public boolean isHidden( int nId )
+    {
+        return ( _visible != null ) && !( contains( nId ) && _visible.get( nId ) );
+    }
+
+    /**
+     * Returns the ids of the children of a space. The returned array is shared
+     * by all the readers of the snapshot and must not be modified.
+     * @param nId The space id
+     * @return The children ids (never null)
+     */
+    public int[] getChildIds( int nId )
+    {
+        return contains( nId ) ? _children[nId] : EMPTY;
+    }
+
+    /**
+     * Returns the id of the child space having the given name
+     * @param nParentId The parent space id
+     * @param strName The name
+     * @return The child id or {@link #NO_PARENT} if there is no such child
+     */
+    public int getChildId( int nParentId, String strName )
+    {
+        Integer nChildId = _mapChildrenByName.get( getNameKey( nParentId, strName ) );
+
+        return ( nChildId == null ) ? NO_PARENT : nChildId;
+    }
+
+    /**
+     * Returns the path of a space : the names of its ancestors, the root
+     * space excluded, separated by '/'. The path of the root is "/".
+     * @param nId The space id
+     * @return The path
+     */
+    public String getPath( int nId )
+    {
+        if ( !contains( nId ) || !contains( _parents[nId] ) )
+        {
+            return "/";
+        }
+
+        StringBuilder sbPath = new StringBuilder(  );
+        int nCurrent = nId;
+        int nDepth = 0;
+
+        // the depth limit protects against a corrupted (cyclic) hierarchy
+        while ( contains( nCurrent ) && contains( _parents[nCurrent] ) && ( nDepth++ < _exists.length ) )
+        {
+            sbPath.insert( 0, _names[nCurrent] ).insert( 0, '/' );
+            nCurrent = _parents[nCurrent];
+        }
+
+        return sbPath.toString(  );
+    }
+
+    /**
+     * Counts the spaces below a space, at any depth
+     * @param nId The space id
+     * @return The number of descendant spaces
+     */
+    public int countDescendants( int nId )
+    {
+        return contains( nId ) ? _subtreeSizes[nId] : 0;
+    }
+
+    /**
+     * Returns the creation time of this snapshot
+     * @return The time in milliseconds
+     */
+    public long getBuildTime(  )
+    {
+        return _lBuildTime;
+    }
+
+    /**
+     * Returns true if the snapshot already holds the given space with the same parent and name
+     * @param space The space
+     * @return true if nothing has to be patched
+     */
+    boolean isUpToDate( DocumentSpace space )
+    {
+        int nId = space.getId(  );
+
+        return contains( nId ) && ( _parents[nId] == space.getIdParent(  ) ) &&
+        equals( _names[nId], space.getName(  ) ) && equals( _workgroups[nId], space.getWorkgroup(  ) );
+    }
+
+    /**
+     * Returns true if a space is the same in this snapshot and in another one :
+     * unknown by both, or known by both with the same parent, name and workgroup
+     * @param other The other snapshot
+     * @param nId The space id
+     * @return true if the space hasn't changed
+     */
+    boolean isSameSpace( SpaceHierarchy other, int nId )
+    {
+        if ( !contains( nId ) )
+        {
+            return !other.contains( nId );
+        }
+
+        return other.contains( nId ) && ( _parents[nId] == other._parents[nId] ) &&
+        equals( _names[nId], other._names[nId] ) && equals( _workgroups[nId], other._workgroups[nId] );
+    }
+
+    /**
+     * Returns a new snapshot where the space is added or updated (created, moved or renamed)
+     * @param space The space
+     * @return The new snapshot
+     */
+    SpaceHierarchy withSpace( DocumentSpace space )
+    {
+        int nId = space.getId(  );
+        int nSize = Math.max( _exists.length, nId + 1 );
+        int[] parents = Arrays.copyOf( _parents, nSize );
+        String[] names = Arrays.copyOf( _names, nSize );
+        String[] workgroups = Arrays.copyOf( _workgroups, nSize );
+        boolean[] exists = Arrays.copyOf( _exists, nSize );
+        int[][] children = Arrays.copyOf( _children, nSize );
+
+        for ( int i = _exists.length; i < nSize; i++ )
+        {
+            parents[i] = NO_PARENT;
+            children[i] = EMPTY;
+        }
+
+        if ( contains( nId ) )
+        {
+            detach( children, nId, _parents[nId] );
+        }
+
+        parents[nId] = space.getIdParent(  );
+        names[nId] = space.getName(  );
+        workgroups[nId] = space.getWorkgroup(  );
+        exists[nId] = true;
+
+        int nParent = space.getIdParent(  );
+
+        if ( isIndex( nParent, nSize ) && ( nParent != nId ) )
+        {
+            int[] siblings = children[nParent];
+            int[] newSiblings = Arrays.copyOf( siblings, siblings.length + 1 );
+            newSiblings[siblings.length] = nId;
+            children[nParent] = newSiblings;
+        }
+
+        return new SpaceHierarchy( parents, names, workgroups, children, exists, null );
+    }
+
+    /**
+     * Returns a new snapshot without the given space
+     * @param nId The space id
+     * @return The new snapshot
+     */
+    SpaceHierarchy withoutSpace( int nId )
+    {
+        if ( !contains( nId ) )
+        {
+            return this;
+        }
+
+        int[] parents = _parents.clone(  );
+        String[] names = _names.clone(  );
+        String[] workgroups = _workgroups.clone(  );
+        boolean[] exists = _exists.clone(  );
+        int[][] children = _children.clone(  );
+
+        detach( children, nId, _parents[nId] );
+        parents[nId] = NO_PARENT;
+        names[nId] = null;
+        workgroups[nId] = null;
+        exists[nId] = false;
+
+        return new SpaceHierarchy( parents, names, workgroups, children, exists, null );
+    }
+
+    /**
+     * Removes a space from the children array of its parent (the array is replaced, never modified)
+     */
+    private static void detach( int[][] children, int nId, int nParent )
+    {
+        if ( !isIndex( nParent, children.length ) )
+        {
+            return;
+        }
+
+        int[] siblings = children[nParent];
+        int[] newSiblings = new int[siblings.length];
+        int nCount = 0;
+
+        for ( int nSibling : siblings )
+        {
+            if ( nSibling != nId )
+            {
+                newSiblings[nCount++] = nSibling;
+            }
+        }
+
+        children[nParent] = ( nCount == 0 ) ? EMPTY : Arrays.copyOf( newSiblings, nCount );
+    }
+
+    /**
+     * Counts the descendants of every space in a single walk : a space is
+     * counted once its children are. The spaces of a cycle, found in a
+     * corrupted hierarchy, are not counted below themselves.
+     */
+    private static int[] countSubtrees( int[][] children, boolean[] exists )
+    {
+        int nSize = exists.length;
+        int[] sizes = new int[nSize];
+        byte[] states = new byte[nSize];
+        int[] stack = new int[nSize];
+
+        for ( int nRoot = 0; nRoot < nSize; nRoot++ )
+        {
+            if ( !exists[nRoot] || ( states[nRoot] != STATE_NEW ) )
+            {
+                continue;
+            }
+
+            int nTop = 0;
+            stack[nTop++] = nRoot;
+            states[nRoot] = STATE_PENDING;
+
+            // each space has a single parent, so a space is pushed at most once
+            while ( nTop > 0 )
+            {
+                int nId = stack[nTop - 1];
+
+                if ( states[nId] == STATE_PENDING )
+                {
+                    states[nId] = STATE_OPEN;
+
+                    for ( int nChild : children[nId] )
+                    {
+                        if ( states[nChild] == STATE_NEW )
+                        {
+                            states[nChild] = STATE_PENDING;
+                            stack[nTop++] = nChild;
+                        }
+                    }
+                }
+                else
+                {
+                    nTop--;
+
+                    int nCount = 0;
+
+                    for ( int nChild : children[nId] )
+                    {
+                        if ( states[nChild] == STATE_COUNTED )
+                        {
+                            nCount += ( sizes[nChild] + 1 );
+                        }
+                    }
+
+                    sizes[nId] = nCount;
+                    states[nId] = STATE_COUNTED;
+                }
+            }
+        }
+
+        return sizes;
+    }
+
+    /**
+     * Indexes the children by name. The lowest id wins for duplicate names.
+     */
+    private static Map<String, Integer> indexNames( int[] parents, String[] names, boolean[] exists )
+    {
+        Map<String, Integer> map = new HashMap<String, Integer>(  );
+
+        // ids are visited in increasing order, so the first one is kept
+        for ( int nId = 0; nId < exists.length; nId++ )
+        {
+            if ( exists[nId] && ( names[nId] != null ) )
+            {
+                String strKey = getNameKey( parents[nId], names[nId] );
+
+                if ( !map.containsKey( strKey ) )
+                {
+                    map.put( strKey, nId );
+                }
+            }
+        }
+
+        return map;
+    }
+
+    private static Set<String> collectWorkgroups( String[] workgroups, boolean[] exists )
+    {
+        Set<String> setWorkgroups = new TreeSet<String>(  );
+
+        for ( int nId = 0; nId < exists.length; nId++ )
+        {
+            if ( exists[nId] && ( workgroups[nId] != null ) )
+            {
+                setWorkgroups.add( workgroups[nId] );
+            }
+        }
+
+        return Collections.unmodifiableSet( setWorkgroups );
+    }
+
+    /**
+     * Appends a value to the checksummed text of the spaces. The length
+     * prefix keeps the values apart whatever their characters, and tells a
+     * missing value from an empty one
+     */
+    private static void appendMarkerValue( StringBuilder sbSpaces, String strValue )
+    {
+        sbSpaces.append( MARKER_SEPARATOR ).append( ( strValue == null ) ? ( -1 ) : strValue.length(  ) )
+                .append( MARKER_SEPARATOR );
+
+        if ( strValue != null )
+        {
+            sbSpaces.append( strValue );
+        }
+    }
+
+    private static boolean equals( String str1, String str2 )
+    {
+        return ( str1 == null ) ? ( str2 == null ) : str1.equals( str2 );
+    }
+
+    private static String getNameKey( int nParentId, String strName )
+    {
+        return new StringBuilder( strName.length(  ) + 12 ).append( nParentId ).append( NAME_KEY_SEPARATOR )
+                                                            .append( strName ).toString(  );
+    }
+
+    private static boolean isIndex( int nId, int nSize )
+    {
+        return ( nId >= 0 ) && ( nId < nSize );
+    }
+}
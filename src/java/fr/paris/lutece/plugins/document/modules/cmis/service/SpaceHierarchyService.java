@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import fr.paris.lutece.plugins.document.business.spaces.DocumentSpace;
+import fr.paris.lutece.plugins.document.modules.cmis.business.CmisSpaceHome;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Space Hierarchy Service : holds the current snapshot of the space hierarchy.
+ * Readers get the snapshot without any lock and never reload it. The document
+ * plugin doesn't notify space changes, so a background thread reads the
+ * spaces at a short interval and compares their marker (a checksum of their
+ * ids, parents, names and workgroups) with the marker of the snapshot. The
+ * snapshot is rebuilt, from the rows already read, as soon as a space has
+ * been created, moved, renamed, deleted or has changed of workgroup. The
+ * snapshot is also reloaded when it is older than the refresh interval, and
+ * patched as soon as a changed space is loaded from the database.
+ */
+public final class SpaceHierarchyService
+{
+    private static final String PROPERTY_REFRESH_INTERVAL = "document-cmis.spaces.refreshInterval";
+    private static final String PROPERTY_CHECK_INTERVAL = "document-cmis.spaces.checkInterval";
+    private static final int DEFAULT_REFRESH_INTERVAL = 300;
+    private static final int DEFAULT_CHECK_INTERVAL = 5;
+    private static final String THREAD_NAME = "document-cmis-spaces";
+    private static SpaceHierarchyService _singleton = new SpaceHierarchyService(  );
+    private volatile SpaceHierarchy _hierarchy;
+    private String _strMarker;
+    private long _lRefreshInterval;
+    private ScheduledExecutorService _scheduler;
+
+    /**
+     * Private constructor
+     */
+    private SpaceHierarchyService(  )
+    {
+    }
+
+    /**
+     * Returns the unique instance
+     * @return The instance
+     */
+    public static SpaceHierarchyService getInstance(  )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Loads the snapshot and starts the background check of the spaces
+     */
+    public synchronized void init(  )
+    {
+        _lRefreshInterval = AppPropertiesService.getPropertyInt( PROPERTY_REFRESH_INTERVAL,
+                DEFAULT_REFRESH_INTERVAL ) * 1000L;
+
+        int nCheckInterval = AppPropertiesService.getPropertyInt( PROPERTY_CHECK_INTERVAL, DEFAULT_CHECK_INTERVAL );
+        reload(  );
+
+        if ( ( nCheckInterval > 0 ) && ( _scheduler == null ) )
+        {
+            _scheduler = Executors.newSingleThreadScheduledExecutor( new CheckThreadFactory(  ) );
+            _scheduler.scheduleWithFixedDelay( new Runnable(  )
+                {
+                    @Override
+                    public void run(  )
+                    {
+                        check(  );
+                    }
+                }, nCheckInterval, nCheckInterval, TimeUnit.SECONDS );
+        }
+    }
+
+    /**
+     * Stops the background check of the spaces
+     */
+    public synchronized void shutdown(  )
+    {
+        if ( _scheduler != null )
+        {
+            _scheduler.shutdownNow(  );
+            _scheduler = null;
+        }
+    }
+
+    /**
+     * Returns the current snapshot. The snapshot is only loaded by the request
+     * thread if it has never been loaded
+     * @return The snapshot
+     */
+    public SpaceHierarchy getHierarchy(  )
+    {
+        SpaceHierarchy hierarchy = _hierarchy;
+
+        return ( hierarchy == null ) ? reload(  ) : hierarchy;
+    }
+
+    /**
+     * Reloads the whole snapshot from the database
+     * @return The new snapshot
+     */
+    public synchronized SpaceHierarchy reload(  )
+    {
+        return load( CmisSpaceHome.findAllSpaces(  ) );
+    }
+
+    /**
+     * Notifies the service that a space has been loaded from the database.
+     * The snapshot is patched if the space has been created, moved or renamed.
+     * @param nId The space id
+     * @param space The space or null if it doesn't exist anymore
+     */
+    public void spaceLoaded( int nId, DocumentSpace space )
+    {
+        SpaceHierarchy hierarchy = _hierarchy;
+
+        if ( hierarchy == null )
+        {
+            return;
+        }
+
+        if ( space == null )
+        {
+            if ( hierarchy.contains( nId ) )
+            {
+                spaceRemoved( nId );
+            }
+        }
+        else if ( !hierarchy.isUpToDate( space ) )
+        {
+            spaceChanged( space );
+        }
+    }
+
+    /**
+     * Patches the snapshot with a created, moved or renamed space
+     * @param space The space
+     */
+    public synchronized void spaceChanged( DocumentSpace space )
+    {
+        if ( _hierarchy != null )
+        {
+            _hierarchy = _hierarchy.withSpace( space );
+        }
+
+        CmisObjectCacheService.getInstance(  ).removeSpace( space.getId(  ) );
+        MissingObjectCache.getInstance(  ).removeSpace( space.getId(  ) );
+    }
+
+    /**
+     * Patches the snapshot with a deleted space
+     * @param nId The space id
+     */
+    public synchronized void spaceRemoved( int nId )
+    {
+        if ( _hierarchy != null )
+        {
+            _hierarchy = _hierarchy.withoutSpace( nId );
+        }
+
+        CmisObjectCacheService.getInstance(  ).removeSpace( nId );
+    }
+
+    /**
+     * Background check : rebuilds the snapshot if the marker of the spaces has
+     * changed or if the snapshot is older than the refresh interval
+     */
+    private void check(  )
+    {
+        try
+        {
+            SpaceHierarchy hierarchy = _hierarchy;
+            List<DocumentSpace> listSpaces = CmisSpaceHome.findAllSpaces(  );
+
+            if ( ( hierarchy == null ) ||
+                    ( ( System.currentTimeMillis(  ) - hierarchy.getBuildTime(  ) ) > _lRefreshInterval ) ||
+                    !SpaceHierarchy.getMarker( listSpaces ).equals( getMarker(  ) ) )
+            {
+                load( listSpaces );
+            }
+        }
+        catch ( RuntimeException e )
+        {
+            // the next check will try again
+            AppLogService.error( "CMIS space hierarchy check failed : " + e.getMessage(  ), e );
+        }
+    }
+
+    private synchronized String getMarker(  )
+    {
+        return _strMarker;
+    }
+
+    private synchronized SpaceHierarchy load( List<DocumentSpace> listSpaces )
+    {
+        // the marker and the snapshot are built from the same rows
+        String strMarker = SpaceHierarchy.getMarker( listSpaces );
+        SpaceHierarchy hierarchy = SpaceHierarchy.build( listSpaces );
+        SpaceHierarchy previous = _hierarchy;
+        _hierarchy = hierarchy;
+        _strMarker = strMarker;
+
+        if ( previous != null )
+        {
+            // the cached objects of the created, moved, renamed and deleted spaces are stale
+            int nSize = Math.max( previous.getSize(  ), hierarchy.getSize(  ) );
+
+            for ( int nId = 0; nId < nSize; nId++ )
+            {
+                if ( !previous.isSameSpace( hierarchy, nId ) )
+                {
+                    CmisObjectCacheService.getInstance(  ).removeSpace( nId );
+                    MissingObjectCache.getInstance(  ).removeSpace( nId );
+                }
+            }
+        }
+
+        AppLogService.debug( "CMIS space hierarchy loaded" );
+
+        return hierarchy;
+    }
+
+    /**
+     * Creates the daemon thread of the background check
+     */
+    private static final class CheckThreadFactory implements ThreadFactory
+    {
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public Thread newThread( Runnable runnable )
+        {
+            Thread thread = new Thread( runnable, THREAD_NAME );
+            thread.setDaemon( true );
+
+            return thread;
+        }
+    }
+}
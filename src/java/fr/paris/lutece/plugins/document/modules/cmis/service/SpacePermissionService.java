@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import fr.paris.lutece.portal.business.user.AdminUser;
+import fr.paris.lutece.portal.business.user.AdminUserHome;
+import fr.paris.lutece.portal.business.workgroup.AdminWorkgroupHome;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.portal.service.workgroup.AdminWorkgroupService;
+
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.http.HttpServletRequest;
+
+
+/**
+ * Visibility of the spaces by user. A space is visible by a user if the
+ * user belongs to its workgroup (or if it is open to all the workgroups)
+ * and if its parent is visible. The visible spaces are computed once per
+ * set of workgroups from the space hierarchy snapshot and kept as a bitset,
+ * shared by all the users of the same workgroups, until the snapshot
+ * changes. Listings then read a snapshot restricted to these spaces.
+ * <br>The user is the remote user authenticated by the container, never the
+ * user name of the CMIS call context : the basic authentication handler of
+ * the bindings doesn't check the passwords. A request without an
+ * authenticated user only sees the spaces open to all the workgroups.
+ */
+public final class SpacePermissionService
+{
+    private static final String PROPERTY_ENABLED = "document-cmis.permissions.enabled";
+    private static final String PROPERTY_USERS_TIME_TO_LIVE = "document-cmis.permissions.users.timeToLive";
+    private static final String PROPERTY_USERS_MAX_SIZE = "document-cmis.permissions.users.maxSize";
+    private static final int DEFAULT_USERS_TIME_TO_LIVE = 300;
+    private static final int DEFAULT_USERS_MAX_SIZE = 1000;
+    private static final char KEY_SEPARATOR = ',';
+    private static final int UNKNOWN = 0;
+    private static final int VISIBLE = 1;
+    private static final int HIDDEN = 2;
+    private static SpacePermissionService _singleton = new SpacePermissionService(  );
+    private final Map<String, UserWorkgroups> _mapUsers = new LinkedHashMap<String, UserWorkgroups>( 16, 0.75f, true )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, UserWorkgroups> eldest )
+            {
+                return size(  ) > _nUsersMaxSize;
+            }
+        };
+
+    private final UserWorkgroups _anonymous = new UserWorkgroups( null );
+    private final Map<String, VisibleSpaces> _mapVisibleSpaces = new ConcurrentHashMap<String, VisibleSpaces>(  );
+    private boolean _bEnabled;
+    private long _lUsersTimeToLive = DEFAULT_USERS_TIME_TO_LIVE * 1000L;
+    private int _nUsersMaxSize = DEFAULT_USERS_MAX_SIZE;
+
+    /**
+     * Private constructor
+     */
+    private SpacePermissionService(  )
+    {
+    }
+
+    /**
+     * Returns the unique instance
+     * @return The instance
+     */
+    public static SpacePermissionService getInstance(  )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Initializes the service
+     */
+    public void init(  )
+    {
+        _bEnabled = AppPropertiesService.getPropertyBoolean( PROPERTY_ENABLED, false );
+        _lUsersTimeToLive = AppPropertiesService.getPropertyInt( PROPERTY_USERS_TIME_TO_LIVE,
+                DEFAULT_USERS_TIME_TO_LIVE ) * 1000L;
+
+        synchronized ( _mapUsers )
+        {
+            _nUsersMaxSize = AppPropertiesService.getPropertyInt( PROPERTY_USERS_MAX_SIZE, DEFAULT_USERS_MAX_SIZE );
+            _mapUsers.clear(  );
+        }
+
+        _mapVisibleSpaces.clear(  );
+
+        if ( _bEnabled )
+        {
+            AppLogService.info( "Document CMIS : spaces restricted to the workgroups of the users authenticated " +
+                "by the container. Requests without an authenticated user only see the spaces open to all." );
+        }
+    }
+
+    /**
+     * Returns the space hierarchy seen by the user of a request
+     * @param context The call context
+     * @return The current snapshot, restricted to the spaces visible by the user if the permissions are enabled
+     */
+    public SpaceHierarchy getHierarchy( CallContext context )
+    {
+        SpaceHierarchy hierarchy = SpaceHierarchyService.getInstance(  ).getHierarchy(  );
+
+        if ( !_bEnabled )
+        {
+            return hierarchy;
+        }
+
+        UserWorkgroups user = getUser( getAuthenticatedUser( context ) );
+
+        // users of the same workgroups share the same visible spaces
+        StringBuilder sbKey = new StringBuilder(  );
+
+        for ( String strWorkgroup : hierarchy.getWorkgroups(  ) )
+        {
+            if ( user.isInWorkgroup( strWorkgroup ) )
+            {
+                sbKey.append( strWorkgroup ).append( KEY_SEPARATOR );
+            }
+        }
+
+        String strKey = sbKey.toString(  );
+        VisibleSpaces visibleSpaces = _mapVisibleSpaces.get( strKey );
+
+        if ( ( visibleSpaces == null ) || ( visibleSpaces._source != hierarchy ) )
+        {
+            BitSet visible = computeVisibleSpaces( hierarchy, user );
+            visibleSpaces = new VisibleSpaces( hierarchy, hierarchy.restrictTo( visible ) );
+            _mapVisibleSpaces.put( strKey, visibleSpaces );
+        }
+
+        return visibleSpaces._restricted;
+    }
+
+    /**
+     * Returns the user authenticated by the container for a request
+     * @param context The call context
+     * @return The login of the remote user, or null if the request is not authenticated
+     */
+    private static String getAuthenticatedUser( CallContext context )
+    {
+        if ( context == null )
+        {
+            return null;
+        }
+
+        HttpServletRequest request = (HttpServletRequest) context.get( CallContext.HTTP_SERVLET_REQUEST );
+
+        return ( request == null ) ? null : request.getRemoteUser(  );
+    }
+
+    /**
+     * Returns the workgroups of a user. Only the existing users are kept, in a
+     * bounded map, so that unknown logins never grow it
+     * @param strLogin The login or null for an anonymous request
+     * @return The workgroups of the user, or the anonymous workgroups for an unknown user
+     */
+    private UserWorkgroups getUser( String strLogin )
+    {
+        if ( strLogin == null )
+        {
+            return _anonymous;
+        }
+
+        UserWorkgroups user;
+
+        synchronized ( _mapUsers )
+        {
+            user = _mapUsers.get( strLogin );
+        }
+
+        if ( ( user != null ) && !user.isExpired(  ) )
+        {
+            return user;
+        }
+
+        AdminUser adminUser = AdminUserHome.findUserByLogin( strLogin );
+
+        if ( adminUser == null )
+        {
+            return _anonymous;
+        }
+
+        user = new UserWorkgroups( adminUser );
+
+        synchronized ( _mapUsers )
+        {
+            _mapUsers.put( strLogin, user );
+        }
+
+        return user;
+    }
+
+    /**
+     * Computes the visible spaces : a space is visible if its workgroup is
+     * authorized and if its parent is visible
+     */
+    private static BitSet computeVisibleSpaces( SpaceHierarchy hierarchy, UserWorkgroups user )
+    {
+        int nSize = hierarchy.getSize(  );
+        int[] states = new int[nSize];
+        int[] stack = new int[nSize + 1];
+        BitSet visible = new BitSet( nSize );
+
+        for ( int nId = 0; nId < nSize; nId++ )
+        {
+            if ( !hierarchy.contains( nId ) )
+            {
+                continue;
+            }
+
+            // push the ancestors whose state is unknown, then resolve them from the top
+            int nTop = 0;
+            int nCurrent = nId;
+
+            while ( hierarchy.contains( nCurrent ) && ( states[nCurrent] == UNKNOWN ) && ( nTop < nSize ) )
+            {
+                stack[nTop++] = nCurrent;
+
+                int nParent = hierarchy.getParentId( nCurrent );
+                nCurrent = ( nParent == nCurrent ) ? SpaceHierarchy.NO_PARENT : nParent;
+            }
+
+            boolean bParentVisible = !hierarchy.contains( nCurrent ) || ( states[nCurrent] == VISIBLE );
+
+            while ( nTop > 0 )
+            {
+                int nSpace = stack[--nTop];
+                bParentVisible = bParentVisible && user.isInWorkgroup( hierarchy.getWorkgroup( nSpace ) );
+                states[nSpace] = bParentVisible ? VISIBLE : HIDDEN;
+
+                if ( bParentVisible )
+                {
+                    visible.set( nSpace );
+                }
+            }
+        }
+
+        return visible;
+    }
+
+    /**
+     * Visible spaces of a set of workgroups for a snapshot
+     */
+    private static final class VisibleSpaces
+    {
+        private final SpaceHierarchy _source;
+        private final SpaceHierarchy _restricted;
+
+        VisibleSpaces( SpaceHierarchy source, SpaceHierarchy restricted )
+        {
+            _source = source;
+            _restricted = restricted;
+        }
+    }
+
+    /**
+     * Workgroups of a user, checked once per workgroup and kept for a time to live
+     */
+    private final class UserWorkgroups
+    {
+        private final AdminUser _user;
+        private final Map<String, Boolean> _mapWorkgroups = new ConcurrentHashMap<String, Boolean>(  );
+        private final long _lLoadTime = System.currentTimeMillis(  );
+
+        UserWorkgroups( AdminUser user )
+        {
+            _user = user;
+        }
+
+        boolean isExpired(  )
+        {
+            return ( _user != null ) && ( ( System.currentTimeMillis(  ) - _lLoadTime ) > _lUsersTimeToLive );
+        }
+
+        boolean isInWorkgroup( String strWorkgroup )
+        {
+            if ( ( strWorkgroup == null ) || AdminWorkgroupService.ALL_GROUPS.equals( strWorkgroup ) )
+            {
+                return true;
+            }
+
+            if ( _user == null )
+            {
+                return false;
+            }
+
+            Boolean bMember = _mapWorkgroups.get( strWorkgroup );
+
+            if ( bMember == null )
+            {
+                bMember = AdminWorkgroupHome.isUserInWorkgroup( _user, strWorkgroup );
+                _mapWorkgroups.put( strWorkgroup, bMember );
+            }
+
+            return bMember;
+        }
+    }
+}
@@ -33,6 +33,9 @@
  */
 package fr.paris.lutece.plugins.document.modules.cmis.service;
 
+import fr.paris.lutece.plugins.document.business.DocumentType;
+import fr.paris.lutece.plugins.document.business.attributes.DocumentAttribute;
+
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
@@ -41,12 +44,15 @@ import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionList;
 import org.apache.chemistry.opencmis.commons.enums.*;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.impl.Converter;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.*;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.server.shared.SharedTypeCache;
 
 import java.math.BigInteger;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -77,15 +83,78 @@ public class TypeManager
      */
     public static final String POLICY_TYPE_ID = BaseTypeId.CMIS_POLICY.value(  );
     private static final String NAMESPACE = "http://opencmis.org/fileshare";
+    private static final String PREFIX_DOCUMENT_TYPE = "lutece:";
+    private static final String PROPERTY_SEPARATOR = ".";
+    private static final String ATTRIBUTE_TYPE_RICHTEXT = "richtext";
+    private static final String ATTRIBUTE_TYPE_NUMERIC = "numerictext";
+    private static final String ATTRIBUTE_TYPE_URL = "url";
+    private static final String ATTRIBUTE_TYPE_FILE = "file";
+    private static final String ATTRIBUTE_TYPE_IMAGE = "image";
     private Map<String, TypeDefinitionContainerImpl> types;
+    private Map<String, TypeDefinition> typesWithoutProperties;
     private List<TypeDefinitionContainer> typesList;
+    private Map<String, String> documentTypeIds;
+    private Map<String, List<PropertyDefinition<?>>> attributeDefinitions;
+    private final long version;
 
     /**
-     *
+     * Creates the base types and a document subtype for each document type
+     * @param version The version of the document types
+     * @param documentTypes The document types with their attributes
      */
-    public TypeManager(  )
+    public TypeManager( long version, List<DocumentType> documentTypes )
     {
+        this.version = version;
         setup(  );
+
+        for ( DocumentType documentType : documentTypes )
+        {
+            addDocumentSubtype( documentType );
+        }
+    }
+
+    /**
+     * Returns the version of the document types the types were built from
+     * @return The version
+     */
+    public long getVersion(  )
+    {
+        return version;
+    }
+
+    /**
+     * Returns the id of the CMIS type of a document
+     * @param codeDocumentType The code of the document type
+     * @return The id of the document subtype, or cmis:document if the document type has no subtype
+     */
+    public String getDocumentTypeId( String codeDocumentType )
+    {
+        String typeId = ( codeDocumentType == null ) ? null : documentTypeIds.get( codeDocumentType );
+
+        return ( typeId == null ) ? DOCUMENT_TYPE_ID : typeId;
+    }
+
+    /**
+     * Returns true if a property id is the id of a property holding a document attribute
+     * @param propertyId The property id
+     * @return true for an attribute property
+     */
+    public static boolean isAttributePropertyId( String propertyId )
+    {
+        return propertyId.startsWith( PREFIX_DOCUMENT_TYPE );
+    }
+
+    /**
+     * Returns the definitions of the properties holding the attributes of a
+     * document subtype. The local name of a definition is the attribute code
+     * @param typeId The type id
+     * @return The definitions, empty for a base type
+     */
+    public List<PropertyDefinition<?>> getAttributeDefinitions( String typeId )
+    {
+        List<PropertyDefinition<?>> definitions = attributeDefinitions.get( typeId );
+
+        return ( definitions == null ) ? Collections.<PropertyDefinition<?>>emptyList(  ) : definitions;
     }
 
     /**
@@ -94,7 +163,10 @@ public class TypeManager
     private void setup(  )
     {
         types = new HashMap<String, TypeDefinitionContainerImpl>(  );
+        typesWithoutProperties = new HashMap<String, TypeDefinition>(  );
         typesList = new ArrayList<TypeDefinitionContainer>(  );
+        documentTypeIds = new HashMap<String, String>(  );
+        attributeDefinitions = new HashMap<String, List<PropertyDefinition<?>>>(  );
 
         // folder type
         FolderTypeDefinitionImpl folderType = new FolderTypeDefinitionImpl(  );
@@ -186,6 +258,99 @@ public class TypeManager
         // addTypeInteral(policyType);
     }
 
+    /**
+     * Creates the subtype of cmis:document of a document type. The text
+     * attributes are read only properties, the binary attributes are only
+     * served by the content stream
+     */
+    private void addDocumentSubtype( DocumentType documentType )
+    {
+        String typeId = PREFIX_DOCUMENT_TYPE + documentType.getCode(  );
+
+        DocumentTypeDefinitionImpl type = new DocumentTypeDefinitionImpl(  );
+        type.setBaseTypeId( BaseTypeId.CMIS_DOCUMENT );
+        type.setParentTypeId( DOCUMENT_TYPE_ID );
+        type.setIsControllableAcl( false );
+        type.setIsControllablePolicy( false );
+        type.setIsCreatable( false );
+        type.setDescription( documentType.getDescription(  ) );
+        type.setDisplayName( documentType.getName(  ) );
+        type.setIsFileable( true );
+        type.setIsFulltextIndexed( false );
+        type.setIsIncludedInSupertypeQuery( true );
+        type.setLocalName( documentType.getCode(  ) );
+        type.setLocalNamespace( NAMESPACE );
+        type.setIsQueryable( false );
+        type.setQueryName( typeId );
+        type.setId( typeId );
+
+        type.setIsVersionable( false );
+        type.setContentStreamAllowed( ContentStreamAllowed.ALLOWED );
+
+        addBasePropertyDefinitions( type );
+        addDocumentPropertyDefinitions( type );
+
+        for ( PropertyDefinition<?> propDef : type.getPropertyDefinitions(  ).values(  ) )
+        {
+            ( (AbstractPropertyDefinition<?>) propDef ).setIsInherited( true );
+        }
+
+        List<PropertyDefinition<?>> definitions = new ArrayList<PropertyDefinition<?>>(  );
+
+        for ( DocumentAttribute attribute : documentType.getAttributes(  ) )
+        {
+            PropertyType datatype = getPropertyType( attribute.getCodeAttributeType(  ) );
+
+            if ( datatype == null )
+            {
+                continue;
+            }
+
+            String id = typeId + PROPERTY_SEPARATOR + attribute.getCode(  );
+            AbstractPropertyDefinition<?> propDef = (AbstractPropertyDefinition<?>) createPropDef( id,
+                    attribute.getName(  ), attribute.getDescription(  ), datatype, Cardinality.SINGLE,
+                    Updatability.READONLY, false, attribute.isRequired(  ) );
+            propDef.setLocalName( attribute.getCode(  ) );
+            type.addPropertyDefinition( propDef );
+            definitions.add( propDef );
+        }
+
+        addTypeInteral( type );
+        documentTypeIds.put( documentType.getCode(  ), typeId );
+        attributeDefinitions.put( typeId, Collections.unmodifiableList( definitions ) );
+    }
+
+    /**
+     * Returns the property type of a document attribute type
+     * @param codeAttributeType The code of the attribute type
+     * @return The property type, or null for a binary attribute
+     */
+    private static PropertyType getPropertyType( String codeAttributeType )
+    {
+        if ( ATTRIBUTE_TYPE_FILE.equals( codeAttributeType ) || ATTRIBUTE_TYPE_IMAGE.equals( codeAttributeType ) )
+        {
+            return null;
+        }
+
+        if ( ATTRIBUTE_TYPE_RICHTEXT.equals( codeAttributeType ) )
+        {
+            return PropertyType.HTML;
+        }
+
+        if ( ATTRIBUTE_TYPE_NUMERIC.equals( codeAttributeType ) )
+        {
+            return PropertyType.INTEGER;
+        }
+
+        if ( ATTRIBUTE_TYPE_URL.equals( codeAttributeType ) )
+        {
+            return PropertyType.URI;
+        }
+
+        // text, text area, date, list box, check box... : the value is the text stored by the document plugin
+        return PropertyType.STRING;
+    }
+
     private static void addBasePropertyDefinitions( AbstractTypeDefinition type )
     {
         type.addPropertyDefinition( createPropDef( PropertyIds.BASE_TYPE_ID, "Base Type Id", "Base Type Id",
@@ -400,6 +565,9 @@ public class TypeManager
         // add it
         addTypeInteral( newType );
 
+        // the definitions shared by the browser binding requests are stale
+        SharedTypeCache.invalidateAll(  );
+
         return true;
     }
 
@@ -440,6 +608,21 @@ public class TypeManager
 
         types.put( type.getId(  ), tc );
         typesList.add( tc );
+
+        // the variant without property definitions is built once, the shared definition is never modified
+        TypeDefinition typeWithoutProperties = copyTypeDefintion( type );
+        typeWithoutProperties.getPropertyDefinitions(  ).clear(  );
+        typesWithoutProperties.put( type.getId(  ), typeWithoutProperties );
+    }
+
+    /**
+     * Returns the shared definition of a type, with or without its property definitions
+     */
+    private TypeDefinition getTypeDefinition( TypeDefinitionContainer tc, boolean includePropertyDefinitions )
+    {
+        TypeDefinition type = tc.getTypeDefinition(  );
+
+        return includePropertyDefinitions ? type : typesWithoutProperties.get( type.getId(  ) );
     }
 
     /**
@@ -474,13 +657,14 @@ public class TypeManager
         {
             if ( skip < 1 )
             {
-                result.getList(  ).add( copyTypeDefintion( types.get( FOLDER_TYPE_ID ).getTypeDefinition(  ) ) );
+                result.getList(  ).add( getTypeDefinition( types.get( FOLDER_TYPE_ID ), includePropertyDefinitions ) );
                 max--;
             }
 
             if ( ( skip < 2 ) && ( max > 0 ) )
             {
-                result.getList(  ).add( copyTypeDefintion( types.get( DOCUMENT_TYPE_ID ).getTypeDefinition(  ) ) );
+                result.getList(  )
+                      .add( getTypeDefinition( types.get( DOCUMENT_TYPE_ID ), includePropertyDefinitions ) );
                 max--;
             }
 
@@ -505,7 +689,7 @@ public class TypeManager
                     continue;
                 }
 
-                result.getList(  ).add( copyTypeDefintion( child.getTypeDefinition(  ) ) );
+                result.getList(  ).add( getTypeDefinition( child, includePropertyDefinitions ) );
 
                 max--;
 
@@ -519,14 +703,6 @@ public class TypeManager
             result.setNumItems( BigInteger.valueOf( tc.getChildren(  ).size(  ) ) );
         }
 
-        if ( !includePropertyDefinitions )
-        {
-            for ( TypeDefinition type : result.getList(  ) )
-            {
-                type.getPropertyDefinitions(  ).clear(  );
-            }
-        }
-
         return result;
     }
 
@@ -585,14 +761,7 @@ public class TypeManager
     {
         TypeDefinitionContainerImpl result = new TypeDefinitionContainerImpl(  );
 
-        TypeDefinition type = copyTypeDefintion( tc.getTypeDefinition(  ) );
-
-        if ( !includePropertyDefinitions )
-        {
-            type.getPropertyDefinitions(  ).clear(  );
-        }
-
-        result.setTypeDefinition( type );
+        result.setTypeDefinition( getTypeDefinition( tc, includePropertyDefinitions ) );
 
         if ( depth != 0 )
         {
@@ -633,7 +802,7 @@ public class TypeManager
      * CMIS getTypeDefinition.
      * @param context
      * @param typeId
-     * @return
+     * @return The shared definition, that must not be modified
      */
     public TypeDefinition getTypeDefinition( CallContext context, String typeId )
     {
@@ -644,13 +813,11 @@ public class TypeManager
             throw new CmisObjectNotFoundException( "Type '" + typeId + "' is unknown!" );
         }
 
-        return copyTypeDefintion( tc.getTypeDefinition(  ) );
+        return tc.getTypeDefinition(  );
     }
 
     private static TypeDefinition copyTypeDefintion( TypeDefinition type )
     {
-        return type;
-
-        //        return Converter.convert(Converter.convert(type));
+        return Converter.convert( Converter.convert( type ) );
     }
 }
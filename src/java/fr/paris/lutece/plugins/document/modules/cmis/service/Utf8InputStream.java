@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import java.io.InputStream;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+
+
+/**
+ * Input stream that encodes a text in UTF-8 while it is read. Only one chunk
+ * of bytes is held at a time, so that serving a document does not need a
+ * second copy of its content as a byte array. The text itself is held in
+ * memory : the heap used by a download remains proportional to the size of
+ * the document.
+ * <br>Invalid surrogates are replaced by '?', as done by String.getBytes, so
+ * that the number of bytes is the one given by
+ * {@link ContentLengthService#getUtf8Length(CharSequence)}.
+ * <br>A range of the bytes can be served : the characters before the offset
+ * are skipped without being encoded.
+ */
+public final class Utf8InputStream extends InputStream
+{
+    private static final int CHUNK_SIZE = 8 * 1024;
+    private final CharSequence _strText;
+    private final CharBuffer _chars;
+    private final CharsetEncoder _encoder;
+    private final ByteBuffer _bytes;
+    private boolean _bEndOfInput;
+    private boolean _bFlushed;
+    private long _lRemaining;
+
+    /**
+     * Constructor
+     * @param strText The text to encode
+     */
+    public Utf8InputStream( CharSequence strText )
+    {
+        this( strText, 0, Long.MAX_VALUE );
+    }
+
+    /**
+     * Constructor for a range of the bytes
+     * @param strText The text to encode
+     * @param lOffset The number of bytes to skip
+     * @param lLength The maximum number of bytes to serve
+     */
+    public Utf8InputStream( CharSequence strText, long lOffset, long lLength )
+    {
+        _strText = strText;
+        _lRemaining = Long.MAX_VALUE;
+        _chars = CharBuffer.wrap( strText );
+        _encoder = Charset.forName( ContentLengthService.CONTENT_CHARSET ).newEncoder(  )
+                          .onMalformedInput( CodingErrorAction.REPLACE )
+                          .onUnmappableCharacter( CodingErrorAction.REPLACE );
+        _bytes = ByteBuffer.allocate( CHUNK_SIZE );
+        _bytes.flip(  );
+        skip( lOffset );
+        _lRemaining = lLength;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int read(  )
+    {
+        if ( ( _lRemaining <= 0 ) || !fill(  ) )
+        {
+            return -1;
+        }
+
+        _lRemaining--;
+
+        return _bytes.get(  ) & 0xFF;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int read( byte[] buffer, int nOffset, int nLength )
+    {
+        if ( nLength == 0 )
+        {
+            return 0;
+        }
+
+        if ( ( _lRemaining <= 0 ) || !fill(  ) )
+        {
+            return -1;
+        }
+
+        int nRead = (int) Math.min( Math.min( nLength, _bytes.remaining(  ) ), _lRemaining );
+        _bytes.get( buffer, nOffset, nRead );
+        _lRemaining -= nRead;
+
+        return nRead;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public long skip( long lCount )
+    {
+        long lTarget = Math.min( lCount, _lRemaining );
+        long lSkipped = skipEncoded( lTarget );
+
+        // whole characters are skipped without encoding them
+        while ( ( lSkipped < lTarget ) && _chars.hasRemaining(  ) && !_bEndOfInput )
+        {
+            int nPosition = _chars.position(  );
+            int nBytes = ContentLengthService.getUtf8Length( _strText, nPosition );
+
+            if ( ( lSkipped + nBytes ) > lTarget )
+            {
+                break;
+            }
+
+            lSkipped += nBytes;
+            _chars.position( nPosition + ( ( nBytes == 4 ) ? 2 : 1 ) );
+        }
+
+        // the character that holds the target byte is encoded
+        while ( ( lSkipped < lTarget ) && fill(  ) )
+        {
+            lSkipped += skipEncoded( lTarget - lSkipped );
+        }
+
+        _lRemaining -= lSkipped;
+
+        return lSkipped;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int available(  )
+    {
+        return (int) Math.min( _bytes.remaining(  ), _lRemaining );
+    }
+
+    /**
+     * Skips bytes of the current chunk
+     * @param lCount The maximum number of bytes to skip
+     * @return The number of bytes skipped
+     */
+    private long skipEncoded( long lCount )
+    {
+        int nSkipped = (int) Math.min( lCount, _bytes.remaining(  ) );
+        _bytes.position( _bytes.position(  ) + nSkipped );
+
+        return nSkipped;
+    }
+
+    /**
+     * Encodes the next chunk when the current one has been read
+     * @return false at the end of the text
+     */
+    private boolean fill(  )
+    {
+        while ( !_bytes.hasRemaining(  ) && !_bFlushed )
+        {
+            _bytes.clear(  );
+
+            if ( !_bEndOfInput )
+            {
+                // an underflow means that the whole text has been encoded
+                _bEndOfInput = _encoder.encode( _chars, _bytes, true ).isUnderflow(  );
+            }
+
+            if ( _bEndOfInput )
+            {
+                _bFlushed = _encoder.flush( _bytes ).isUnderflow(  );
+            }
+
+            _bytes.flip(  );
+        }
+
+        return _bytes.hasRemaining(  );
+    }
+}
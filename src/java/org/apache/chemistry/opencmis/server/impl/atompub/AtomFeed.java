@@ -20,6 +20,7 @@ package org.apache.chemistry.opencmis.server.impl.atompub;
 
 import org.apache.chemistry.opencmis.commons.impl.Constants;
 import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+import org.apache.chemistry.opencmis.server.shared.ContinuationTokens;
 
 import java.math.BigInteger;
 
@@ -127,6 +128,17 @@ public class AtomFeed extends AtomDocumentBase
      */
     public void writePagingLinks( UrlBuilder pagingUrl, BigInteger maxItems, BigInteger skipCount, BigInteger numItems,
         Boolean hasMoreItems, BigInteger pageSize ) throws XMLStreamException
+    {
+        writePagingLinks( pagingUrl, maxItems, skipCount, numItems, hasMoreItems, pageSize, null );
+    }
+
+    /**
+     * Writes paging links. If a continuation token is given, the "next" link
+     * reads the next page with the token instead of a skip count.
+     */
+    public void writePagingLinks( UrlBuilder pagingUrl, BigInteger maxItems, BigInteger skipCount, BigInteger numItems,
+        Boolean hasMoreItems, BigInteger pageSize, String continuationToken )
+        throws XMLStreamException
     {
         if ( ( skipCount == null ) || ( skipCount.compareTo( BigInteger.ZERO ) == -1 ) )
         {
@@ -166,7 +178,16 @@ public class AtomFeed extends AtomDocumentBase
         {
             // next link
             UrlBuilder nextLink = new UrlBuilder( pagingUrl );
-            nextLink.addParameter( Constants.PARAM_SKIP_COUNT, skipCount.add( maxItems ) );
+
+            if ( continuationToken != null )
+            {
+                nextLink.addParameter( ContinuationTokens.PARAM_CONTINUATION_TOKEN, continuationToken );
+            }
+            else
+            {
+                nextLink.addParameter( Constants.PARAM_SKIP_COUNT, skipCount.add( maxItems ) );
+            }
+
             nextLink.addParameter( Constants.PARAM_MAX_ITEMS, maxItems );
             writeNextLink( nextLink.toString(  ) );
         }
@@ -61,10 +61,12 @@ import org.apache.chemistry.opencmis.server.shared.CallContextHandler;
 import org.apache.chemistry.opencmis.server.shared.Dispatcher;
 import static org.apache.chemistry.opencmis.server.shared.Dispatcher.METHOD_DELETE;
 import static org.apache.chemistry.opencmis.server.shared.Dispatcher.METHOD_GET;
+import static org.apache.chemistry.opencmis.server.shared.Dispatcher.METHOD_HEAD;
 import static org.apache.chemistry.opencmis.server.shared.Dispatcher.METHOD_POST;
 import static org.apache.chemistry.opencmis.server.shared.Dispatcher.METHOD_PUT;
 import org.apache.chemistry.opencmis.server.shared.ExceptionHelper;
 import org.apache.chemistry.opencmis.server.shared.HttpUtils;
+import org.apache.chemistry.opencmis.server.shared.NoBodyHttpServletResponse;
 
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.logging.Log;
@@ -174,6 +176,13 @@ public class CmisAtomPubServlet extends HttpServlet
     protected void service( HttpServletRequest request, HttpServletResponse response )
         throws ServletException, IOException
     {
+        // a HEAD request is served as a GET request without body
+        if ( METHOD_HEAD.equals( request.getMethod(  ) ) )
+        {
+            request = HttpUtils.toGetRequest( request );
+            response = new NoBodyHttpServletResponse( response );
+        }
+
         // set default headers
         response.addHeader( "Cache-Control", "private, max-age=0" );
         response.addHeader( "Server", ServerVersion.OPENCMIS_SERVER );
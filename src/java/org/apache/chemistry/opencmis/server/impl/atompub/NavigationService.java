@@ -49,6 +49,7 @@ import static org.apache.chemistry.opencmis.server.impl.atompub.AtomPubUtils.com
 import static org.apache.chemistry.opencmis.server.impl.atompub.AtomPubUtils.compileUrl;
 import static org.apache.chemistry.opencmis.server.impl.atompub.AtomPubUtils.compileUrlBuilder;
 import static org.apache.chemistry.opencmis.server.impl.atompub.AtomPubUtils.writeObjectEntry;
+import org.apache.chemistry.opencmis.server.shared.ContinuationTokens;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getBigIntegerParameter;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getBooleanParameter;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getEnumParameter;
@@ -90,11 +91,12 @@ public final class NavigationService
         Boolean includePathSegment = getBooleanParameter( request, Constants.PARAM_PATH_SEGMENT );
         BigInteger maxItems = getBigIntegerParameter( request, Constants.PARAM_MAX_ITEMS );
         BigInteger skipCount = getBigIntegerParameter( request, Constants.PARAM_SKIP_COUNT );
+        String continuationToken = getStringParameter( request, ContinuationTokens.PARAM_CONTINUATION_TOKEN );
 
         // execute
         ObjectInFolderList children = service.getChildren( repositoryId, folderId, filter, orderBy,
                 includeAllowableActions, includeRelationships, renditionFilter, includePathSegment, maxItems,
-                skipCount, null );
+                skipCount, ContinuationTokens.createExtension( continuationToken ) );
 
         if ( children == null )
         {
@@ -182,7 +184,7 @@ public final class NavigationService
         pagingUrl.addParameter( Constants.PARAM_RENDITION_FILTER, renditionFilter );
         pagingUrl.addParameter( Constants.PARAM_PATH_SEGMENT, includePathSegment );
         feed.writePagingLinks( pagingUrl, maxItems, skipCount, children.getNumItems(  ), children.hasMoreItems(  ),
-            AtomPubUtils.PAGE_SIZE );
+            AtomPubUtils.PAGE_SIZE, ContinuationTokens.getToken( children ) );
 
         // write collection
         feed.writeCollection( compileUrl( baseUrl, RESOURCE_CHILDREN, folderInfo.getId(  ) ), null,
@@ -473,10 +475,12 @@ public final class NavigationService
         String renditionFilter = getStringParameter( request, Constants.PARAM_RENDITION_FILTER );
         BigInteger maxItems = getBigIntegerParameter( request, Constants.PARAM_MAX_ITEMS );
         BigInteger skipCount = getBigIntegerParameter( request, Constants.PARAM_SKIP_COUNT );
+        String continuationToken = getStringParameter( request, ContinuationTokens.PARAM_CONTINUATION_TOKEN );
 
         // execute
         ObjectList checkedOut = service.getCheckedOutDocs( repositoryId, folderId, filter, orderBy,
-                includeAllowableActions, includeRelationships, renditionFilter, maxItems, skipCount, null );
+                includeAllowableActions, includeRelationships, renditionFilter, maxItems, skipCount,
+                ContinuationTokens.createExtension( continuationToken ) );
 
         if ( checkedOut == null )
         {
@@ -537,7 +541,7 @@ public final class NavigationService
         pagingUrl.addParameter( Constants.PARAM_RELATIONSHIPS, includeRelationships );
         pagingUrl.addParameter( Constants.PARAM_RENDITION_FILTER, renditionFilter );
         feed.writePagingLinks( pagingUrl, maxItems, skipCount, checkedOut.getNumItems(  ), checkedOut.hasMoreItems(  ),
-            AtomPubUtils.PAGE_SIZE );
+            AtomPubUtils.PAGE_SIZE, ContinuationTokens.getToken( checkedOut ) );
 
         // write entries
         if ( checkedOut.getObjects(  ) != null )
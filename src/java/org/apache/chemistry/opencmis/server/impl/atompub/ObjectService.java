@@ -47,11 +47,11 @@ import static org.apache.chemistry.opencmis.server.impl.atompub.AtomPubUtils.wri
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getBooleanParameter;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getEnumParameter;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getStringParameter;
+import static org.apache.chemistry.opencmis.server.shared.HttpUtils.isRangeNotSatisfiable;
+import static org.apache.chemistry.opencmis.server.shared.HttpUtils.isRangeRequest;
+import static org.apache.chemistry.opencmis.server.shared.HttpUtils.setContentHeaders;
+import static org.apache.chemistry.opencmis.server.shared.HttpUtils.writeContent;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.PrintWriter;
 
 import java.math.BigInteger;
@@ -67,7 +67,6 @@ import javax.servlet.http.HttpServletResponse;
  */
 public final class ObjectService
 {
-    private static final int BUFFER_SIZE = 64 * 1024;
 
     private ObjectService(  )
     {
@@ -476,7 +475,11 @@ public final class ObjectService
         }
 
         // set headers
-        if ( ( offset == null ) && ( length == null ) )
+        if ( isRangeNotSatisfiable( content ) )
+        {
+            response.setStatus( HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE );
+        }
+        else if ( !isRangeRequest( context ) )
         {
             response.setStatus( HttpServletResponse.SC_OK );
         }
@@ -487,20 +490,10 @@ public final class ObjectService
 
         response.setContentType( contentType );
 
-        // send content
-        InputStream in = new BufferedInputStream( content.getStream(  ), BUFFER_SIZE );
-        OutputStream out = new BufferedOutputStream( response.getOutputStream(  ) );
-
-        byte[] buffer = new byte[BUFFER_SIZE];
-        int b;
+        setContentHeaders( response, content, context );
 
-        while ( ( b = in.read( buffer ) ) > -1 )
-        {
-            out.write( buffer, 0, b );
-        }
-
-        in.close(  );
-        out.flush(  );
+        // send content
+        writeContent( response, content );
     }
 
     /**
@@ -51,9 +51,14 @@ import static org.apache.chemistry.opencmis.server.impl.atompub.AtomPubUtils.wri
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getBigIntegerParameter;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getBooleanParameter;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getStringParameter;
+import org.apache.chemistry.opencmis.server.shared.SerializedResponseCache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 
 import java.math.BigInteger;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.GregorianCalendar;
 import java.util.List;
@@ -67,6 +72,12 @@ import javax.servlet.http.HttpServletResponse;
  */
 public final class RepositoryService
 {
+    private static final String CHARSET = "UTF-8";
+    private static final SerializedResponseCache SERVICE_DOCUMENTS = new SerializedResponseCache(  );
+    private static final int TYPES_CACHE_SIZE = 256;
+    private static final SerializedResponseCache TYPE_DOCUMENTS = new SerializedResponseCache( TYPES_CACHE_SIZE );
+    private static final String KEY_SEPARATOR = "|";
+
     /**
      * Private constructor.
      */
@@ -100,14 +111,30 @@ public final class RepositoryService
             }
         }
 
-        // set headers
-        response.setStatus( HttpServletResponse.SC_OK );
-        response.setContentType( Constants.MEDIATYPE_SERVICE );
+        // the document only depends on the URL and on the repository infos
+        String key = compileBaseUrl( request, null ).toString(  ) + "?" + repositoryId;
+        SerializedResponseCache.Entry entry = SERVICE_DOCUMENTS.get( key, infoDataList );
 
+        if ( entry == null )
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(  );
+            writeServiceDocument( infoDataList, request, out );
+            entry = SERVICE_DOCUMENTS.put( key, infoDataList, out.toString( CHARSET ) );
+        }
+
+        entry.write( Constants.MEDIATYPE_SERVICE, request, response );
+    }
+
+    /**
+     * Writes the service document.
+     */
+    private static void writeServiceDocument( List<RepositoryInfo> infoDataList, HttpServletRequest request,
+        OutputStream out ) throws Exception
+    {
         // write XML
         ServiceDocument serviceDoc = new ServiceDocument(  );
 
-        serviceDoc.startDocument( response.getOutputStream(  ) );
+        serviceDoc.startDocument( out );
         serviceDoc.startServiceDocument(  );
 
         if ( infoDataList != null )
@@ -278,6 +305,12 @@ public final class RepositoryService
 
         BigInteger numItems = ( ( typeList == null ) ? null : typeList.getNumItems(  ) );
         Boolean hasMoreItems = ( ( typeList == null ) ? null : typeList.hasMoreItems(  ) );
+        List<Object> sources = new ArrayList<Object>(  );
+
+        if ( ( typeList != null ) && ( typeList.getList(  ) != null ) )
+        {
+            sources.addAll( typeList.getList(  ) );
+        }
 
         String parentTypeId = null;
         String typeName = "Type Children";
@@ -290,21 +323,32 @@ public final class RepositoryService
 
             parentTypeId = ( ( typeDefinition == null ) ? null : typeDefinition.getParentTypeId(  ) );
             typeName = ( ( typeDefinition == null ) ? typeId : typeDefinition.getDisplayName(  ) );
+            sources.add( typeDefinition );
         }
 
-        // write XML
-        response.setStatus( HttpServletResponse.SC_OK );
-        response.setContentType( Constants.MEDIATYPE_FEED );
+        // the feed is serialized once per URL, parameters and type definitions
+        UrlBuilder baseUrl = compileBaseUrl( request, repositoryId );
+        String key = RESOURCE_TYPES + KEY_SEPARATOR + baseUrl + KEY_SEPARATOR + typeId + KEY_SEPARATOR +
+            includePropertyDefinitions + KEY_SEPARATOR + maxItems + KEY_SEPARATOR + skipCount;
+        SerializedResponseCache.Entry cached = TYPE_DOCUMENTS.get( key, sources );
+
+        if ( cached != null )
+        {
+            cached.write( Constants.MEDIATYPE_FEED, request, response );
 
+            return;
+        }
+
+        // write XML
+        ByteArrayOutputStream out = new ByteArrayOutputStream(  );
         AtomFeed feed = new AtomFeed(  );
-        feed.startDocument( response.getOutputStream(  ) );
+        feed.startDocument( out );
         feed.startFeed( true );
 
         // write basic Atom feed elements
         feed.writeFeedElements( typeId, TYPE_AUTHOR, typeName, new GregorianCalendar(  ), null, numItems );
 
         // write links
-        UrlBuilder baseUrl = compileBaseUrl( request, repositoryId );
 
         feed.writeServiceLink( baseUrl.toString(  ), repositoryId );
 
@@ -349,6 +393,9 @@ public final class RepositoryService
         // we are done
         feed.endFeed(  );
         feed.endDocument(  );
+
+        TYPE_DOCUMENTS.put( key, sources, out.toString( CHARSET ) )
+                      .write( Constants.MEDIATYPE_FEED, request, response );
     }
 
     /**
@@ -446,13 +493,23 @@ public final class RepositoryService
         // execute
         TypeDefinition type = service.getTypeDefinition( repositoryId, typeId, null );
 
-        // write XML
-        response.setStatus( HttpServletResponse.SC_OK );
-        response.setContentType( Constants.MEDIATYPE_ENTRY );
+        // the entry is serialized once per URL and type definition
+        UrlBuilder baseUrl = compileBaseUrl( request, repositoryId );
+        String key = RESOURCE_TYPE + KEY_SEPARATOR + baseUrl + KEY_SEPARATOR + typeId;
+        List<TypeDefinition> sources = Collections.singletonList( type );
+        SerializedResponseCache.Entry cached = TYPE_DOCUMENTS.get( key, sources );
+
+        if ( cached == null )
+        {
+            // write XML
+            ByteArrayOutputStream out = new ByteArrayOutputStream(  );
+            AtomEntry entry = new AtomEntry(  );
+            entry.startDocument( out );
+            writeTypeEntry( entry, type, null, repositoryId, baseUrl, true );
+            entry.endDocument(  );
+            cached = TYPE_DOCUMENTS.put( key, sources, out.toString( CHARSET ) );
+        }
 
-        AtomEntry entry = new AtomEntry(  );
-        entry.startDocument( response.getOutputStream(  ) );
-        writeTypeEntry( entry, type, null, repositoryId, compileBaseUrl( request, repositoryId ), true );
-        entry.endDocument(  );
+        cached.write( Constants.MEDIATYPE_ENTRY, request, response );
     }
 }
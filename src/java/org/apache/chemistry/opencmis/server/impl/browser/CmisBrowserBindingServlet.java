@@ -99,9 +99,11 @@ import static org.apache.chemistry.opencmis.server.impl.browser.BrowserBindingUt
 import org.apache.chemistry.opencmis.server.shared.CallContextHandler;
 import org.apache.chemistry.opencmis.server.shared.Dispatcher;
 import static org.apache.chemistry.opencmis.server.shared.Dispatcher.METHOD_GET;
+import static org.apache.chemistry.opencmis.server.shared.Dispatcher.METHOD_HEAD;
 import static org.apache.chemistry.opencmis.server.shared.Dispatcher.METHOD_POST;
 import org.apache.chemistry.opencmis.server.shared.ExceptionHelper;
 import org.apache.chemistry.opencmis.server.shared.HttpUtils;
+import org.apache.chemistry.opencmis.server.shared.NoBodyHttpServletResponse;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getStringParameter;
 
 import org.apache.commons.logging.Log;
@@ -240,6 +242,13 @@ public class CmisBrowserBindingServlet extends HttpServlet
     protected void service( HttpServletRequest request, HttpServletResponse response )
         throws ServletException, IOException
     {
+        // a HEAD request is served as a GET request without body
+        if ( METHOD_HEAD.equals( request.getMethod(  ) ) )
+        {
+            request = HttpUtils.toGetRequest( request );
+            response = new NoBodyHttpServletResponse( response );
+        }
+
         // set default headers
         response.addHeader( "Cache-Control", "private, max-age=0" );
         response.addHeader( "Server", ServerVersion.OPENCMIS_SERVER );
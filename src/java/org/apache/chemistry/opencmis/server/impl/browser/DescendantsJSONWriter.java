@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.impl.browser;
+
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderContainer;
+import org.apache.chemistry.opencmis.commons.impl.JSONConstants;
+import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
+import org.apache.chemistry.opencmis.commons.impl.TypeCache;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONStreamAware;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import java.util.List;
+
+
+/**
+ * Writes a descendants or folder tree list to the response as the containers
+ * are iterated, instead of building the whole JSON tree first. Each container
+ * is converted when it is reached, so a lazily compiled list is never held in
+ * memory at once.
+ */
+final class DescendantsJSONWriter implements JSONStreamAware
+{
+    private final List<ObjectInFolderContainer> _listContainers;
+    private final TypeCache _typeCache;
+
+    /**
+     * Constructor
+     * @param listContainers The containers
+     * @param typeCache The type cache
+     */
+    DescendantsJSONWriter( List<ObjectInFolderContainer> listContainers, TypeCache typeCache )
+    {
+        _listContainers = listContainers;
+        _typeCache = typeCache;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void writeJSONString( Writer out ) throws IOException
+    {
+        boolean bFirst = true;
+        out.write( '[' );
+
+        for ( ObjectInFolderContainer container : _listContainers )
+        {
+            if ( !bFirst )
+            {
+                out.write( ',' );
+            }
+
+            bFirst = false;
+
+            if ( container == null )
+            {
+                out.write( "null" );
+
+                continue;
+            }
+
+            // same keys as JSONConverter.convert( ObjectInFolderContainer, TypeCache )
+            JSONObject json = new JSONObject(  );
+            json.put( JSONConstants.JSON_OBJECTINFOLDERCONTAINER_OBJECT,
+                JSONConverter.convert( container.getObject(  ), _typeCache ) );
+
+            List<ObjectInFolderContainer> listChildren = container.getChildren(  );
+
+            if ( ( listChildren != null ) && ( listChildren.size(  ) > 0 ) )
+            {
+                json.put( JSONConstants.JSON_OBJECTINFOLDERCONTAINER_CHILDREN,
+                    new DescendantsJSONWriter( listChildren, _typeCache ) );
+            }
+
+            JSONConverter.convertExtension( container, json );
+            json.writeJSONString( out );
+        }
+
+        out.write( ']' );
+    }
+}
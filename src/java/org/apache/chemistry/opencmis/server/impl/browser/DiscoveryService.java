@@ -31,7 +31,6 @@ import org.apache.chemistry.opencmis.commons.impl.JSONConstants;
 import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
 import org.apache.chemistry.opencmis.commons.impl.TypeCache;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
-import org.apache.chemistry.opencmis.commons.impl.server.TypeCacheImpl;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.commons.spi.Holder;
@@ -39,6 +38,7 @@ import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getBigIntege
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getBooleanParameter;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getEnumParameter;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getStringParameter;
+import org.apache.chemistry.opencmis.server.shared.SharedTypeCache;
 
 import java.math.BigInteger;
 
@@ -81,7 +81,7 @@ public class DiscoveryService
             throw new CmisRuntimeException( "Results are null!" );
         }
 
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
         JSONObject jsonResults = JSONConverter.convert( results, typeCache, true );
 
         response.setStatus( HttpServletResponse.SC_OK );
@@ -107,7 +107,7 @@ public class DiscoveryService
         ObjectList changes = service.getContentChanges( repositoryId, changeLogTokenHolder, includeProperties, filter,
                 includePolicyIds, includeAcl, maxItems, null );
 
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
         JSONObject jsonChanges = JSONConverter.convert( changes, typeCache, false );
         jsonChanges.put( JSONConstants.JSON_OBJECTLIST_CHANGE_LOG_TOKEN, changeLogTokenHolder.getValue(  ) );
 
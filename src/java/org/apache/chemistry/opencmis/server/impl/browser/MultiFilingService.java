@@ -25,7 +25,6 @@ import static org.apache.chemistry.opencmis.commons.impl.Constants.PARAM_FOLDER_
 import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
 import org.apache.chemistry.opencmis.commons.impl.TypeCache;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
-import org.apache.chemistry.opencmis.commons.impl.server.TypeCacheImpl;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.commons.spi.Holder;
@@ -38,6 +37,7 @@ import static org.apache.chemistry.opencmis.server.impl.browser.BrowserBindingUt
 import static org.apache.chemistry.opencmis.server.impl.browser.BrowserBindingUtils.writeJSON;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getBooleanParameter;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getStringParameter;
+import org.apache.chemistry.opencmis.server.shared.SharedTypeCache;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -80,7 +80,7 @@ public class MultiFilingService
         response.setHeader( "Location", location );
 
         // return object
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
         JSONObject jsonObject = JSONConverter.convert( object, typeCache, false );
 
         writeJSON( jsonObject, request, response );
@@ -117,7 +117,7 @@ public class MultiFilingService
         response.setHeader( "Location", location );
 
         // return object
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
         JSONObject jsonObject = JSONConverter.convert( object, typeCache, false );
 
         writeJSON( jsonObject, request, response );
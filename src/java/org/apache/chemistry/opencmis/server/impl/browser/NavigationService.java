@@ -39,14 +39,15 @@ import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
 import org.apache.chemistry.opencmis.commons.impl.TypeCache;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONArray;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
-import org.apache.chemistry.opencmis.commons.impl.server.TypeCacheImpl;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import static org.apache.chemistry.opencmis.server.impl.browser.BrowserBindingUtils.CONTEXT_OBJECT_ID;
+import org.apache.chemistry.opencmis.server.shared.ContinuationTokens;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getBigIntegerParameter;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getBooleanParameter;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getEnumParameter;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getStringParameter;
+import org.apache.chemistry.opencmis.server.shared.SharedTypeCache;
 
 import java.math.BigInteger;
 
@@ -83,18 +84,19 @@ public final class NavigationService
         Boolean includePathSegment = getBooleanParameter( request, PARAM_PATH_SEGMENT );
         BigInteger maxItems = getBigIntegerParameter( request, PARAM_MAX_ITEMS );
         BigInteger skipCount = getBigIntegerParameter( request, PARAM_SKIP_COUNT );
+        String continuationToken = getStringParameter( request, ContinuationTokens.PARAM_CONTINUATION_TOKEN );
 
         // execute
         ObjectInFolderList children = service.getChildren( repositoryId, folderId, filter, orderBy,
                 includeAllowableActions, includeRelationships, renditionFilter, includePathSegment, maxItems,
-                skipCount, null );
+                skipCount, ContinuationTokens.createExtension( continuationToken ) );
 
         if ( children == null )
         {
             throw new CmisRuntimeException( "Children are null!" );
         }
 
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
         JSONObject jsonChildren = JSONConverter.convert( children, typeCache );
 
         response.setStatus( HttpServletResponse.SC_OK );
@@ -127,16 +129,10 @@ public final class NavigationService
             throw new CmisRuntimeException( "Descendants are null!" );
         }
 
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
-        JSONArray jsonDescendants = new JSONArray(  );
-
-        for ( ObjectInFolderContainer descendant : descendants )
-        {
-            jsonDescendants.add( JSONConverter.convert( descendant, typeCache ) );
-        }
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
 
         response.setStatus( HttpServletResponse.SC_OK );
-        BrowserBindingUtils.writeJSON( jsonDescendants, request, response );
+        BrowserBindingUtils.writeJSON( new DescendantsJSONWriter( descendants, typeCache ), request, response );
     }
 
     /**
@@ -165,16 +161,10 @@ public final class NavigationService
             throw new CmisRuntimeException( "Folder Tree are null!" );
         }
 
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
-        JSONArray jsonDescendants = new JSONArray(  );
-
-        for ( ObjectInFolderContainer descendant : folderTree )
-        {
-            jsonDescendants.add( JSONConverter.convert( descendant, typeCache ) );
-        }
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
 
         response.setStatus( HttpServletResponse.SC_OK );
-        BrowserBindingUtils.writeJSON( jsonDescendants, request, response );
+        BrowserBindingUtils.writeJSON( new DescendantsJSONWriter( folderTree, typeCache ), request, response );
     }
 
     /**
@@ -196,7 +186,7 @@ public final class NavigationService
             throw new CmisRuntimeException( "Parent is null!" );
         }
 
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
         JSONObject jsonObject = JSONConverter.convert( parent, typeCache, false );
 
         response.setStatus( HttpServletResponse.SC_OK );
@@ -228,7 +218,7 @@ public final class NavigationService
             throw new CmisRuntimeException( "Parents are null!" );
         }
 
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
         JSONArray jsonParents = new JSONArray(  );
 
         for ( ObjectParentData parent : parents )
@@ -257,17 +247,19 @@ public final class NavigationService
         String renditionFilter = getStringParameter( request, PARAM_RENDITION_FILTER );
         BigInteger maxItems = getBigIntegerParameter( request, PARAM_MAX_ITEMS );
         BigInteger skipCount = getBigIntegerParameter( request, PARAM_SKIP_COUNT );
+        String continuationToken = getStringParameter( request, ContinuationTokens.PARAM_CONTINUATION_TOKEN );
 
         // execute
         ObjectList checkedout = service.getCheckedOutDocs( repositoryId, folderId, filter, orderBy,
-                includeAllowableActions, includeRelationships, renditionFilter, maxItems, skipCount, null );
+                includeAllowableActions, includeRelationships, renditionFilter, maxItems, skipCount,
+                ContinuationTokens.createExtension( continuationToken ) );
 
         if ( checkedout == null )
         {
             throw new CmisRuntimeException( "Checked out list is null!" );
         }
 
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
         JSONObject jsonCheckedOut = JSONConverter.convert( checkedout, typeCache, false );
 
         response.setStatus( HttpServletResponse.SC_OK );
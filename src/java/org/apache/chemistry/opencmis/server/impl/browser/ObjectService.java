@@ -51,7 +51,6 @@ import org.apache.chemistry.opencmis.commons.impl.ReturnVersion;
 import org.apache.chemistry.opencmis.commons.impl.TypeCache;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONArray;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
-import org.apache.chemistry.opencmis.commons.impl.server.TypeCacheImpl;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.commons.spi.Holder;
@@ -75,11 +74,11 @@ import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getBigIntege
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getBooleanParameter;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getEnumParameter;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getStringParameter;
-
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.InputStream;
-import java.io.OutputStream;
+import static org.apache.chemistry.opencmis.server.shared.HttpUtils.isRangeNotSatisfiable;
+import static org.apache.chemistry.opencmis.server.shared.HttpUtils.isRangeRequest;
+import static org.apache.chemistry.opencmis.server.shared.HttpUtils.setContentHeaders;
+import static org.apache.chemistry.opencmis.server.shared.HttpUtils.writeContent;
+import org.apache.chemistry.opencmis.server.shared.SharedTypeCache;
 
 import java.math.BigInteger;
 
@@ -94,7 +93,6 @@ import javax.servlet.http.HttpServletResponse;
  */
 public final class ObjectService
 {
-    private static final int BUFFER_SIZE = 64 * 1024;
 
     private ObjectService(  )
     {
@@ -114,7 +112,7 @@ public final class ObjectService
 
         // execute
         ControlParser cp = new ControlParser( request );
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
 
         String newObjectId = service.createDocument( repositoryId, createProperties( cp, null, typeCache ), folderId,
                 createContentStream( request ), versioningState, createPolicies( cp ), createAddAcl( cp ),
@@ -152,7 +150,7 @@ public final class ObjectService
 
         // execute
         ControlParser cp = new ControlParser( request );
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
 
         ObjectData sourceDoc = getSimpleObject( service, repositoryId, sourceId );
         PropertyData<?> sourceTypeId = sourceDoc.getProperties(  ).getProperties(  ).get( PropertyIds.OBJECT_TYPE_ID );
@@ -196,7 +194,7 @@ public final class ObjectService
 
         // execute
         ControlParser cp = new ControlParser( request );
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
 
         String newObjectId = service.createFolder( repositoryId, createProperties( cp, null, typeCache ), folderId,
                 createPolicies( cp ), createAddAcl( cp ), createRemoveAcl( cp ), null );
@@ -231,7 +229,7 @@ public final class ObjectService
 
         // execute
         ControlParser cp = new ControlParser( request );
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
 
         String newObjectId = service.createPolicy( repositoryId, createProperties( cp, null, typeCache ), folderId,
                 createPolicies( cp ), createAddAcl( cp ), createRemoveAcl( cp ), null );
@@ -265,7 +263,7 @@ public final class ObjectService
 
         // execute
         ControlParser cp = new ControlParser( request );
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
 
         String newObjectId = service.createRelationship( repositoryId, createProperties( cp, null, typeCache ),
                 createPolicies( cp ), createAddAcl( cp ), createRemoveAcl( cp ), null );
@@ -302,7 +300,7 @@ public final class ObjectService
 
         // execute
         ControlParser cp = new ControlParser( request );
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
         Holder<String> objectIdHolder = new Holder<String>( objectId );
         Holder<String> changeTokenHolder = ( ( changeToken == null ) ? null : new Holder<String>( changeToken ) );
 
@@ -366,7 +364,7 @@ public final class ObjectService
         }
 
         // return object
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
         JSONObject jsonObject = JSONConverter.convert( properties, objectId, typeCache, false );
 
         response.setStatus( HttpServletResponse.SC_OK );
@@ -412,7 +410,7 @@ public final class ObjectService
         }
 
         // return object
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
         JSONObject jsonObject = JSONConverter.convert( object, typeCache, false );
 
         response.setStatus( HttpServletResponse.SC_OK );
@@ -498,7 +496,11 @@ public final class ObjectService
         }
 
         // set headers
-        if ( ( offset == null ) && ( length == null ) )
+        if ( isRangeNotSatisfiable( content ) )
+        {
+            setStatus( request, response, HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE );
+        }
+        else if ( !isRangeRequest( context ) )
         {
             response.setStatus( HttpServletResponse.SC_OK );
         }
@@ -515,20 +517,10 @@ public final class ObjectService
                 MimeHelper.encodeContentDisposition( MimeHelper.DISPOSITION_INLINE, content.getFileName(  ) ) );
         }
 
-        // send content
-        InputStream in = new BufferedInputStream( content.getStream(  ), BUFFER_SIZE );
-        OutputStream out = new BufferedOutputStream( response.getOutputStream(  ) );
-
-        byte[] buffer = new byte[BUFFER_SIZE];
-        int b;
+        setContentHeaders( response, content, context );
 
-        while ( ( b = in.read( buffer ) ) > -1 )
-        {
-            out.write( buffer, 0, b );
-        }
-
-        in.close(  );
-        out.flush(  );
+        // send content
+        writeContent( response, content );
     }
 
     /**
@@ -606,7 +598,7 @@ public final class ObjectService
         response.setStatus( HttpServletResponse.SC_OK );
 
         // return object
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
         JSONObject jsonObject = JSONConverter.convert( object, typeCache, false );
 
         writeJSON( jsonObject, request, response );
@@ -646,7 +638,7 @@ public final class ObjectService
         response.setHeader( "Location", location );
 
         // return object
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
         JSONObject jsonObject = JSONConverter.convert( object, typeCache, false );
 
         writeJSON( jsonObject, request, response );
@@ -684,7 +676,7 @@ public final class ObjectService
         response.setHeader( "Location", location );
 
         // return object
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
         JSONObject jsonObject = JSONConverter.convert( object, typeCache, false );
 
         writeJSON( jsonObject, request, response );
@@ -26,13 +26,13 @@ import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
 import org.apache.chemistry.opencmis.commons.impl.TypeCache;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONArray;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
-import org.apache.chemistry.opencmis.commons.impl.server.TypeCacheImpl;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import static org.apache.chemistry.opencmis.server.impl.browser.BrowserBindingUtils.CONTEXT_OBJECT_ID;
 import static org.apache.chemistry.opencmis.server.impl.browser.BrowserBindingUtils.getSimpleObject;
 import static org.apache.chemistry.opencmis.server.impl.browser.BrowserBindingUtils.writeJSON;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getStringParameter;
+import org.apache.chemistry.opencmis.server.shared.SharedTypeCache;
 
 import java.util.List;
 
@@ -63,7 +63,7 @@ public class PolicyService
 
         if ( policies != null )
         {
-            TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+            TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
 
             for ( ObjectData policy : policies )
             {
@@ -99,7 +99,7 @@ public class PolicyService
         // return object
         response.setStatus( HttpServletResponse.SC_OK );
 
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
         JSONObject jsonObject = JSONConverter.convert( object, typeCache, false );
 
         writeJSON( jsonObject, request, response );
@@ -129,7 +129,7 @@ public class PolicyService
         // return object
         response.setStatus( HttpServletResponse.SC_OK );
 
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
         JSONObject jsonObject = JSONConverter.convert( object, typeCache, false );
 
         writeJSON( jsonObject, request, response );
@@ -31,7 +31,6 @@ import static org.apache.chemistry.opencmis.commons.impl.Constants.PARAM_TYPE_ID
 import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
 import org.apache.chemistry.opencmis.commons.impl.TypeCache;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
-import org.apache.chemistry.opencmis.commons.impl.server.TypeCacheImpl;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import static org.apache.chemistry.opencmis.server.impl.browser.BrowserBindingUtils.CONTEXT_OBJECT_ID;
@@ -39,6 +38,7 @@ import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getBigIntege
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getBooleanParameter;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getEnumParameter;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getStringParameter;
+import org.apache.chemistry.opencmis.server.shared.SharedTypeCache;
 
 import java.math.BigInteger;
 
@@ -75,7 +75,7 @@ public class RelationshipService
             throw new CmisRuntimeException( "Relationships are null!" );
         }
 
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
         JSONObject jsonChildren = JSONConverter.convert( relationships, typeCache, false );
 
         response.setStatus( HttpServletResponse.SC_OK );
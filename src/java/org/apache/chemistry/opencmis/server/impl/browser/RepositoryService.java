@@ -24,6 +24,7 @@ import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionList;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import static org.apache.chemistry.opencmis.commons.impl.Constants.PARAM_CALLBACK;
 import static org.apache.chemistry.opencmis.commons.impl.Constants.PARAM_DEPTH;
 import static org.apache.chemistry.opencmis.commons.impl.Constants.PARAM_MAX_ITEMS;
 import static org.apache.chemistry.opencmis.commons.impl.Constants.PARAM_PROPERTY_DEFINITIONS;
@@ -33,15 +34,21 @@ import static org.apache.chemistry.opencmis.commons.impl.Constants.PARAM_TYPE_ID
 import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONArray;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONStreamAware;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONValue;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getBigIntegerParameter;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getBooleanParameter;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getStringParameter;
+import org.apache.chemistry.opencmis.server.shared.SerializedResponseCache;
+
+import java.io.IOException;
+import java.io.Writer;
 
 import java.math.BigInteger;
 
+import java.util.Collections;
 import java.util.List;
 
 import javax.servlet.http.Cookie;
@@ -54,6 +61,13 @@ import javax.servlet.http.HttpServletResponse;
  */
 public final class RepositoryService
 {
+    private static final SerializedResponseCache REPOSITORY_INFOS = new SerializedResponseCache(  );
+    private static final int TYPES_CACHE_SIZE = 256;
+    private static final SerializedResponseCache TYPES = new SerializedResponseCache( TYPES_CACHE_SIZE );
+    private static final String KEY_SEPARATOR = "|";
+    private static final String KEY_TYPE_CHILDREN = "children";
+    private static final String KEY_TYPE_DEFINITION = "definition";
+
     private RepositoryService(  )
     {
     }
@@ -67,18 +81,7 @@ public final class RepositoryService
         // execute
         List<RepositoryInfo> infoDataList = service.getRepositoryInfos( null );
 
-        JSONObject result = new JSONObject(  );
-
-        for ( RepositoryInfo ri : infoDataList )
-        {
-            String repositoryUrl = BrowserBindingUtils.compileRepositoryUrl( request, ri.getId(  ) ).toString(  );
-            String rootUrl = BrowserBindingUtils.compileRootUrl( request, ri.getId(  ) ).toString(  );
-
-            result.put( ri.getId(  ), JSONConverter.convert( ri, repositoryUrl, rootUrl ) );
-        }
-
-        response.setStatus( HttpServletResponse.SC_OK );
-        BrowserBindingUtils.writeJSON( result, request, response );
+        writeRepositoryInfos( infoDataList, null, request, response );
     }
 
     /**
@@ -91,14 +94,63 @@ public final class RepositoryService
         // execute
         RepositoryInfo ri = service.getRepositoryInfo( repositoryId, null );
 
-        String repositoryUrl = BrowserBindingUtils.compileRepositoryUrl( request, ri.getId(  ) ).toString(  );
-        String rootUrl = BrowserBindingUtils.compileRootUrl( request, ri.getId(  ) ).toString(  );
+        writeRepositoryInfos( Collections.singletonList( ri ), repositoryId, request, response );
+    }
 
-        JSONObject result = new JSONObject(  );
-        result.put( ri.getId(  ), JSONConverter.convert( ri, repositoryUrl, rootUrl ) );
+    /**
+     * Writes repository infos. The JSON only depends on the URL and on the
+     * repository infos, so it is serialized once per base URL.
+     */
+    private static void writeRepositoryInfos( List<RepositoryInfo> infoDataList, String repositoryId,
+        HttpServletRequest request, HttpServletResponse response )
+        throws Exception
+    {
+        String key = BrowserBindingUtils.compileBaseUrl( request ).toString(  ) + "?" + repositoryId;
+        SerializedResponseCache.Entry entry = REPOSITORY_INFOS.get( key, infoDataList );
 
-        response.setStatus( HttpServletResponse.SC_OK );
-        BrowserBindingUtils.writeJSON( result, request, response );
+        if ( entry == null )
+        {
+            JSONObject result = new JSONObject(  );
+
+            for ( RepositoryInfo ri : infoDataList )
+            {
+                String repositoryUrl = BrowserBindingUtils.compileRepositoryUrl( request, ri.getId(  ) ).toString(  );
+                String rootUrl = BrowserBindingUtils.compileRootUrl( request, ri.getId(  ) ).toString(  );
+
+                result.put( ri.getId(  ), JSONConverter.convert( ri, repositoryUrl, rootUrl ) );
+            }
+
+            entry = REPOSITORY_INFOS.put( key, infoDataList, result.toJSONString(  ) );
+        }
+
+        writeCached( entry, request, response );
+    }
+
+    /**
+     * Writes a cached JSON response.
+     */
+    private static void writeCached( SerializedResponseCache.Entry entry, HttpServletRequest request,
+        HttpServletResponse response ) throws Exception
+    {
+        // callbacks and transactions wrap the JSON : only the plain JSON is served with an ETag
+        if ( ( getStringParameter( request, PARAM_CALLBACK ) == null ) &&
+                ( getStringParameter( request, PARAM_TRANSACTION ) == null ) )
+        {
+            entry.write( BrowserBindingUtils.JSON_MIME_TYPE, request, response );
+        }
+        else
+        {
+            final String json = entry.getBody(  );
+
+            response.setStatus( HttpServletResponse.SC_OK );
+            BrowserBindingUtils.writeJSON( new JSONStreamAware(  )
+                {
+                    public void writeJSONString( Writer out ) throws IOException
+                    {
+                        out.write( json );
+                    }
+                }, request, response );
+        }
     }
 
     /**
@@ -165,10 +217,21 @@ public final class RepositoryService
         // execute
         TypeDefinitionList typeList = service.getTypeChildren( repositoryId, typeId, includePropertyDefinitions,
                 maxItems, skipCount, null );
-        JSONObject jsonTypeList = JSONConverter.convert( typeList );
 
-        response.setStatus( HttpServletResponse.SC_OK );
-        BrowserBindingUtils.writeJSON( jsonTypeList, request, response );
+        // the JSON is serialized once per parameters and type definitions
+        String key = KEY_TYPE_CHILDREN + KEY_SEPARATOR + repositoryId + KEY_SEPARATOR + typeId + KEY_SEPARATOR +
+            includePropertyDefinitions + KEY_SEPARATOR + maxItems + KEY_SEPARATOR + skipCount;
+        List<TypeDefinition> sources = ( ( typeList == null ) || ( typeList.getList(  ) == null ) )
+            ? Collections.<TypeDefinition>emptyList(  ) : typeList.getList(  );
+        SerializedResponseCache.Entry entry = TYPES.get( key, sources );
+
+        if ( entry == null )
+        {
+            JSONObject jsonTypeList = JSONConverter.convert( typeList );
+            entry = TYPES.put( key, sources, jsonTypeList.toJSONString(  ) );
+        }
+
+        writeCached( entry, request, response );
     }
 
     public static void getTypeDescendants( CallContext context, CmisService service, String repositoryId,
@@ -209,9 +272,18 @@ public final class RepositoryService
 
         // execute
         TypeDefinition type = service.getTypeDefinition( repositoryId, typeId, null );
-        JSONObject jsonType = JSONConverter.convert( type );
 
-        response.setStatus( HttpServletResponse.SC_OK );
-        BrowserBindingUtils.writeJSON( jsonType, request, response );
+        // the JSON is serialized once per type definition
+        String key = KEY_TYPE_DEFINITION + KEY_SEPARATOR + repositoryId + KEY_SEPARATOR + typeId;
+        List<TypeDefinition> sources = Collections.singletonList( type );
+        SerializedResponseCache.Entry entry = TYPES.get( key, sources );
+
+        if ( entry == null )
+        {
+            JSONObject jsonType = JSONConverter.convert( type );
+            entry = TYPES.put( key, sources, jsonType.toJSONString(  ) );
+        }
+
+        writeCached( entry, request, response );
     }
 }
@@ -29,7 +29,6 @@ import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
 import org.apache.chemistry.opencmis.commons.impl.TypeCache;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONArray;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
-import org.apache.chemistry.opencmis.commons.impl.server.TypeCacheImpl;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.commons.spi.Holder;
@@ -51,6 +50,7 @@ import static org.apache.chemistry.opencmis.server.impl.browser.BrowserBindingUt
 import static org.apache.chemistry.opencmis.server.impl.browser.BrowserBindingUtils.writeJSON;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getBooleanParameter;
 import static org.apache.chemistry.opencmis.server.shared.HttpUtils.getStringParameter;
+import org.apache.chemistry.opencmis.server.shared.SharedTypeCache;
 
 import java.util.List;
 
@@ -90,7 +90,7 @@ public class VersioningService
         }
 
         // return object
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
         JSONObject jsonObject = JSONConverter.convert( object, typeCache, false );
 
         // set headers
@@ -138,7 +138,7 @@ public class VersioningService
 
         // execute
         ControlParser cp = new ControlParser( request );
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
         Holder<String> objectIdHolder = new Holder<String>( objectId );
 
         service.checkIn( repositoryId, objectIdHolder, major, createProperties( cp, typeId, typeCache ),
@@ -189,7 +189,7 @@ public class VersioningService
             throw new CmisRuntimeException( "Versions are null!" );
         }
 
-        TypeCache typeCache = new TypeCacheImpl( repositoryId, service );
+        TypeCache typeCache = SharedTypeCache.getInstance( repositoryId ).forRequest( service );
         JSONArray jsonVersions = new JSONArray(  );
 
         for ( ObjectData version : versions )
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import org.apache.chemistry.opencmis.commons.data.CmisExtensionElement;
+import org.apache.chemistry.opencmis.commons.data.ExtensionsData;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.CmisExtensionElementImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ExtensionDataImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Continuation tokens of the paged listings. A token is an opaque string
+ * returned with a page when more items are available. It is sent back as the
+ * continuationToken parameter (AtomPub and Browser bindings) to read the next
+ * page, and travels between the bindings and the repository as an extension
+ * element.
+ */
+public final class ContinuationTokens
+{
+    public static final String PARAM_CONTINUATION_TOKEN = "continuationToken";
+    public static final String NAMESPACE = "http://lutece.paris.fr/cmis/document";
+    public static final String ELEMENT_CONTINUATION_TOKEN = "continuationToken";
+
+    private ContinuationTokens(  )
+    {
+    }
+
+    /**
+     * Wraps a token into extensions data.
+     *
+     * @return the extensions or null if there is no token
+     */
+    public static ExtensionsData createExtension( String token )
+    {
+        if ( token == null )
+        {
+            return null;
+        }
+
+        ExtensionDataImpl extension = new ExtensionDataImpl(  );
+        setToken( extension, token );
+
+        return extension;
+    }
+
+    /**
+     * Returns the token of extensions data.
+     *
+     * @return the token or null if there is none
+     */
+    public static String getToken( ExtensionsData extension )
+    {
+        if ( ( extension == null ) || ( extension.getExtensions(  ) == null ) )
+        {
+            return null;
+        }
+
+        for ( CmisExtensionElement element : extension.getExtensions(  ) )
+        {
+            if ( ELEMENT_CONTINUATION_TOKEN.equals( element.getName(  ) ) &&
+                    NAMESPACE.equals( element.getNamespace(  ) ) )
+            {
+                return element.getValue(  );
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Adds a token to extensions data.
+     */
+    public static void setToken( ExtensionsData extension, String token )
+    {
+        List<CmisExtensionElement> extensions = new ArrayList<CmisExtensionElement>(  );
+
+        if ( extension.getExtensions(  ) != null )
+        {
+            extensions.addAll( extension.getExtensions(  ) );
+        }
+
+        extensions.add( new CmisExtensionElementImpl( NAMESPACE, ELEMENT_CONTINUATION_TOKEN, null, token ) );
+        extension.setExtensions( extensions );
+    }
+}
@@ -48,6 +48,7 @@ public class Dispatcher implements Serializable
     public static final String METHOD_POST = "POST";
     public static final String METHOD_PUT = "PUT";
     public static final String METHOD_DELETE = "DELETE";
+    public static final String METHOD_HEAD = "HEAD";
     private static final Log LOG = LogFactory.getLog( Dispatcher.class.getName(  ) );
     private final boolean caseSensitive;
     private Map<String, Method> methodMap = new HashMap<String, Method>(  );
@@ -18,12 +18,16 @@
  */
 package org.apache.chemistry.opencmis.server.shared;
 
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.server.impl.CallContextImpl;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 import java.lang.reflect.Method;
 
@@ -33,6 +37,7 @@ import java.util.Map;
 
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
 
 
@@ -41,6 +46,11 @@ import javax.servlet.http.HttpServletResponse;
  */
 public class HttpUtils
 {
+    /** Call context key of the length of a suffix range ("bytes=-500"). */
+    public static final String SUFFIX_LENGTH = "suffixLength";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private HttpUtils(  )
     {
     }
@@ -61,7 +71,9 @@ public class HttpUtils
             repositoryId = pathFragments[0];
         }
 
-        CallContextImpl context = new CallContextImpl( binding, repositoryId, true );
+        // only the AtomPub binding reads the object infos, the other bindings don't have to collect them
+        boolean objectInfoRequired = CallContext.BINDING_ATOMPUB.equals( binding );
+        CallContextImpl context = new CallContextImpl( binding, repositoryId, objectInfoRequired );
 
         // call call context handler
         if ( callContextHandler != null )
@@ -91,50 +103,7 @@ public class HttpUtils
 
         if ( rangeHeader != null )
         {
-            rangeHeader = rangeHeader.trim(  );
-
-            BigInteger offset = null;
-            BigInteger length = null;
-
-            int eq = rangeHeader.indexOf( '=' );
-            int ds = rangeHeader.indexOf( '-' );
-
-            if ( ( eq > 0 ) && ( ds > eq ) )
-            {
-                String offsetStr = rangeHeader.substring( eq + 1, ds ).trim(  );
-
-                if ( offsetStr.length(  ) > 0 )
-                {
-                    offset = new BigInteger( offsetStr );
-                }
-
-                if ( ds < rangeHeader.length(  ) )
-                {
-                    String lengthStr = rangeHeader.substring( ds + 1 ).trim(  );
-
-                    if ( lengthStr.length(  ) > 0 )
-                    {
-                        if ( offset == null )
-                        {
-                            length = new BigInteger( lengthStr );
-                        }
-                        else
-                        {
-                            length = ( new BigInteger( lengthStr ) ).subtract( offset );
-                        }
-                    }
-
-                    if ( offset != null )
-                    {
-                        context.put( CallContext.OFFSET, offset );
-                    }
-
-                    if ( length != null )
-                    {
-                        context.put( CallContext.LENGTH, length );
-                    }
-                }
-            }
+            decodeRange( context, rangeHeader.trim(  ) );
         }
 
         // get locale
@@ -163,6 +132,200 @@ public class HttpUtils
         return context;
     }
 
+    /**
+     * Decodes a single byte range. A suffix range ("bytes=-500", the last 500
+     * bytes) is passed in the {@link #SUFFIX_LENGTH} attribute, resolved by
+     * the repository against the content length: the service wrapper rejects
+     * a negative offset. A malformed range is ignored and the whole content is
+     * sent.
+     */
+    private static void decodeRange( CallContextImpl context, String rangeHeader )
+    {
+        int eq = rangeHeader.indexOf( '=' );
+        int ds = rangeHeader.indexOf( '-' );
+
+        if ( ( eq <= 0 ) || ( ds <= eq ) || ( rangeHeader.indexOf( ',' ) >= 0 ) )
+        {
+            return;
+        }
+
+        String offsetStr = rangeHeader.substring( eq + 1, ds ).trim(  );
+        String lastStr = rangeHeader.substring( ds + 1 ).trim(  );
+        BigInteger offset = null;
+        BigInteger length = null;
+        BigInteger suffixLength = null;
+
+        try
+        {
+            if ( offsetStr.length(  ) > 0 )
+            {
+                offset = new BigInteger( offsetStr );
+
+                if ( lastStr.length(  ) > 0 )
+                {
+                    // the last byte position is inclusive
+                    length = ( new BigInteger( lastStr ) ).subtract( offset ).add( BigInteger.ONE );
+                }
+            }
+            else if ( lastStr.length(  ) > 0 )
+            {
+                suffixLength = new BigInteger( lastStr );
+            }
+        }
+        catch ( NumberFormatException e )
+        {
+            return;
+        }
+
+        if ( suffixLength != null )
+        {
+            if ( suffixLength.signum(  ) >= 0 )
+            {
+                context.put( SUFFIX_LENGTH, suffixLength );
+            }
+
+            return;
+        }
+
+        if ( ( offset == null ) || ( offset.signum(  ) < 0 ) || ( ( length != null ) && ( length.signum(  ) <= 0 ) ) )
+        {
+            return;
+        }
+
+        context.put( CallContext.OFFSET, offset );
+
+        if ( length != null )
+        {
+            context.put( CallContext.LENGTH, length );
+        }
+    }
+
+    /**
+     * Returns the length of the suffix range of the request ("bytes=-500").
+     *
+     * @return the number of last bytes requested or null if the request has no suffix range
+     */
+    public static BigInteger getSuffixLength( CallContext context )
+    {
+        return (BigInteger) context.get( SUFFIX_LENGTH );
+    }
+
+    /**
+     * Returns true if the request asks for a byte range.
+     */
+    public static boolean isRangeRequest( CallContext context )
+    {
+        return ( context.getOffset(  ) != null ) || ( context.getLength(  ) != null ) ||
+        ( getSuffixLength( context ) != null );
+    }
+
+    /**
+     * Returns true if the request is a HEAD request, served without body.
+     */
+    public static boolean isHeadRequest( CallContext context )
+    {
+        return context.get( CallContext.HTTP_SERVLET_RESPONSE ) instanceof NoBodyHttpServletResponse;
+    }
+
+    /**
+     * Returns true if the requested range starts beyond the end of the content.
+     */
+    public static boolean isRangeNotSatisfiable( ContentStream content )
+    {
+        return ( content instanceof PartialContentStream ) && !( (PartialContentStream) content ).isSatisfiable(  );
+    }
+
+    /**
+     * Wraps a HEAD request so that it is dispatched like a GET request.
+     */
+    public static HttpServletRequest toGetRequest( HttpServletRequest request )
+    {
+        return new HttpServletRequestWrapper( request )
+            {
+                @Override
+                public String getMethod(  )
+                {
+                    return Dispatcher.METHOD_GET;
+                }
+            };
+    }
+
+    /**
+     * Sets the length and range headers of a content stream response.
+     */
+    public static void setContentHeaders( HttpServletResponse response, ContentStream content, CallContext context )
+    {
+        response.setHeader( "Accept-Ranges", "bytes" );
+
+        if ( isRangeNotSatisfiable( content ) )
+        {
+            response.setHeader( "Content-Length", "0" );
+            response.setHeader( "Content-Range",
+                "bytes */" + ( (PartialContentStream) content ).getTotalLength(  ) );
+
+            return;
+        }
+
+        BigInteger contentLength = content.getBigLength(  );
+
+        if ( contentLength == null )
+        {
+            return;
+        }
+
+        response.setHeader( "Content-Length", contentLength.toString(  ) );
+
+        if ( isRangeRequest( context ) && ( contentLength.signum(  ) > 0 ) )
+        {
+            // a partial content knows the resolved first byte and the whole length
+            BigInteger first = ( context.getOffset(  ) == null ) ? BigInteger.ZERO : context.getOffset(  );
+            String total = "*";
+
+            if ( content instanceof PartialContentStream )
+            {
+                first = ( (PartialContentStream) content ).getOffset(  );
+                total = String.valueOf( ( (PartialContentStream) content ).getTotalLength(  ) );
+            }
+
+            BigInteger last = first.add( contentLength ).subtract( BigInteger.ONE );
+            response.setHeader( "Content-Range", "bytes " + first + "-" + last + "/" + total );
+        }
+    }
+
+    /**
+     * Copies a content stream to the response. Nothing is read for a HEAD
+     * request.
+     */
+    public static void writeContent( HttpServletResponse response, ContentStream content )
+        throws IOException
+    {
+        InputStream in = content.getStream(  );
+
+        try
+        {
+            if ( response instanceof NoBodyHttpServletResponse )
+            {
+                return;
+            }
+
+            // the copy buffer is the only buffer
+            OutputStream out = response.getOutputStream(  );
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int b;
+
+            while ( ( b = in.read( buffer ) ) > -1 )
+            {
+                out.write( buffer, 0, b );
+            }
+
+            out.flush(  );
+        }
+        finally
+        {
+            in.close(  );
+        }
+    }
+
     /**
      * Splits the path into its fragments.
      */
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+
+/**
+ * Response of a HEAD request: the status and the headers are sent, the body
+ * is discarded.
+ */
+public class NoBodyHttpServletResponse extends HttpServletResponseWrapper
+{
+    private final ServletOutputStream noBodyStream = new ServletOutputStream(  )
+        {
+            @Override
+            public void write( int b )
+            {
+            }
+
+            @Override
+            public void write( byte[] b, int off, int len )
+            {
+            }
+        };
+
+    private PrintWriter writer;
+
+    public NoBodyHttpServletResponse( HttpServletResponse response )
+    {
+        super( response );
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream(  )
+    {
+        return noBodyStream;
+    }
+
+    @Override
+    public PrintWriter getWriter(  ) throws UnsupportedEncodingException
+    {
+        if ( writer == null )
+        {
+            writer = new PrintWriter( new OutputStreamWriter( noBodyStream, getCharacterEncoding(  ) ) );
+        }
+
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer(  ) throws IOException
+    {
+        if ( writer != null )
+        {
+            writer.flush(  );
+        }
+
+        super.flushBuffer(  );
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
+
+import java.math.BigInteger;
+
+
+/**
+ * Content stream of a byte range of a content. It carries the first byte of
+ * the range, resolved against the content length, and the content length, so
+ * that the bindings can send the Content-Range header or answer that the range
+ * cannot be satisfied.
+ */
+public class PartialContentStream extends ContentStreamImpl
+{
+    private static final long serialVersionUID = 1L;
+    private final BigInteger offset;
+    private final BigInteger totalLength;
+    private final boolean satisfiable;
+
+    /**
+     * Constructor.
+     *
+     * @param offset
+     *            the first byte of the range
+     * @param totalLength
+     *            the length of the whole content
+     * @param satisfiable
+     *            false if the range starts beyond the end of the content
+     */
+    public PartialContentStream( BigInteger offset, BigInteger totalLength, boolean satisfiable )
+    {
+        this.offset = offset;
+        this.totalLength = totalLength;
+        this.satisfiable = satisfiable;
+    }
+
+    /**
+     * Resolves a byte range against the length of the content. The stream, the
+     * file name and the MIME type are left to the caller.
+     *
+     * @param offset
+     *            the first byte requested or null
+     * @param length
+     *            the number of bytes requested or null
+     * @param suffixLength
+     *            the number of last bytes requested (suffix range) or null
+     * @param totalLength
+     *            the length of the whole content
+     * @return the range, with its length
+     */
+    public static PartialContentStream forRange( BigInteger offset, BigInteger length, BigInteger suffixLength,
+        long totalLength )
+    {
+        BigInteger total = BigInteger.valueOf( totalLength );
+        BigInteger first;
+        boolean satisfiable;
+
+        if ( suffixLength != null )
+        {
+            // the last bytes, or the whole content if it is shorter. An empty suffix can't be satisfied
+            first = total.subtract( suffixLength ).max( BigInteger.ZERO );
+            satisfiable = suffixLength.signum(  ) > 0;
+        }
+        else
+        {
+            first = ( offset == null ) ? BigInteger.ZERO : offset.max( BigInteger.ZERO );
+            satisfiable = ( first.signum(  ) == 0 ) || ( first.compareTo( total ) < 0 );
+        }
+
+        if ( !satisfiable )
+        {
+            first = total;
+        }
+
+        BigInteger rangeLength = total.subtract( first );
+
+        if ( ( suffixLength == null ) && ( length != null ) && ( length.signum(  ) >= 0 ) &&
+                ( length.compareTo( rangeLength ) < 0 ) )
+        {
+            rangeLength = length;
+        }
+
+        PartialContentStream result = new PartialContentStream( first, total, satisfiable );
+        result.setLength( rangeLength );
+
+        return result;
+    }
+
+    public BigInteger getOffset(  )
+    {
+        return offset;
+    }
+
+    public BigInteger getTotalLength(  )
+    {
+        return totalLength;
+    }
+
+    public boolean isSatisfiable(  )
+    {
+        return satisfiable;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+
+/**
+ * Cache of serialized responses that only depend on the request URL and on
+ * objects that are built once by the repository (the service document, the
+ * repository infos). An entry is reused as long as it was built from the
+ * same source objects and is served with a strong ETag, so that a client
+ * that already has it gets a 304 without any body. The number of entries is
+ * bounded since the URL comes from the client (host header).
+ */
+public final class SerializedResponseCache
+{
+    private static final int DEFAULT_MAX_ENTRIES = 64;
+    private static final String CHARSET = "UTF-8";
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String WEAK_PREFIX = "W/";
+    private static final String ANY = "*";
+
+    private final Map<String, Entry> entries;
+
+    public SerializedResponseCache(  )
+    {
+        this( DEFAULT_MAX_ENTRIES );
+    }
+
+    public SerializedResponseCache( final int maxEntries )
+    {
+        entries = new LinkedHashMap<String, Entry>( 16, 0.75f, true )
+                {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected boolean removeEldestEntry( Map.Entry<String, Entry> eldest )
+                    {
+                        return size(  ) > maxEntries;
+                    }
+                };
+    }
+
+    /**
+     * Returns an entry if it has been built from the same source objects.
+     *
+     * @return the entry or null if there is none or if it is stale
+     */
+    public synchronized Entry get( String key, List<?> sources )
+    {
+        Entry entry = entries.get( key );
+
+        return ( ( entry != null ) && entry.isBuiltFrom( sources ) ) ? entry : null;
+    }
+
+    /**
+     * Caches a serialized response.
+     *
+     * @return the new entry
+     */
+    public synchronized Entry put( String key, List<?> sources, String body )
+    {
+        Entry entry = new Entry( sources, body );
+        entries.put( key, entry );
+
+        return entry;
+    }
+
+    /**
+     * A serialized response and its ETag.
+     */
+    public static final class Entry
+    {
+        private final Object[] sources;
+        private final String body;
+        private final byte[] bytes;
+        private final String etag;
+
+        private Entry( List<?> sources, String body )
+        {
+            this.sources = ( sources == null ) ? new Object[0] : sources.toArray(  );
+            this.body = body;
+
+            try
+            {
+                this.bytes = body.getBytes( CHARSET );
+            }
+            catch ( UnsupportedEncodingException e )
+            {
+                throw new IllegalStateException( e );
+            }
+
+            this.etag = "\"" + DigestUtils.md5Hex( bytes ) + "\"";
+        }
+
+        private boolean isBuiltFrom( List<?> otherSources )
+        {
+            int size = ( otherSources == null ) ? 0 : otherSources.size(  );
+
+            if ( size != sources.length )
+            {
+                return false;
+            }
+
+            // the sources are compared by identity : they are built once and never modified
+            for ( int i = 0; i < size; i++ )
+            {
+                if ( otherSources.get( i ) != sources[i] )
+                {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        public String getBody(  )
+        {
+            return body;
+        }
+
+        public String getETag(  )
+        {
+            return etag;
+        }
+
+        /**
+         * Writes the response, or a 304 if the client already has it.
+         */
+        public void write( String contentType, HttpServletRequest request, HttpServletResponse response )
+            throws IOException
+        {
+            response.setHeader( HEADER_ETAG, etag );
+
+            if ( matches( request.getHeader( HEADER_IF_NONE_MATCH ) ) )
+            {
+                response.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+
+                return;
+            }
+
+            response.setStatus( HttpServletResponse.SC_OK );
+            response.setContentType( contentType );
+            response.setCharacterEncoding( CHARSET );
+            response.setContentLength( bytes.length );
+            response.getOutputStream(  ).write( bytes );
+            response.getOutputStream(  ).flush(  );
+        }
+
+        private boolean matches( String ifNoneMatch )
+        {
+            if ( ifNoneMatch == null )
+            {
+                return false;
+            }
+
+            for ( String tag : ifNoneMatch.split( "," ) )
+            {
+                String value = tag.trim(  );
+
+                // If-None-Match uses the weak comparison
+                if ( value.startsWith( WEAK_PREFIX ) )
+                {
+                    value = value.substring( WEAK_PREFIX.length(  ) );
+                }
+
+                if ( ANY.equals( value ) || etag.equals( value ) )
+                {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+}
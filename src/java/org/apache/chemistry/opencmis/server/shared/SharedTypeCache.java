@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.impl.TypeCache;
+import org.apache.chemistry.opencmis.commons.server.CmisService;
+import org.apache.chemistry.opencmis.commons.server.ObjectInfo;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/**
+ * Type definitions cache shared by all the requests of a repository. The
+ * definitions are loaded from the service on their first use and then read
+ * without any lock. The repository invalidates the caches when its types
+ * change: the definitions are dropped at once, and the definitions that are
+ * loaded while the cache is invalidated are never kept.
+ */
+public final class SharedTypeCache
+{
+    private static final int MAX_REPOSITORIES = 16;
+    private static final ConcurrentMap<String, SharedTypeCache> CACHES =
+        new ConcurrentHashMap<String, SharedTypeCache>(  );
+    private final String repositoryId;
+    private volatile ConcurrentMap<String, TypeDefinition> typeDefinitions =
+        new ConcurrentHashMap<String, TypeDefinition>(  );
+
+    private SharedTypeCache( String repositoryId )
+    {
+        this.repositoryId = repositoryId;
+    }
+
+    /**
+     * Returns the cache of a repository.
+     */
+    public static SharedTypeCache getInstance( String repositoryId )
+    {
+        SharedTypeCache cache = CACHES.get( repositoryId );
+
+        if ( cache == null )
+        {
+            // the repository id comes from the client: the number of caches is bounded
+            if ( CACHES.size(  ) >= MAX_REPOSITORIES )
+            {
+                return new SharedTypeCache( repositoryId );
+            }
+
+            SharedTypeCache newCache = new SharedTypeCache( repositoryId );
+            cache = CACHES.putIfAbsent( repositoryId, newCache );
+
+            if ( cache == null )
+            {
+                cache = newCache;
+            }
+        }
+
+        return cache;
+    }
+
+    /**
+     * Drops the type definitions of all the repositories. Called when the
+     * types of a repository change.
+     */
+    public static void invalidateAll(  )
+    {
+        for ( SharedTypeCache cache : CACHES.values(  ) )
+        {
+            cache.typeDefinitions = new ConcurrentHashMap<String, TypeDefinition>(  );
+        }
+    }
+
+    /**
+     * Returns a view of the cache for a request: the missing definitions and
+     * the types of the objects are read through the service of the request.
+     */
+    public TypeCache forRequest( CmisService service )
+    {
+        return new RequestTypeCache( service );
+    }
+
+    /**
+     * View of the shared cache for one request.
+     */
+    private final class RequestTypeCache implements TypeCache
+    {
+        private final CmisService service;
+
+        private RequestTypeCache( CmisService service )
+        {
+            this.service = service;
+        }
+
+        public TypeDefinition getTypeDefinition( String typeId )
+        {
+            // the map is read once: a definition loaded during an invalidation goes to the dropped map
+            ConcurrentMap<String, TypeDefinition> definitions = typeDefinitions;
+            TypeDefinition type = definitions.get( typeId );
+
+            if ( type == null )
+            {
+                type = service.getTypeDefinition( repositoryId, typeId, null );
+
+                if ( type != null )
+                {
+                    definitions.put( typeId, type );
+                }
+            }
+
+            return type;
+        }
+
+        public TypeDefinition getTypeDefinitionForObject( String objectId )
+        {
+            ObjectInfo info = service.getObjectInfo( repositoryId, objectId );
+
+            if ( info == null )
+            {
+                return null;
+            }
+
+            return getTypeDefinition( info.getTypeId(  ) );
+        }
+    }
+}
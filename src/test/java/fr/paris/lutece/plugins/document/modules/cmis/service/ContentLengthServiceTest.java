@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.UnsupportedEncodingException;
+
+
+/**
+ * Tests of the UTF-8 length computed without encoding the content
+ */
+public class ContentLengthServiceTest
+{
+    @Test
+    public void testEmptyText(  )
+    {
+        assertEquals( 0, ContentLengthService.getUtf8Length( "" ) );
+    }
+
+    @Test
+    public void testOneToThreeBytesCharacters(  )
+    {
+        assertUtf8Length( "<doc>ascii</doc>" );
+        assertUtf8Length( "d\u00e9j\u00e0 \u00a9 \u07ff" );
+        assertUtf8Length( "\u0800 \u20ac \uffff \u65e5\u672c" );
+    }
+
+    @Test
+    public void testSurrogatePairIsFourBytes(  )
+    {
+        String strPair = new String( Character.toChars( 0x1F600 ) );
+        assertEquals( 4, ContentLengthService.getUtf8Length( strPair ) );
+        assertUtf8Length( "a" + strPair + "b" + strPair + strPair );
+    }
+
+    @Test
+    public void testLoneSurrogatesAreEncodedAsQuestionMarks(  )
+    {
+        // String.getBytes replaces an invalid surrogate by '?'
+        assertEquals( 1, ContentLengthService.getUtf8Length( "\ud83d" ) );
+        assertEquals( 1, ContentLengthService.getUtf8Length( "\ude00" ) );
+        assertUtf8Length( "x\ud83dy" );
+        assertUtf8Length( "\ude00\ud83d" );
+        assertUtf8Length( "end\ud83d" );
+    }
+
+    @Test
+    public void testLengthOfALargeText(  )
+    {
+        StringBuilder sbText = new StringBuilder(  );
+
+        for ( int i = 0; i < 10000; i++ )
+        {
+            sbText.append( (char) ( i % 0xD000 ) ).append( Character.toChars( 0x10000 + i ) );
+        }
+
+        assertUtf8Length( sbText.toString(  ) );
+    }
+
+    private static void assertUtf8Length( String strText )
+    {
+        try
+        {
+            assertEquals( strText.getBytes( ContentLengthService.CONTENT_CHARSET ).length,
+                ContentLengthService.getUtf8Length( strText ) );
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import fr.paris.lutece.plugins.document.modules.cmis.business.CmisDocument;
+import fr.paris.lutece.plugins.document.modules.cmis.business.CmisDocumentSort;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+
+import org.apache.commons.codec.binary.Base64;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.UnsupportedEncodingException;
+
+import java.sql.Timestamp;
+
+
+/**
+ * Tests of the continuation tokens of the children listings : round trip,
+ * tampered tokens and tokens issued by another listing
+ */
+public class ContinuationTokenTest
+{
+    private static final String ORDER = "cmis:name DESC,cmis:creationDate";
+    private static final int FOLDER_ID = 12;
+
+    @Test
+    public void testDocumentRoundTrip(  )
+    {
+        Timestamp dateCreation = new Timestamp( 1300000000123L );
+        dateCreation.setNanos( 123456789 );
+
+        CmisDocument document = new CmisDocument(  );
+        document.setId( 42 );
+        document.setTitle( "R\u00e9sum\u00e9 | 50% & co" );
+        document.setDateCreation( dateCreation );
+        document.setDateModification( new Timestamp( 1400000000000L ) );
+
+        ContinuationToken token = ContinuationToken.decode( ContinuationToken.afterDocument( ORDER, FOLDER_ID,
+                    document, null ).encode(  ) );
+
+        assertTrue( token.isIssuedBy( ORDER, FOLDER_ID ) );
+        assertFalse( token.isSpace(  ) );
+        assertEquals( 42, token.getId(  ) );
+        assertEquals( document.getTitle(  ), token.getTitle(  ) );
+        assertEquals( dateCreation, token.getDocument(  ).getDateCreation(  ) );
+        assertEquals( document.getDateModification(  ), token.getDocument(  ).getDateModification(  ) );
+    }
+
+    @Test
+    public void testSpaceRoundTrip(  )
+    {
+        ContinuationToken token = ContinuationToken.decode( ContinuationToken.afterSpace( ORDER, FOLDER_ID, 7,
+                    "Space", 3 ).encode(  ) );
+
+        assertTrue( token.isSpace(  ) );
+        assertEquals( 7, token.getId(  ) );
+        assertEquals( 3, token.getPosition(  ) );
+        assertEquals( "Space", token.getTitle(  ) );
+        assertNull( token.getDocument(  ).getDateCreation(  ) );
+    }
+
+    @Test
+    public void testNoTokenOnMissingSortValue(  )
+    {
+        CmisDocumentSort sort = new CmisDocumentSort(  );
+        sort.addField( CmisDocumentSort.FIELD_DATE_MODIFICATION, true );
+
+        CmisDocument document = new CmisDocument(  );
+        document.setId( 42 );
+        document.setTitle( "Doc" );
+
+        assertNull( ContinuationToken.afterDocument( ORDER, FOLDER_ID, document, sort ) );
+    }
+
+    @Test
+    public void testForeignToken(  )
+    {
+        ContinuationToken token = ContinuationToken.decode( ContinuationToken.afterSpace( ORDER, FOLDER_ID, 7,
+                    "Space", 3 ).encode(  ) );
+
+        assertFalse( token.isIssuedBy( ORDER, FOLDER_ID + 1 ) );
+        assertFalse( token.isIssuedBy( "cmis:name", FOLDER_ID ) );
+        assertFalse( token.isIssuedBy( "", FOLDER_ID ) );
+    }
+
+    @Test
+    public void testTamperedTokens(  )
+    {
+        assertInvalid( "" );
+        assertInvalid( "not a token !" );
+        assertInvalid( ContinuationToken.afterSpace( ORDER, FOLDER_ID, 7, "Space", 3 ).encode(  ).substring( 5 ) );
+
+        // wrong version, type, field count and numbers
+        assertInvalid( encode( "2|o|12|S|7|3|Space||" ) );
+        assertInvalid( encode( "1|o|12|X|7|3|Space||" ) );
+        assertInvalid( encode( "1|o|12|S|7|3|Space|" ) );
+        assertInvalid( encode( "1|o|12|S|7|3|Space|||" ) );
+        assertInvalid( encode( "1|o|twelve|S|7|3|Space||" ) );
+        assertInvalid( encode( "1|o|12|D|99999999999|0|Doc||" ) );
+
+        // malformed timestamps and escapes
+        assertInvalid( encode( "1|o|12|D|7|0|Doc|1300000000000|" ) );
+        assertInvalid( encode( "1|o|12|D|7|0|Doc|1300000000000.1.2|" ) );
+        assertInvalid( encode( "1|o|12|D|7|0|%zz||" ) );
+    }
+
+    @Test
+    public void testForgedButWellFormedToken(  )
+    {
+        // a well formed token is accepted, then rejected by the listing that didn't issue it
+        ContinuationToken token = ContinuationToken.decode( encode( "1|o|13|S|7|3|Space||" ) );
+
+        assertTrue( token.isIssuedBy( "o", 13 ) );
+        assertFalse( token.isIssuedBy( "o", FOLDER_ID ) );
+    }
+
+    private static void assertInvalid( String strToken )
+    {
+        try
+        {
+            ContinuationToken.decode( strToken );
+            fail( "Accepted token : " + strToken );
+        }
+        catch ( CmisInvalidArgumentException e )
+        {
+            // expected
+        }
+    }
+
+    private static String encode( String strPayload )
+    {
+        try
+        {
+            return Base64.encodeBase64URLSafeString( strPayload.getBytes( "UTF-8" ) );
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+}
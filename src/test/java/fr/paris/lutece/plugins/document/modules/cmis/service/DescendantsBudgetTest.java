@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+
+/**
+ * Tests of the node and thread budget of a descendants request
+ */
+public class DescendantsBudgetTest
+{
+    @Test
+    public void testNoLimit(  )
+    {
+        DescendantsBudget budget = new DescendantsBudget( 0, false, 0 );
+
+        assertEquals( 1000000, budget.take( 1000000 ) );
+        assertEquals( 5, budget.take( 5 ) );
+    }
+
+    @Test
+    public void testTakeWithinBudget(  )
+    {
+        DescendantsBudget budget = new DescendantsBudget( 10, false, 0 );
+
+        assertEquals( 4, budget.take( 4 ) );
+        assertEquals( 6, budget.take( 6 ) );
+        assertEquals( 0, budget.take( 0 ) );
+    }
+
+    @Test
+    public void testTruncate(  )
+    {
+        DescendantsBudget budget = new DescendantsBudget( 10, true, 0 );
+
+        assertEquals( 7, budget.take( 7 ) );
+        assertEquals( 3, budget.take( 5 ) );
+        assertEquals( 0, budget.take( 2 ) );
+    }
+
+    @Test( expected = CmisConstraintException.class )
+    public void testRejectWhenExhausted(  )
+    {
+        DescendantsBudget budget = new DescendantsBudget( 10, false, 0 );
+
+        budget.take( 7 );
+        budget.take( 5 );
+    }
+
+    @Test
+    public void testFolderChargedOnce(  )
+    {
+        DescendantsBudget budget = new DescendantsBudget( 10, true, 0 );
+
+        assertEquals( 7, budget.take( 1, 7 ) );
+        assertEquals( 7, budget.take( 1, 7 ) );
+        assertEquals( 3, budget.take( 2, 5 ) );
+        assertEquals( 3, budget.take( 2, 5 ) );
+        assertEquals( 0, budget.take( 3, 1 ) );
+        assertEquals( 7, budget.take( 1, 7 ) );
+    }
+
+    @Test
+    public void testFolderListedAgainNotRejected(  )
+    {
+        DescendantsBudget budget = new DescendantsBudget( 10, false, 0 );
+
+        assertEquals( 6, budget.take( 1, 6 ) );
+        assertEquals( 4, budget.take( 2, 4 ) );
+        assertEquals( 6, budget.take( 1, 6 ) );
+        assertEquals( 4, budget.take( 2, 4 ) );
+    }
+
+    @Test
+    public void testThreadsBounded(  )
+    {
+        DescendantsBudget budget = new DescendantsBudget( 0, true, 3 );
+
+        assertEquals( 2, budget.acquireThreads( 2 ) );
+        assertEquals( 1, budget.acquireThreads( 4 ) );
+        assertEquals( 0, budget.acquireThreads( 1 ) );
+
+        budget.releaseThread(  );
+        budget.releaseThread(  );
+        assertEquals( 2, budget.acquireThreads( 5 ) );
+    }
+
+    @Test
+    public void testNoThreads(  )
+    {
+        DescendantsBudget budget = new DescendantsBudget( 0, true, -1 );
+
+        assertEquals( 0, budget.acquireThreads( 3 ) );
+        assertEquals( 0, budget.acquireThreads( 0 ) );
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import fr.paris.lutece.plugins.document.modules.cmis.business.CmisDocument;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Tests of the rule applied to documents having the same title
+ */
+public class DocumentNameIndexServiceTest
+{
+    @Test
+    public void testLowestIdWinsWhateverTheOrder(  )
+    {
+        List<CmisDocument> listDocuments = new ArrayList<CmisDocument>(  );
+        listDocuments.add( newDocument( 42, "report" ) );
+        listDocuments.add( newDocument( 7, "report" ) );
+        listDocuments.add( newDocument( 19, "report" ) );
+        listDocuments.add( newDocument( 3, "summary" ) );
+
+        Map<String, Integer> index = DocumentNameIndexService.indexByTitle( listDocuments );
+        assertEquals( 2, index.size(  ) );
+        assertEquals( Integer.valueOf( 7 ), index.get( "report" ) );
+        assertEquals( Integer.valueOf( 3 ), index.get( "summary" ) );
+
+        Collections.reverse( listDocuments );
+        assertEquals( index, DocumentNameIndexService.indexByTitle( listDocuments ) );
+    }
+
+    @Test
+    public void testTitlesAreCaseSensitive(  )
+    {
+        List<CmisDocument> listDocuments = new ArrayList<CmisDocument>(  );
+        listDocuments.add( newDocument( 5, "Report" ) );
+        listDocuments.add( newDocument( 2, "report" ) );
+
+        Map<String, Integer> index = DocumentNameIndexService.indexByTitle( listDocuments );
+        assertEquals( Integer.valueOf( 5 ), index.get( "Report" ) );
+        assertEquals( Integer.valueOf( 2 ), index.get( "report" ) );
+        assertNull( index.get( "REPORT" ) );
+    }
+
+    @Test
+    public void testEmptySpace(  )
+    {
+        assertEquals( 0, DocumentNameIndexService.indexByTitle( new ArrayList<CmisDocument>(  ) ).size(  ) );
+    }
+
+    private static CmisDocument newDocument( int nId, String strTitle )
+    {
+        CmisDocument document = new CmisDocument(  );
+        document.setId( nId );
+        document.setTitle( strTitle );
+
+        return document;
+    }
+}
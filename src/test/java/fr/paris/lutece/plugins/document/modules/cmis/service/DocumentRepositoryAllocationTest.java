@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import fr.paris.lutece.plugins.document.business.DocumentType;
+import fr.paris.lutece.plugins.document.modules.cmis.business.CmisDocument;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.server.ObjectInfoImpl;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.server.impl.CallContextImpl;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import java.sql.Timestamp;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TimeZone;
+
+
+/**
+ * Allocation benchmark of the compilation of objects : the bytes allocated
+ * per compiled document by DocumentRepository.compileObjectType, compared
+ * with the compile path it replaced (an object info and new constant
+ * properties for every object, a calendar built with a time zone lookup for
+ * every date). The bytes are measured with the allocation counter of the
+ * current thread, the benchmark is skipped by the JVMs that don't have it
+ */
+public class DocumentRepositoryAllocationTest
+{
+    private static final int OBJECTS = 1000;
+    private static final int WARMUP_ROUNDS = 30;
+    private static final int MEASURED_ROUNDS = 10;
+    private static final long DATE_CREATION = 1300000000123L;
+    private static final long DATE_MODIFICATION = 1400000000456L;
+    private static final String FOLDER_PATH = "/space";
+    private static final String CREATED_BY = "Lutece";
+    private static final Set<String> FILTER_LISTING = new HashSet<String>( Arrays.asList( PropertyIds.OBJECT_ID,
+                PropertyIds.NAME, PropertyIds.BASE_TYPE_ID, PropertyIds.OBJECT_TYPE_ID ) );
+    private final DocumentRepository _repository = new DocumentRepository(  );
+    private final BaselineRepository _baseline = new BaselineRepository(  );
+    private final CallContext _context = new CallContextImpl( CallContext.BINDING_BROWSER, "document", false );
+    private final RepositoryObject[] _objects = new RepositoryObject[OBJECTS];
+    private final ObjectData[] _results = new ObjectData[OBJECTS];
+
+    @Before
+    public void setUp(  )
+    {
+        // the types are built without document types, so that no database is read
+        DocumentTypeService.getInstance(  ).load( Collections.<DocumentType>emptyList(  ) );
+
+        for ( int i = 0; i < OBJECTS; i++ )
+        {
+            CmisDocument document = new CmisDocument(  );
+            document.setId( i + 1 );
+            document.setSpaceId( 1 );
+            document.setTitle( "Document " + i );
+            document.setDateCreation( new Timestamp( DATE_CREATION ) );
+            document.setDateModification( new Timestamp( DATE_MODIFICATION ) );
+            document.setAttributeValues( Collections.<String, String>emptyMap(  ) );
+            ContentLengthService.getInstance(  ).putServedContentLength( i + 1, DATE_MODIFICATION, "content " + i );
+            _objects[i] = new RepositoryObject( document );
+        }
+    }
+
+    @Test
+    public void testAllPropertiesAllocation(  )
+    {
+        compareAllocations( null );
+    }
+
+    @Test
+    public void testListingPropertiesAllocation(  )
+    {
+        compareAllocations( FILTER_LISTING );
+    }
+
+    @Test
+    public void testSameProperties(  )
+    {
+        ObjectData current = _repository.compileObjectType( _context, _objects[0], null, false, false, false, null,
+                FOLDER_PATH );
+        ObjectData baseline = _baseline.compileObjectType( _context, _objects[0], null, FOLDER_PATH );
+
+        assertEquals( baseline.getProperties(  ).getProperties(  ).keySet(  ),
+            current.getProperties(  ).getProperties(  ).keySet(  ) );
+    }
+
+    /**
+     * Measures the bytes allocated per compiled object by both compile paths
+     * and checks that the current path allocates less
+     * @param filter The requested properties (null for all)
+     */
+    private void compareAllocations( Set<String> filter )
+    {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean(  );
+
+        if ( !( bean instanceof com.sun.management.ThreadMXBean ) ||
+                !( (com.sun.management.ThreadMXBean) bean ).isThreadAllocatedMemorySupported(  ) )
+        {
+            System.out.println( "Allocation benchmark skipped : no thread allocation counter" );
+
+            return;
+        }
+
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) bean;
+        allocations.setThreadAllocatedMemoryEnabled( true );
+
+        for ( int i = 0; i < WARMUP_ROUNDS; i++ )
+        {
+            compileCurrent( filter );
+            compileBaseline( filter );
+        }
+
+        long lThreadId = Thread.currentThread(  ).getId(  );
+        long lStart = allocations.getThreadAllocatedBytes( lThreadId );
+
+        for ( int i = 0; i < MEASURED_ROUNDS; i++ )
+        {
+            compileCurrent( filter );
+        }
+
+        long lCurrent = ( allocations.getThreadAllocatedBytes( lThreadId ) - lStart ) / ( MEASURED_ROUNDS * OBJECTS );
+        lStart = allocations.getThreadAllocatedBytes( lThreadId );
+
+        for ( int i = 0; i < MEASURED_ROUNDS; i++ )
+        {
+            compileBaseline( filter );
+        }
+
+        long lBaseline = ( allocations.getThreadAllocatedBytes( lThreadId ) - lStart ) / ( MEASURED_ROUNDS * OBJECTS );
+
+        System.out.println( "Bytes per compiled document, " + ( ( filter == null ) ? "all properties" : filter ) +
+            " : " + lCurrent + " (baseline " + lBaseline + ")" );
+        assertTrue( "current " + lCurrent + " >= baseline " + lBaseline, lCurrent < lBaseline );
+    }
+
+    private void compileCurrent( Set<String> filter )
+    {
+        for ( int i = 0; i < OBJECTS; i++ )
+        {
+            _results[i] = _repository.compileObjectType( _context, _objects[i], filter, false, false, false, null,
+                    FOLDER_PATH );
+        }
+    }
+
+    private void compileBaseline( Set<String> filter )
+    {
+        for ( int i = 0; i < OBJECTS; i++ )
+        {
+            _results[i] = _baseline.compileObjectType( _context, _objects[i], filter, FOLDER_PATH );
+        }
+    }
+
+    /**
+     * The compile path of the documents before the allocations were reduced
+     */
+    private static final class BaselineRepository extends BaseRepository
+    {
+        ObjectData compileObjectType( CallContext context, RepositoryObject object, Set<String> filter,
+            String folderPath )
+        {
+            ObjectDataImpl result = new ObjectDataImpl(  );
+            ObjectInfoImpl objectInfo = new ObjectInfoImpl(  );
+            boolean bObjectInfoRequired = context.isObjectInfoRequired(  );
+            PropertiesImpl props = new PropertiesImpl(  );
+            String typeId = null;
+            String id = object.getId(  );
+            String name = object.getName(  );
+
+            objectInfo.setId( id );
+            objectInfo.setName( name );
+            objectInfo.setCreatedBy( CREATED_BY );
+            objectInfo.setHasAcl( false );
+            objectInfo.setHasParent( true );
+            objectInfo.setVersionSeriesId( null );
+            objectInfo.setIsCurrentVersion( true );
+            objectInfo.setRelationshipSourceIds( null );
+            objectInfo.setRelationshipTargetIds( null );
+            objectInfo.setRenditionInfos( null );
+            objectInfo.setSupportsPolicies( false );
+            objectInfo.setSupportsRelationships( false );
+            objectInfo.setWorkingCopyId( null );
+            objectInfo.setWorkingCopyOriginalId( null );
+
+            addPropertyId( props, typeId, filter, PropertyIds.OBJECT_ID, id );
+            addPropertyString( props, typeId, filter, PropertyIds.NAME, name );
+            addPropertyString( props, typeId, filter, PropertyIds.CREATED_BY, CREATED_BY );
+            addPropertyString( props, typeId, filter, PropertyIds.LAST_MODIFIED_BY, CREATED_BY );
+
+            if ( isRequested( filter, PropertyIds.PATH ) )
+            {
+                addPropertyString( props, typeId, filter, PropertyIds.PATH, folderPath );
+            }
+
+            addPropertyString( props, typeId, filter, PropertyIds.CHANGE_TOKEN, null );
+
+            typeId = TypeManager.DOCUMENT_TYPE_ID;
+
+            GregorianCalendar created = ( bObjectInfoRequired || isRequested( filter, PropertyIds.CREATION_DATE ) )
+                ? newCalendar( object.getDateCreation(  ) ) : null;
+            GregorianCalendar lastModified = ( bObjectInfoRequired ||
+                isRequested( filter, PropertyIds.LAST_MODIFICATION_DATE ) )
+                ? newCalendar( object.getDateModification(  ) ) : null;
+
+            objectInfo.setBaseType( BaseTypeId.CMIS_DOCUMENT );
+            objectInfo.setTypeId( typeId );
+            objectInfo.setSupportsDescendants( false );
+            objectInfo.setSupportsFolderTree( false );
+            objectInfo.setHasContent( true );
+            objectInfo.setFileName( name );
+            objectInfo.setCreationDate( created );
+            objectInfo.setLastModificationDate( lastModified );
+
+            addPropertyId( props, typeId, filter, PropertyIds.BASE_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value(  ) );
+            addPropertyId( props, typeId, filter, PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value(  ) );
+            addPropertyDateTime( props, typeId, filter, PropertyIds.CREATION_DATE, created );
+            addPropertyDateTime( props, typeId, filter, PropertyIds.LAST_MODIFICATION_DATE, lastModified );
+            addPropertyId( props, typeId, filter, PropertyIds.CONTENT_STREAM_MIME_TYPE, "text/plain" );
+            addPropertyId( props, typeId, filter, PropertyIds.CONTENT_STREAM_ID, id );
+
+            if ( isRequested( filter, PropertyIds.CONTENT_STREAM_LENGTH ) )
+            {
+                addPropertyInteger( props, typeId, filter, PropertyIds.CONTENT_STREAM_LENGTH,
+                    object.getContentLength(  ) );
+            }
+
+            result.setProperties( props );
+
+            return result;
+        }
+
+        private static GregorianCalendar newCalendar( long millis )
+        {
+            GregorianCalendar result = new GregorianCalendar(  );
+            result.setTimeZone( TimeZone.getTimeZone( "GMT" ) );
+            result.setTimeInMillis( (long) ( Math.ceil( millis / 1000 ) * 1000 ) );
+
+            return result;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.server.impl.CallContextImpl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+import java.util.GregorianCalendar;
+
+
+/**
+ * Tests of the per-object allocations saved when compiling objects : object
+ * infos, constant properties and calendars
+ */
+public class DocumentRepositoryTest
+{
+    private static final long DATE = 1300000000123L;
+
+    @Test
+    public void testNoObjectInfoWhenNotRequired(  )
+    {
+        CallContext context = new CallContextImpl( CallContext.BINDING_BROWSER, "document", false );
+
+        assertNull( DocumentRepository.newObjectInfo( context ) );
+        assertNull( DocumentRepository.newObjectInfo( context ) );
+    }
+
+    @Test
+    public void testObjectInfoWhenRequired(  )
+    {
+        CallContext context = new CallContextImpl( CallContext.BINDING_ATOMPUB, "document", true );
+
+        assertNotNull( DocumentRepository.newObjectInfo( context ) );
+        assertNotSame( DocumentRepository.newObjectInfo( context ), DocumentRepository.newObjectInfo( context ) );
+    }
+
+    @Test
+    public void testConstantPropertyIsShared(  )
+    {
+        BaseRepository repository = new BaseRepository(  )
+            {
+            };
+
+        PropertyData<?> property = new PropertyStringImpl( PropertyIds.CREATED_BY, "admin" );
+        PropertiesImpl first = new PropertiesImpl(  );
+        PropertiesImpl second = new PropertiesImpl(  );
+        repository.addProperty( first, null, null, property );
+        repository.addProperty( second, null, null, property );
+
+        assertSame( property, first.getProperties(  ).get( PropertyIds.CREATED_BY ) );
+        assertSame( property, second.getProperties(  ).get( PropertyIds.CREATED_BY ) );
+    }
+
+    @Test
+    public void testConstantPropertyFiltered(  )
+    {
+        BaseRepository repository = new BaseRepository(  )
+            {
+            };
+
+        PropertiesImpl props = new PropertiesImpl(  );
+        repository.addProperty( props, null, Collections.singleton( PropertyIds.NAME ),
+            new PropertyStringImpl( PropertyIds.CREATED_BY, "admin" ) );
+
+        assertFalse( props.getProperties(  ).containsKey( PropertyIds.CREATED_BY ) );
+    }
+
+    @Test
+    public void testCalendarIsGmtAndTruncatedToSeconds(  )
+    {
+        GregorianCalendar calendar = BaseRepository.millisToCalendar( DATE );
+
+        assertEquals( "GMT", calendar.getTimeZone(  ).getID(  ) );
+        assertEquals( 1300000000000L, calendar.getTimeInMillis(  ) );
+    }
+
+    @Test
+    public void testCalendarsAreIndependentCopies(  )
+    {
+        GregorianCalendar first = BaseRepository.millisToCalendar( DATE );
+        GregorianCalendar second = BaseRepository.millisToCalendar( DATE );
+
+        assertNotSame( first, second );
+        first.setTimeInMillis( 0L );
+        assertEquals( 1300000000000L, second.getTimeInMillis(  ) );
+        assertEquals( 1300000000000L, BaseRepository.millisToCalendar( DATE ).getTimeInMillis(  ) );
+    }
+}
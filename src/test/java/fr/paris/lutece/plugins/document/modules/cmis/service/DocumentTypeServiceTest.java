@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import fr.paris.lutece.plugins.document.business.DocumentType;
+import fr.paris.lutece.plugins.document.business.attributes.DocumentAttribute;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Tests of the comparison of the document types that decides whether the CMIS
+ * types are rebuilt
+ */
+public class DocumentTypeServiceTest
+{
+    @Test
+    public void testSameTypes(  )
+    {
+        assertTrue( DocumentTypeService.isSameDocumentTypes( buildTypes(  ), buildTypes(  ) ) );
+        assertTrue( DocumentTypeService.isSameDocumentTypes( new ArrayList<DocumentType>(  ),
+                new ArrayList<DocumentType>(  ) ) );
+    }
+
+    @Test
+    public void testNullValues(  )
+    {
+        List<DocumentType> listTypes1 = buildTypes(  );
+        List<DocumentType> listTypes2 = buildTypes(  );
+        listTypes1.get( 0 ).setDescription( null );
+
+        assertFalse( DocumentTypeService.isSameDocumentTypes( listTypes1, listTypes2 ) );
+
+        listTypes2.get( 0 ).setDescription( null );
+        assertTrue( DocumentTypeService.isSameDocumentTypes( listTypes1, listTypes2 ) );
+    }
+
+    @Test
+    public void testTypeChanged(  )
+    {
+        List<DocumentType> listTypes = buildTypes(  );
+        listTypes.get( 1 ).setName( "Other" );
+        assertFalse( DocumentTypeService.isSameDocumentTypes( buildTypes(  ), listTypes ) );
+
+        listTypes = buildTypes(  );
+        listTypes.get( 1 ).setCode( "other" );
+        assertFalse( DocumentTypeService.isSameDocumentTypes( buildTypes(  ), listTypes ) );
+
+        listTypes = buildTypes(  );
+        listTypes.remove( 1 );
+        assertFalse( DocumentTypeService.isSameDocumentTypes( buildTypes(  ), listTypes ) );
+
+        // the order of the types gives the order of the CMIS types
+        listTypes = buildTypes(  );
+        listTypes.add( listTypes.remove( 0 ) );
+        assertFalse( DocumentTypeService.isSameDocumentTypes( buildTypes(  ), listTypes ) );
+    }
+
+    @Test
+    public void testAttributeChanged(  )
+    {
+        List<DocumentType> listTypes = buildTypes(  );
+        listTypes.get( 0 ).getAttributes(  ).get( 0 ).setRequired( false );
+        assertFalse( DocumentTypeService.isSameDocumentTypes( buildTypes(  ), listTypes ) );
+
+        listTypes = buildTypes(  );
+        listTypes.get( 0 ).getAttributes(  ).get( 1 ).setCodeAttributeType( "textarea" );
+        assertFalse( DocumentTypeService.isSameDocumentTypes( buildTypes(  ), listTypes ) );
+
+        listTypes = buildTypes(  );
+        listTypes.get( 0 ).getAttributes(  ).get( 1 ).setDescription( "Other" );
+        assertFalse( DocumentTypeService.isSameDocumentTypes( buildTypes(  ), listTypes ) );
+
+        listTypes = buildTypes(  );
+        listTypes.get( 0 ).getAttributes(  ).remove( 1 );
+        assertFalse( DocumentTypeService.isSameDocumentTypes( buildTypes(  ), listTypes ) );
+    }
+
+    @Test
+    public void testAttributeIdIgnored(  )
+    {
+        // the CMIS property ids are built from the attribute codes
+        List<DocumentType> listTypes = buildTypes(  );
+        listTypes.get( 0 ).getAttributes(  ).get( 0 ).setId( 99 );
+
+        assertTrue( DocumentTypeService.isSameDocumentTypes( buildTypes(  ), listTypes ) );
+    }
+
+    private static List<DocumentType> buildTypes(  )
+    {
+        List<DocumentType> listTypes = new ArrayList<DocumentType>(  );
+        listTypes.add( newType( "article", "Article",
+                newAttribute( 1, "title", "text", true ), newAttribute( 2, "body", "richtext", false ) ) );
+        listTypes.add( newType( "news", "News", newAttribute( 3, "summary", "text", false ) ) );
+
+        return listTypes;
+    }
+
+    private static DocumentType newType( String strCode, String strName, DocumentAttribute... attributes )
+    {
+        DocumentType type = new DocumentType(  );
+        type.setCode( strCode );
+        type.setName( strName );
+        type.setDescription( strName + " type" );
+        type.setAttributes( new ArrayList<DocumentAttribute>( Arrays.asList( attributes ) ) );
+
+        return type;
+    }
+
+    private static DocumentAttribute newAttribute( int nId, String strCode, String strType, boolean bRequired )
+    {
+        DocumentAttribute attribute = new DocumentAttribute(  );
+        attribute.setId( nId );
+        attribute.setCode( strCode );
+        attribute.setName( strCode );
+        attribute.setDescription( strCode + " attribute" );
+        attribute.setCodeAttributeType( strType );
+        attribute.setRequired( bRequired );
+
+        return attribute;
+    }
+}
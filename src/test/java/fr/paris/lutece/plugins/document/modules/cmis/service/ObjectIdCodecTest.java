@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+
+/**
+ * Tests of the object id codec : well formed, malformed and overflowing ids
+ */
+public class ObjectIdCodecTest
+{
+    @Test
+    public void testDecode(  )
+    {
+        assertDecoded( ObjectIdCodec.TYPE_DOCUMENT, 5, "D5" );
+        assertDecoded( ObjectIdCodec.TYPE_SPACE, 5, "S5" );
+        assertDecoded( ObjectIdCodec.TYPE_DOCUMENT, 0, "d0" );
+        assertDecoded( ObjectIdCodec.TYPE_SPACE, 7, "s007" );
+        assertDecoded( ObjectIdCodec.TYPE_DOCUMENT, Integer.MAX_VALUE, "D2147483647" );
+    }
+
+    @Test
+    public void testMalformedIds(  )
+    {
+        assertInvalid( null );
+        assertInvalid( "" );
+        assertInvalid( "D" );
+        assertInvalid( "5" );
+        assertInvalid( "X5" );
+        assertInvalid( "DS5" );
+        assertInvalid( "D-5" );
+        assertInvalid( "D+5" );
+        assertInvalid( "D 5" );
+        assertInvalid( "D5 " );
+        assertInvalid( "D5a" );
+        assertInvalid( "D\u0665" );
+    }
+
+    @Test
+    public void testOverflow(  )
+    {
+        assertInvalid( "D2147483648" );
+        assertInvalid( "S9999999999" );
+        assertInvalid( "D00000000001" );
+        assertInvalid( "D99999999999999999999" );
+    }
+
+    @Test
+    public void testPack(  )
+    {
+        long lObjectId = ObjectIdCodec.pack( ObjectIdCodec.TYPE_SPACE, Integer.MAX_VALUE );
+
+        assertEquals( ObjectIdCodec.TYPE_SPACE, ObjectIdCodec.getType( lObjectId ) );
+        assertEquals( Integer.MAX_VALUE, ObjectIdCodec.getId( lObjectId ) );
+        assertEquals( ObjectIdCodec.TYPE_DOCUMENT, ObjectIdCodec.getType( ObjectIdCodec.pack( 0, 0 ) ) );
+    }
+
+    @Test
+    public void testRoundTrip(  )
+    {
+        int[] ids = { 0, 1, 9, 10, 12345, Integer.MAX_VALUE };
+
+        for ( int nId : ids )
+        {
+            assertDecoded( ObjectIdCodec.TYPE_DOCUMENT, nId,
+                ObjectIdCodec.toObjectId( ObjectIdCodec.TYPE_DOCUMENT, nId ) );
+            assertDecoded( ObjectIdCodec.TYPE_SPACE, nId, ObjectIdCodec.toObjectId( ObjectIdCodec.TYPE_SPACE, nId ) );
+        }
+
+        assertEquals( "D12", ObjectIdCodec.toObjectId( ObjectIdCodec.TYPE_DOCUMENT, 12 ) );
+        assertEquals( "S12", ObjectIdCodec.toObjectId( ObjectIdCodec.TYPE_SPACE, 12 ) );
+    }
+
+    private static void assertDecoded( int nType, int nId, String strObjectId )
+    {
+        long lObjectId = ObjectIdCodec.decode( strObjectId );
+
+        assertEquals( nType, ObjectIdCodec.getType( lObjectId ) );
+        assertEquals( nId, ObjectIdCodec.getId( lObjectId ) );
+    }
+
+    private static void assertInvalid( String strObjectId )
+    {
+        assertEquals( ObjectIdCodec.INVALID, ObjectIdCodec.decode( strObjectId ) );
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import fr.paris.lutece.plugins.document.business.spaces.DocumentSpace;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+
+/**
+ * Tests of the space hierarchy snapshots : build, copy on write patches,
+ * restriction to the visible spaces and marker of the spaces
+ */
+public class SpaceHierarchyTest
+{
+    private static SpaceHierarchy buildHierarchy(  )
+    {
+        return SpaceHierarchy.build( buildSpaces(  ) );
+    }
+
+    /**
+     * Root (0) : A (1, w1) : C (3, w2) : D (5), then B (2) and a second A (4)
+     */
+    private static List<DocumentSpace> buildSpaces(  )
+    {
+        List<DocumentSpace> listSpaces = new ArrayList<DocumentSpace>(  );
+        listSpaces.add( newSpace( 0, SpaceHierarchy.NO_PARENT, "Root", null ) );
+        listSpaces.add( newSpace( 1, 0, "A", "w1" ) );
+        listSpaces.add( newSpace( 2, 0, "B", null ) );
+        listSpaces.add( newSpace( 3, 1, "C", "w2" ) );
+        listSpaces.add( newSpace( 4, 0, "A", null ) );
+        listSpaces.add( newSpace( 5, 3, "D", null ) );
+
+        return listSpaces;
+    }
+
+    @Test
+    public void testBuild(  )
+    {
+        SpaceHierarchy hierarchy = buildHierarchy(  );
+
+        assertArrayEquals( new int[] { 1, 2, 4 }, hierarchy.getChildIds( 0 ) );
+        assertArrayEquals( new int[0], hierarchy.getChildIds( 9 ) );
+        assertEquals( 3, hierarchy.getParentId( 5 ) );
+        assertEquals( SpaceHierarchy.NO_PARENT, hierarchy.getParentId( 0 ) );
+        assertEquals( "/", hierarchy.getPath( 0 ) );
+        assertEquals( "/A/C/D", hierarchy.getPath( 5 ) );
+        assertEquals( Arrays.asList( "w1", "w2" ), new ArrayList<String>( hierarchy.getWorkgroups(  ) ) );
+        assertFalse( hierarchy.contains( 9 ) );
+        assertFalse( hierarchy.contains( -1 ) );
+        assertFalse( hierarchy.isHidden( 5 ) );
+    }
+
+    @Test
+    public void testMarkerOfSameSpaces(  )
+    {
+        assertEquals( SpaceHierarchy.getMarker( buildSpaces(  ) ), SpaceHierarchy.getMarker( buildSpaces(  ) ) );
+    }
+
+    @Test
+    public void testMarkerOfSameLengthRename(  )
+    {
+        List<DocumentSpace> listSpaces = buildSpaces(  );
+        String strMarker = SpaceHierarchy.getMarker( listSpaces );
+        listSpaces.get( 2 ).setName( "X" );
+
+        assertFalse( strMarker.equals( SpaceHierarchy.getMarker( listSpaces ) ) );
+    }
+
+    @Test
+    public void testMarkerOfSameLengthWorkgroup(  )
+    {
+        List<DocumentSpace> listSpaces = buildSpaces(  );
+        String strMarker = SpaceHierarchy.getMarker( listSpaces );
+        listSpaces.get( 1 ).setWorkgroup( "w9" );
+
+        assertFalse( strMarker.equals( SpaceHierarchy.getMarker( listSpaces ) ) );
+
+        listSpaces = buildSpaces(  );
+        listSpaces.get( 2 ).setWorkgroup( "" );
+        assertFalse( strMarker.equals( SpaceHierarchy.getMarker( listSpaces ) ) );
+    }
+
+    @Test
+    public void testMarkerOfMove(  )
+    {
+        List<DocumentSpace> listSpaces = buildSpaces(  );
+        String strMarker = SpaceHierarchy.getMarker( listSpaces );
+        listSpaces.get( 5 ).setIdParent( 1 );
+
+        assertFalse( strMarker.equals( SpaceHierarchy.getMarker( listSpaces ) ) );
+    }
+
+    @Test
+    public void testMarkerKeepsValuesApart(  )
+    {
+        List<DocumentSpace> listSpaces1 = new ArrayList<DocumentSpace>(  );
+        listSpaces1.add( newSpace( 1, 0, "ab", "c" ) );
+
+        List<DocumentSpace> listSpaces2 = new ArrayList<DocumentSpace>(  );
+        listSpaces2.add( newSpace( 1, 0, "a", "bc" ) );
+
+        assertFalse( SpaceHierarchy.getMarker( listSpaces1 ).equals( SpaceHierarchy.getMarker( listSpaces2 ) ) );
+    }
+
+    @Test
+    public void testCountDescendants(  )
+    {
+        SpaceHierarchy hierarchy = buildHierarchy(  );
+
+        assertEquals( 5, hierarchy.countDescendants( 0 ) );
+        assertEquals( 2, hierarchy.countDescendants( 1 ) );
+        assertEquals( 0, hierarchy.countDescendants( 5 ) );
+        assertEquals( 0, hierarchy.countDescendants( 9 ) );
+    }
+
+    @Test
+    public void testDuplicateNameLowestIdWins(  )
+    {
+        SpaceHierarchy hierarchy = buildHierarchy(  );
+
+        assertEquals( 1, hierarchy.getChildId( 0, "A" ) );
+        assertEquals( 3, hierarchy.getChildId( 1, "C" ) );
+        assertEquals( SpaceHierarchy.NO_PARENT, hierarchy.getChildId( 0, "C" ) );
+        assertEquals( 4, hierarchy.withoutSpace( 1 ).getChildId( 0, "A" ) );
+    }
+
+    @Test
+    public void testMoveIsCopyOnWrite(  )
+    {
+        SpaceHierarchy hierarchy = buildHierarchy(  );
+        SpaceHierarchy moved = hierarchy.withSpace( newSpace( 3, 2, "C", "w2" ) );
+
+        assertArrayEquals( new int[0], moved.getChildIds( 1 ) );
+        assertArrayEquals( new int[] { 3 }, moved.getChildIds( 2 ) );
+        assertEquals( "/B/C/D", moved.getPath( 5 ) );
+        assertEquals( 0, moved.countDescendants( 1 ) );
+        assertEquals( 2, moved.countDescendants( 2 ) );
+        assertFalse( moved.isSameSpace( hierarchy, 3 ) );
+        assertTrue( moved.isSameSpace( hierarchy, 5 ) );
+
+        // the previous snapshot is unchanged
+        assertArrayEquals( new int[] { 3 }, hierarchy.getChildIds( 1 ) );
+        assertEquals( "/A/C/D", hierarchy.getPath( 5 ) );
+    }
+
+    @Test
+    public void testAddAndRename(  )
+    {
+        SpaceHierarchy hierarchy = buildHierarchy(  );
+        SpaceHierarchy added = hierarchy.withSpace( newSpace( 8, 2, "E", "w3" ) );
+
+        assertEquals( 9, added.getSize(  ) );
+        assertFalse( added.contains( 7 ) );
+        assertArrayEquals( new int[] { 8 }, added.getChildIds( 2 ) );
+        assertEquals( 8, added.getChildId( 2, "E" ) );
+        assertTrue( added.getWorkgroups(  ).contains( "w3" ) );
+        assertFalse( hierarchy.contains( 8 ) );
+
+        DocumentSpace renamed = newSpace( 2, 0, "B2", null );
+        assertFalse( hierarchy.isUpToDate( renamed ) );
+
+        SpaceHierarchy patched = hierarchy.withSpace( renamed );
+        assertTrue( patched.isUpToDate( renamed ) );
+        assertEquals( 2, patched.getChildId( 0, "B2" ) );
+        assertEquals( SpaceHierarchy.NO_PARENT, patched.getChildId( 0, "B" ) );
+        assertArrayEquals( new int[] { 1, 4, 2 }, patched.getChildIds( 0 ) );
+    }
+
+    @Test
+    public void testRemove(  )
+    {
+        SpaceHierarchy hierarchy = buildHierarchy(  );
+        SpaceHierarchy removed = hierarchy.withoutSpace( 2 );
+
+        assertFalse( removed.contains( 2 ) );
+        assertNull( removed.getName( 2 ) );
+        assertArrayEquals( new int[] { 1, 4 }, removed.getChildIds( 0 ) );
+        assertEquals( 4, removed.countDescendants( 0 ) );
+        assertTrue( hierarchy.contains( 2 ) );
+        assertSame( removed, removed.withoutSpace( 2 ) );
+    }
+
+    @Test
+    public void testRestrictToVisibleSpaces(  )
+    {
+        SpaceHierarchy hierarchy = buildHierarchy(  );
+        BitSet visible = new BitSet(  );
+        visible.set( 0, 3 );
+
+        SpaceHierarchy restricted = hierarchy.restrictTo( visible );
+        visible.clear(  );
+
+        assertFalse( restricted.isHidden( 1 ) );
+        assertTrue( restricted.isHidden( 3 ) );
+        assertTrue( restricted.isHidden( 9 ) );
+        assertFalse( restricted.contains( 3 ) );
+        assertNull( restricted.getName( 4 ) );
+        assertArrayEquals( new int[] { 1, 2 }, restricted.getChildIds( 0 ) );
+        assertArrayEquals( new int[0], restricted.getChildIds( 1 ) );
+        assertEquals( SpaceHierarchy.NO_PARENT, restricted.getChildId( 1, "C" ) );
+        assertEquals( 2, restricted.countDescendants( 0 ) );
+        assertEquals( Arrays.asList( "w1" ), new ArrayList<String>( restricted.getWorkgroups(  ) ) );
+
+        // the full snapshot is unchanged
+        assertTrue( hierarchy.contains( 3 ) );
+        assertFalse( hierarchy.isHidden( 3 ) );
+    }
+
+    @Test
+    public void testCycleIsBounded(  )
+    {
+        List<DocumentSpace> listSpaces = new ArrayList<DocumentSpace>(  );
+        listSpaces.add( newSpace( 0, SpaceHierarchy.NO_PARENT, "Root", null ) );
+        listSpaces.add( newSpace( 1, 2, "X", null ) );
+        listSpaces.add( newSpace( 2, 1, "Y", null ) );
+
+        SpaceHierarchy hierarchy = SpaceHierarchy.build( listSpaces );
+
+        assertEquals( 0, hierarchy.countDescendants( 0 ) );
+        assertTrue( hierarchy.countDescendants( 1 ) <= 2 );
+        assertTrue( hierarchy.getPath( 1 ).length(  ) <= "/X/Y/X/Y".length(  ) );
+    }
+
+    private static DocumentSpace newSpace( int nId, int nIdParent, String strName, String strWorkgroup )
+    {
+        DocumentSpace space = new DocumentSpace(  );
+        space.setId( nId );
+        space.setIdParent( nIdParent );
+        space.setName( strName );
+        space.setWorkgroup( strWorkgroup );
+
+        return space;
+    }
+}
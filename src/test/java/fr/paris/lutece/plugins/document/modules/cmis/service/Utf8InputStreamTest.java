@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2002-2014, Mairie de Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+package fr.paris.lutece.plugins.document.modules.cmis.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+
+import java.util.Arrays;
+
+
+/**
+ * Tests of the stream that encodes a text in UTF-8 chunk by chunk
+ */
+public class Utf8InputStreamTest
+{
+    // the size of the chunks encoded by the stream
+    private static final int CHUNK_SIZE = 8 * 1024;
+    private static final String PAIR = new String( Character.toChars( 0x1F600 ) );
+    private static final String MIXED = "a\u00e9\u20ac" + PAIR + "\ud83dz\ude00" + PAIR + "\u07ff!";
+
+    @Test
+    public void testWholeTextIsEncodedLikeGetBytes(  )
+        throws IOException
+    {
+        assertStream( "", new Utf8InputStream( "" ) );
+        assertStream( MIXED, new Utf8InputStream( MIXED ) );
+    }
+
+    @Test
+    public void testSurrogatePairSplitAcrossChunks(  )
+        throws IOException
+    {
+        // the pair starts on each of the last bytes of the first chunk
+        for ( int nPrefix = CHUNK_SIZE - 4; nPrefix <= ( CHUNK_SIZE + 1 ); nPrefix++ )
+        {
+            String strText = repeat( 'x', nPrefix ) + PAIR + repeat( '\u20ac', 3000 ) + PAIR;
+            assertStream( strText, new Utf8InputStream( strText ) );
+            assertStreamByByte( strText, new Utf8InputStream( strText ) );
+        }
+    }
+
+    @Test
+    public void testEveryRangeOfAMixedText(  )
+        throws IOException
+    {
+        byte[] bytes = getBytes( MIXED );
+
+        for ( int nOffset = 0; nOffset <= bytes.length; nOffset++ )
+        {
+            for ( int nLength = 0; nLength <= ( bytes.length - nOffset + 1 ); nLength++ )
+            {
+                byte[] expected = Arrays.copyOfRange( bytes, nOffset, Math.min( bytes.length, nOffset + nLength ) );
+                assertArrayEquals( "range " + nOffset + "+" + nLength, expected,
+                    readAll( new Utf8InputStream( MIXED, nOffset, nLength ) ) );
+            }
+        }
+    }
+
+    @Test
+    public void testRangeStartingInsideAPairAtAChunkBorder(  )
+        throws IOException
+    {
+        String strText = repeat( 'x', CHUNK_SIZE - 2 ) + PAIR + repeat( 'y', 10 );
+        byte[] bytes = getBytes( strText );
+
+        for ( int nOffset = CHUNK_SIZE - 3; nOffset <= ( CHUNK_SIZE + 3 ); nOffset++ )
+        {
+            assertArrayEquals( Arrays.copyOfRange( bytes, nOffset, bytes.length ),
+                readAll( new Utf8InputStream( strText, nOffset, Long.MAX_VALUE ) ) );
+        }
+    }
+
+    @Test
+    public void testSkipAfterARead(  )
+        throws IOException
+    {
+        String strText = repeat( '\u00e9', CHUNK_SIZE ) + PAIR + MIXED;
+        byte[] bytes = getBytes( strText );
+        InputStream in = new Utf8InputStream( strText );
+        byte[] start = new byte[10];
+        assertEquals( 10, in.read( start ) );
+        assertArrayEquals( Arrays.copyOf( bytes, 10 ), start );
+
+        // up to the middle of the pair, in the second chunk
+        long lSkip = ( ( CHUNK_SIZE * 2 ) + 2 ) - 10;
+        assertEquals( lSkip, in.skip( lSkip ) );
+        assertArrayEquals( Arrays.copyOfRange( bytes, ( CHUNK_SIZE * 2 ) + 2, bytes.length ), readAll( in ) );
+    }
+
+    @Test
+    public void testSkipIsBoundedByTheRangeAndTheText(  )
+        throws IOException
+    {
+        byte[] bytes = getBytes( MIXED );
+        InputStream in = new Utf8InputStream( MIXED, 1, 5 );
+        assertEquals( 5, in.skip( 100 ) );
+        assertEquals( -1, in.read(  ) );
+
+        in = new Utf8InputStream( MIXED );
+        assertEquals( bytes.length, in.skip( Long.MAX_VALUE ) );
+        assertEquals( -1, in.read(  ) );
+        assertEquals( 0, new Utf8InputStream( MIXED, bytes.length + 10, 5 ).skip( 1 ) );
+    }
+
+    private static void assertStream( String strText, InputStream in )
+        throws IOException
+    {
+        assertArrayEquals( getBytes( strText ), readAll( in ) );
+    }
+
+    private static void assertStreamByByte( String strText, InputStream in )
+        throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(  );
+        int b;
+
+        while ( ( b = in.read(  ) ) != -1 )
+        {
+            out.write( b );
+        }
+
+        assertArrayEquals( getBytes( strText ), out.toByteArray(  ) );
+    }
+
+    private static byte[] readAll( InputStream in )
+        throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(  );
+        byte[] buffer = new byte[1000];
+        int nRead;
+
+        while ( ( nRead = in.read( buffer ) ) != -1 )
+        {
+            out.write( buffer, 0, nRead );
+        }
+
+        return out.toByteArray(  );
+    }
+
+    private static byte[] getBytes( String strText )
+        throws UnsupportedEncodingException
+    {
+        return strText.getBytes( ContentLengthService.CONTENT_CHARSET );
+    }
+
+    private static String repeat( char c, int nCount )
+    {
+        char[] chars = new char[nCount];
+        Arrays.fill( chars, c );
+
+        return new String( chars );
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.commons.server.CmisService;
+import org.apache.chemistry.opencmis.server.impl.atompub.ObjectService;
+import org.apache.chemistry.opencmis.server.support.CmisServiceWrapper;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import java.math.BigInteger;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+
+/**
+ * Tests of the byte ranges of content streams, resolved alone and through the
+ * AtomPub binding and the service wrapper.
+ */
+public class PartialContentStreamTest
+{
+    private static final String REPOSITORY_ID = "document";
+    private static final byte[] CONTENT = "0123456789abcdefghij".getBytes(  );
+
+    @Test
+    public void testWholeContent(  )
+    {
+        PartialContentStream range = PartialContentStream.forRange( null, null, null, 20 );
+
+        assertTrue( range.isSatisfiable(  ) );
+        assertEquals( BigInteger.ZERO, range.getOffset(  ) );
+        assertEquals( 20, range.getLength(  ) );
+        assertEquals( BigInteger.valueOf( 20 ), range.getTotalLength(  ) );
+    }
+
+    @Test
+    public void testOffsetAndLength(  )
+    {
+        PartialContentStream range = PartialContentStream.forRange( BigInteger.valueOf( 5 ), BigInteger.valueOf( 3 ),
+                null, 20 );
+        assertEquals( BigInteger.valueOf( 5 ), range.getOffset(  ) );
+        assertEquals( 3, range.getLength(  ) );
+
+        range = PartialContentStream.forRange( BigInteger.valueOf( 15 ), BigInteger.valueOf( 30 ), null, 20 );
+        assertEquals( 5, range.getLength(  ) );
+
+        range = PartialContentStream.forRange( BigInteger.valueOf( 20 ), null, null, 20 );
+        assertFalse( range.isSatisfiable(  ) );
+        assertEquals( 0, range.getLength(  ) );
+    }
+
+    @Test
+    public void testSuffix(  )
+    {
+        PartialContentStream range = PartialContentStream.forRange( null, null, BigInteger.valueOf( 5 ), 20 );
+        assertTrue( range.isSatisfiable(  ) );
+        assertEquals( BigInteger.valueOf( 15 ), range.getOffset(  ) );
+        assertEquals( 5, range.getLength(  ) );
+
+        // a suffix longer than the content asks for the whole content
+        range = PartialContentStream.forRange( null, null, BigInteger.valueOf( 50 ), 20 );
+        assertEquals( BigInteger.ZERO, range.getOffset(  ) );
+        assertEquals( 20, range.getLength(  ) );
+
+        range = PartialContentStream.forRange( null, null, BigInteger.ZERO, 20 );
+        assertFalse( range.isSatisfiable(  ) );
+    }
+
+    @Test
+    public void testSuffixRangeThroughWrappedService(  )
+        throws Exception
+    {
+        FakeResponse response = getContent( "bytes=-5" );
+
+        assertEquals( HttpServletResponse.SC_PARTIAL_CONTENT, response.status );
+        assertEquals( "bytes 15-19/20", response.headers.get( "Content-Range" ) );
+        assertEquals( "5", response.headers.get( "Content-Length" ) );
+        assertArrayEquals( Arrays.copyOfRange( CONTENT, 15, 20 ), response.body.toByteArray(  ) );
+    }
+
+    @Test
+    public void testRangeThroughWrappedService(  )
+        throws Exception
+    {
+        FakeResponse response = getContent( "bytes=2-4" );
+
+        assertEquals( HttpServletResponse.SC_PARTIAL_CONTENT, response.status );
+        assertEquals( "bytes 2-4/20", response.headers.get( "Content-Range" ) );
+        assertArrayEquals( Arrays.copyOfRange( CONTENT, 2, 5 ), response.body.toByteArray(  ) );
+
+        response = getContent( "bytes=18-" );
+        assertEquals( "bytes 18-19/20", response.headers.get( "Content-Range" ) );
+        assertArrayEquals( Arrays.copyOfRange( CONTENT, 18, 20 ), response.body.toByteArray(  ) );
+    }
+
+    @Test
+    public void testUnsatisfiableThroughWrappedService(  )
+        throws Exception
+    {
+        FakeResponse response = getContent( "bytes=25-" );
+        assertEquals( HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, response.status );
+        assertEquals( "bytes */20", response.headers.get( "Content-Range" ) );
+
+        response = getContent( "bytes=-0" );
+        assertEquals( HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, response.status );
+    }
+
+    @Test
+    public void testNoOrMalformedRange(  )
+        throws Exception
+    {
+        String[] ranges = { null, "bytes=4-2", "bytes=1-2,5-6", "bytes=x-", "bytes=--5" };
+
+        for ( String range : ranges )
+        {
+            FakeResponse response = getContent( range );
+
+            assertEquals( HttpServletResponse.SC_OK, response.status );
+            assertNull( response.headers.get( "Content-Range" ) );
+            assertArrayEquals( CONTENT, response.body.toByteArray(  ) );
+        }
+    }
+
+    /**
+     * Sends a content stream request through the AtomPub binding to a wrapped
+     * service that resolves the range like the repository.
+     */
+    private static FakeResponse getContent( String range )
+        throws Exception
+    {
+        FakeResponse response = new FakeResponse(  );
+        HttpServletResponse httpResponse = response.proxy(  );
+        HttpServletRequest request = request( range );
+        final CallContext context = HttpUtils.createContext( request, httpResponse, null, CallContext.BINDING_ATOMPUB,
+                null, null, 0 );
+
+        CmisService service = (CmisService) Proxy.newProxyInstance( CmisService.class.getClassLoader(  ),
+                new Class<?>[] { CmisService.class },
+                new InvocationHandler(  )
+                {
+                    public Object invoke( Object proxy, Method method, Object[] args )
+                    {
+                        if ( !method.getName(  ).equals( "getContentStream" ) )
+                        {
+                            return null;
+                        }
+
+                        PartialContentStream content = PartialContentStream.forRange( (BigInteger) args[3],
+                                (BigInteger) args[4], HttpUtils.getSuffixLength( context ), CONTENT.length );
+                        int offset = content.getOffset(  ).intValue(  );
+                        content.setStream( new ByteArrayInputStream( CONTENT, offset, (int) content.getLength(  ) ) );
+
+                        return content;
+                    }
+                } );
+
+        CmisServiceWrapper<CmisService> wrapper = new CmisServiceWrapper<CmisService>( service, null, null, null,
+                null );
+        ObjectService.getContentStream( context, wrapper, REPOSITORY_ID, request, httpResponse );
+
+        return response;
+    }
+
+    private static HttpServletRequest request( final String range )
+    {
+        final Map<String, String[]> parameters = Collections.singletonMap( "id", new String[] { "D1" } );
+
+        return (HttpServletRequest) Proxy.newProxyInstance( HttpServletRequest.class.getClassLoader(  ),
+            new Class<?>[] { HttpServletRequest.class },
+            new InvocationHandler(  )
+            {
+                public Object invoke( Object proxy, Method method, Object[] args )
+                {
+                    if ( method.getName(  ).equals( "getHeader" ) && "Range".equals( args[0] ) )
+                    {
+                        return range;
+                    }
+
+                    if ( method.getName(  ).equals( "getParameterMap" ) )
+                    {
+                        return parameters;
+                    }
+
+                    if ( method.getName(  ).equals( "getPathInfo" ) )
+                    {
+                        return "/" + REPOSITORY_ID + "/content";
+                    }
+
+                    return null;
+                }
+            } );
+    }
+
+    /**
+     * Records what is written to a response.
+     */
+    private static final class FakeResponse implements InvocationHandler
+    {
+        private final Map<String, String> headers = new HashMap<String, String>(  );
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(  );
+        private int status = -1;
+
+        private final ServletOutputStream out = new ServletOutputStream(  )
+            {
+                @Override
+                public void write( int b )
+                {
+                    body.write( b );
+                }
+            };
+
+        public HttpServletResponse proxy(  )
+        {
+            return (HttpServletResponse) Proxy.newProxyInstance( HttpServletResponse.class.getClassLoader(  ),
+                new Class<?>[] { HttpServletResponse.class }, this );
+        }
+
+        public Object invoke( Object proxy, Method method, Object[] args )
+        {
+            String name = method.getName(  );
+
+            if ( name.equals( "setHeader" ) )
+            {
+                headers.put( (String) args[0], (String) args[1] );
+            }
+            else if ( name.equals( "setStatus" ) )
+            {
+                status = (Integer) args[0];
+            }
+            else if ( name.equals( "getOutputStream" ) )
+            {
+                return out;
+            }
+
+            return null;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+
+/**
+ * Tests of the serialized response cache: source identity, ETag and 304.
+ */
+public class SerializedResponseCacheTest
+{
+    private static final String KEY = "http://localhost/cmis/atom";
+    private static final String CONTENT_TYPE = "application/atomsvc+xml";
+    private static final String BODY = "<service>\u00e9t\u00e9</service>";
+
+    @Test
+    public void testReusedOnlyForSameSources(  )
+    {
+        SerializedResponseCache cache = new SerializedResponseCache(  );
+        List<Object> sources = Arrays.<Object>asList( new Object(  ) );
+
+        assertNull( cache.get( KEY, sources ) );
+
+        SerializedResponseCache.Entry entry = cache.put( KEY, sources, BODY );
+
+        assertSame( entry, cache.get( KEY, sources ) );
+        assertSame( entry, cache.get( KEY, Arrays.<Object>asList( sources.get( 0 ) ) ) );
+        assertNull( cache.get( KEY, Arrays.<Object>asList( new Object(  ) ) ) );
+        assertNull( cache.get( KEY, null ) );
+        assertNull( cache.get( "http://otherhost/cmis/atom", sources ) );
+    }
+
+    @Test
+    public void testBounded(  )
+    {
+        SerializedResponseCache cache = new SerializedResponseCache( 2 );
+        cache.put( "a", null, BODY );
+        cache.put( "b", null, BODY );
+        cache.get( "a", null );
+        cache.put( "c", null, BODY );
+
+        assertNotNull( cache.get( "a", null ) );
+        assertNull( cache.get( "b", null ) );
+        assertNotNull( cache.get( "c", null ) );
+    }
+
+    @Test
+    public void testETag(  )
+    {
+        SerializedResponseCache cache = new SerializedResponseCache(  );
+        String etag = cache.put( KEY, null, BODY ).getETag(  );
+
+        assertTrue( etag.startsWith( "\"" ) && etag.endsWith( "\"" ) );
+        assertEquals( etag, cache.put( "other", null, BODY ).getETag(  ) );
+        assertTrue( !etag.equals( cache.put( KEY, null, BODY + " " ).getETag(  ) ) );
+    }
+
+    @Test
+    public void testWriteBody(  )
+        throws IOException
+    {
+        SerializedResponseCache.Entry entry = new SerializedResponseCache(  ).put( KEY, null, BODY );
+        FakeResponse response = new FakeResponse(  );
+        entry.write( CONTENT_TYPE, request( null ), response.proxy(  ) );
+
+        byte[] bytes = BODY.getBytes( "UTF-8" );
+        assertEquals( HttpServletResponse.SC_OK, response.status );
+        assertEquals( entry.getETag(  ), response.headers.get( "ETag" ) );
+        assertEquals( CONTENT_TYPE, response.contentType );
+        assertEquals( bytes.length, response.contentLength );
+        assertEquals( BODY, new String( response.body.toByteArray(  ), "UTF-8" ) );
+    }
+
+    @Test
+    public void testNotModified(  )
+        throws IOException
+    {
+        SerializedResponseCache.Entry entry = new SerializedResponseCache(  ).put( KEY, null, BODY );
+        String etag = entry.getETag(  );
+
+        assertNotModified( entry, etag );
+        assertNotModified( entry, "W/" + etag );
+        assertNotModified( entry, "\"other\", " + etag );
+        assertNotModified( entry, "*" );
+    }
+
+    @Test
+    public void testModified(  )
+        throws IOException
+    {
+        SerializedResponseCache.Entry entry = new SerializedResponseCache(  ).put( KEY, null, BODY );
+
+        assertModified( entry, "\"other\"" );
+        assertModified( entry, entry.getETag(  ).replace( "\"", "" ) );
+        assertModified( entry, "" );
+    }
+
+    private static void assertNotModified( SerializedResponseCache.Entry entry, String ifNoneMatch )
+        throws IOException
+    {
+        FakeResponse response = new FakeResponse(  );
+        entry.write( CONTENT_TYPE, request( ifNoneMatch ), response.proxy(  ) );
+
+        assertEquals( HttpServletResponse.SC_NOT_MODIFIED, response.status );
+        assertEquals( entry.getETag(  ), response.headers.get( "ETag" ) );
+        assertEquals( 0, response.body.size(  ) );
+    }
+
+    private static void assertModified( SerializedResponseCache.Entry entry, String ifNoneMatch )
+        throws IOException
+    {
+        FakeResponse response = new FakeResponse(  );
+        entry.write( CONTENT_TYPE, request( ifNoneMatch ), response.proxy(  ) );
+
+        assertEquals( HttpServletResponse.SC_OK, response.status );
+        assertTrue( response.body.size(  ) > 0 );
+    }
+
+    private static HttpServletRequest request( final String ifNoneMatch )
+    {
+        return (HttpServletRequest) Proxy.newProxyInstance( HttpServletRequest.class.getClassLoader(  ),
+            new Class<?>[] { HttpServletRequest.class },
+            new InvocationHandler(  )
+            {
+                public Object invoke( Object proxy, Method method, Object[] args )
+                {
+                    if ( method.getName(  ).equals( "getHeader" ) && "If-None-Match".equals( args[0] ) )
+                    {
+                        return ifNoneMatch;
+                    }
+
+                    return null;
+                }
+            } );
+    }
+
+    /**
+     * Records what is written to a response.
+     */
+    private static final class FakeResponse implements InvocationHandler
+    {
+        private final Map<String, String> headers = new HashMap<String, String>(  );
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(  );
+        private int status = -1;
+        private int contentLength = -1;
+        private String contentType;
+
+        private final ServletOutputStream out = new ServletOutputStream(  )
+            {
+                @Override
+                public void write( int b )
+                {
+                    body.write( b );
+                }
+            };
+
+        public HttpServletResponse proxy(  )
+        {
+            return (HttpServletResponse) Proxy.newProxyInstance( HttpServletResponse.class.getClassLoader(  ),
+                new Class<?>[] { HttpServletResponse.class }, this );
+        }
+
+        public Object invoke( Object proxy, Method method, Object[] args )
+        {
+            String name = method.getName(  );
+
+            if ( name.equals( "setHeader" ) )
+            {
+                headers.put( (String) args[0], (String) args[1] );
+            }
+            else if ( name.equals( "setStatus" ) )
+            {
+                status = (Integer) args[0];
+            }
+            else if ( name.equals( "setContentType" ) )
+            {
+                contentType = (String) args[0];
+            }
+            else if ( name.equals( "setContentLength" ) )
+            {
+                contentLength = (Integer) args[0];
+            }
+            else if ( name.equals( "getOutputStream" ) )
+            {
+                return out;
+            }
+
+            return null;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.impl.TypeCache;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.DocumentTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.server.ObjectInfoImpl;
+import org.apache.chemistry.opencmis.commons.server.CmisService;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+
+/**
+ * Tests of the type definitions cache shared by the requests of a repository.
+ */
+public class SharedTypeCacheTest
+{
+    private static final String TYPE_ID = "cmis:document";
+    private static final String UNKNOWN_TYPE_ID = "unknown";
+    private static final String OBJECT_ID = "D1";
+
+    // registered before the bound is reached by testNumberOfCachesBounded, whatever the order of the tests
+    private static final SharedTypeCache CACHE_A = SharedTypeCache.getInstance( "a" );
+    private static final SharedTypeCache CACHE_B = SharedTypeCache.getInstance( "b" );
+
+    @Before
+    public void setUp(  )
+    {
+        SharedTypeCache.invalidateAll(  );
+    }
+
+    @Test
+    public void testOneCachePerRepository(  )
+    {
+        assertSame( CACHE_A, SharedTypeCache.getInstance( "a" ) );
+        assertSame( CACHE_B, SharedTypeCache.getInstance( "b" ) );
+        assertNotSame( CACHE_A, CACHE_B );
+    }
+
+    @Test
+    public void testNumberOfCachesBounded(  )
+    {
+        for ( int i = 0; i < 32; i++ )
+        {
+            SharedTypeCache.getInstance( "bounded-" + i );
+        }
+
+        // the repositories beyond the bound get a cache that is not kept
+        assertNotSame( SharedTypeCache.getInstance( "bounded-31" ), SharedTypeCache.getInstance( "bounded-31" ) );
+    }
+
+    @Test
+    public void testSharedAcrossRequests(  )
+    {
+        FakeService first = new FakeService( false );
+        FakeService second = new FakeService( false );
+
+        TypeDefinition type = CACHE_A.forRequest( first.proxy(  ) ).getTypeDefinition( TYPE_ID );
+
+        assertSame( type, CACHE_A.forRequest( second.proxy(  ) ).getTypeDefinition( TYPE_ID ) );
+        assertSame( type, CACHE_A.forRequest( second.proxy(  ) ).getTypeDefinitionForObject( OBJECT_ID ) );
+        assertEquals( 1, first.loads );
+        assertEquals( 0, second.loads );
+    }
+
+    @Test
+    public void testUnknownTypeNotCached(  )
+    {
+        FakeService service = new FakeService( false );
+        TypeCache types = CACHE_A.forRequest( service.proxy(  ) );
+
+        assertNull( types.getTypeDefinition( UNKNOWN_TYPE_ID ) );
+        assertNull( types.getTypeDefinition( UNKNOWN_TYPE_ID ) );
+        assertNull( types.getTypeDefinitionForObject( "D2" ) );
+        assertEquals( 2, service.loads );
+    }
+
+    @Test
+    public void testInvalidateAll(  )
+    {
+        FakeService service = new FakeService( false );
+        TypeCache types = CACHE_A.forRequest( service.proxy(  ) );
+
+        TypeDefinition type = types.getTypeDefinition( TYPE_ID );
+        SharedTypeCache.invalidateAll(  );
+
+        assertNotSame( type, types.getTypeDefinition( TYPE_ID ) );
+        assertEquals( 2, service.loads );
+    }
+
+    @Test
+    public void testDefinitionLoadedDuringInvalidationNotKept(  )
+    {
+        FakeService racing = new FakeService( true );
+        FakeService service = new FakeService( false );
+
+        CACHE_A.forRequest( racing.proxy(  ) ).getTypeDefinition( TYPE_ID );
+        CACHE_A.forRequest( service.proxy(  ) ).getTypeDefinition( TYPE_ID );
+
+        assertEquals( 1, service.loads );
+    }
+
+    /**
+     * Service that builds a new definition for each load.
+     */
+    private static final class FakeService implements InvocationHandler
+    {
+        private final boolean invalidateWhileLoading;
+        private int loads;
+
+        private FakeService( boolean invalidateWhileLoading )
+        {
+            this.invalidateWhileLoading = invalidateWhileLoading;
+        }
+
+        public CmisService proxy(  )
+        {
+            return (CmisService) Proxy.newProxyInstance( CmisService.class.getClassLoader(  ),
+                new Class<?>[] { CmisService.class }, this );
+        }
+
+        public Object invoke( Object proxy, Method method, Object[] args )
+        {
+            if ( method.getName(  ).equals( "getTypeDefinition" ) )
+            {
+                loads++;
+
+                if ( invalidateWhileLoading )
+                {
+                    SharedTypeCache.invalidateAll(  );
+                }
+
+                if ( !TYPE_ID.equals( args[1] ) )
+                {
+                    return null;
+                }
+
+                DocumentTypeDefinitionImpl type = new DocumentTypeDefinitionImpl(  );
+                type.setId( TYPE_ID );
+
+                return type;
+            }
+
+            if ( method.getName(  ).equals( "getObjectInfo" ) && OBJECT_ID.equals( args[1] ) )
+            {
+                ObjectInfoImpl info = new ObjectInfoImpl(  );
+                info.setTypeId( TYPE_ID );
+
+                return info;
+            }
+
+            return null;
+        }
+    }
+}